@@ -0,0 +1,68 @@
+package org.avro.compactor.cli;
+
+import java.util.Arrays;
+
+/**
+ * Standard base64 with padding, for compacted schemas written one per line
+ *    - Java 7 has no base64 codec of its own
+ */
+final class Base64 {
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+    private static final char PADDING = '=';
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base64() {}
+
+    static String encode(final byte[] bytes) {
+        final char[] chars = new char[(bytes.length + 2) / 3 * 4];
+        int c = 0;
+        for (int i = 0; i < bytes.length; i += 3) {
+            final int remaining = bytes.length - i;
+            final int chunk = (bytes[i] & 0xFF) << 16
+                    | (remaining > 1 ? (bytes[i + 1] & 0xFF) << 8 : 0)
+                    | (remaining > 2 ? bytes[i + 2] & 0xFF : 0);
+            chars[c++] = ALPHABET[chunk >>> 18];
+            chars[c++] = ALPHABET[(chunk >>> 12) & 0x3F];
+            chars[c++] = remaining > 1 ? ALPHABET[(chunk >>> 6) & 0x3F] : PADDING;
+            chars[c++] = remaining > 2 ? ALPHABET[chunk & 0x3F] : PADDING;
+        }
+        return new String(chars);
+    }
+
+    static byte[] decode(final String text) {
+        if (text.length() % 4 != 0)
+            throw new IllegalArgumentException("Base64 length must be a multiple of 4. Found " + text.length());
+        int padding = 0;
+        while (padding < 2 && padding < text.length() && text.charAt(text.length() - 1 - padding) == PADDING) {
+            padding++;
+        }
+        final byte[] bytes = new byte[text.length() / 4 * 3 - padding];
+        int b = 0;
+        for (int i = 0; i < text.length(); i += 4) {
+            int chunk = 0;
+            for (int j = 0; j < 4; j++) {
+                final char ch = text.charAt(i + j);
+                chunk = (chunk << 6) | (ch == PADDING && i + j >= text.length() - padding ? 0 : valueOf(ch));
+            }
+            for (int shift = 16; shift >= 0 && b < bytes.length; shift -= 8) {
+                bytes[b++] = (byte) (chunk >>> shift);
+            }
+        }
+        return bytes;
+    }
+
+    private static int valueOf(final char ch) {
+        final int value = ch < VALUES.length ? VALUES[ch] : -1;
+        if (value < 0)
+            throw new IllegalArgumentException("Not a base64 character. Found " + ch);
+        return value;
+    }
+}
@@ -0,0 +1,431 @@
+package org.avro.compactor.cli;
+
+import org.avro.compactor.Compactor;
+import org.avro.compactor.codec.Feature;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts or expands Avro schema files, directories and streams in bulk, see Direction for the inputs
+ *    - Schema files are converted in parallel, each to a file next to it or under the output directory
+ *    - Streams are converted in batches of lines on the same threads and written in input order,
+ *      so only a few batches are held in memory however long the stream is.
+ *      A line that fails is written as an empty line, so output lines match input lines, and so is every line
+ *      of a batch that fails as a whole
+ *    - Failures are reported with their reason as they happen and the rest carries on.
+ *      A schema nested too deeply for the thread's stack fails on its own like any other bad schema
+ *      When done the schemas, compaction ratio and failures of each stream, all files and the whole run are printed,
+ *      the run with its schemas and json megabytes per second
+ *    - Reports go to stderr, stdout only carries the output of a stream read from stdin
+ *
+ * Exits with 0 when every schema was converted, 1 when some failed and 2 for bad arguments.
+ */
+public final class CompactorTool {
+
+    private static final String USAGE =
+        "Usage: compactor <compact|expand> [options] <input>...\n"
+        + "  <input>        a schema file, a directory of them, a stream file or - for a stream on stdin\n"
+        + "                 compact reads .avsc files and .jsonl/.ndjson streams of one json schema per line\n"
+        + "                 expand reads .cavsc files and .b64 streams of one base64 compacted schema per line\n"
+        + "  -o <dir>       write outputs under the directory, keeping the paths below each input directory\n"
+        + "                 (default: next to each input, stdout for stdin)\n"
+        + "  -f <features>  comma separated features to compact with, e.g. profile,variable_length\n"
+        + "  -t <threads>   worker threads (default: available processors)\n";
+
+    private static final int BATCH_LINES = 1024;
+    private static final int MAX_FAILURES_SHOWN = 20;
+
+    private final Direction direction;
+    private final Compactor compactor;
+    private final File outputDir;
+    private final int threads;
+    private final ExecutorService workers;
+    // Bounds the files waiting for a worker, directories can hold millions
+    private final Semaphore queuedFiles;
+    private final PrintStream err;
+    private final InputStats files = new InputStats("files");
+    private final InputStats total = new InputStats("total");
+
+    private CompactorTool(final Direction direction, final Compactor compactor, final File outputDir, final int threads, final PrintStream err) {
+        this.direction = direction;
+        this.compactor = compactor;
+        this.outputDir = outputDir;
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.queuedFiles = new Semaphore(threads * 4);
+        this.err = err;
+    }
+
+    public static void main(final String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * @return the exit code
+     */
+    static int run(final String[] args, final InputStream in, final PrintStream out, final PrintStream err) {
+        if (args.length == 0 || args[0].equals("-h") || args[0].equals("--help")) {
+            err.print(USAGE);
+            return args.length == 0 ? 2 : 0;
+        }
+        final Direction direction;
+        final Compactor.Builder builder = Compactor.builder();
+        File outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<String> inputs = new ArrayList<String>();
+        try {
+            direction = direction(args[0]);
+            for (int i = 1; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("-o")) {
+                    outputDir = new File(value(args, ++i, arg));
+                } else if (arg.equals("-f")) {
+                    for (final String name : value(args, ++i, arg).split(",")) {
+                        builder.feature(feature(name), true);
+                    }
+                } else if (arg.equals("-t")) {
+                    threads = Integer.parseInt(value(args, ++i, arg));
+                    if (threads < 1)
+                        throw new IllegalArgumentException("Threads must be at least 1. Found " + threads);
+                } else if (arg.startsWith("-") && !arg.equals("-")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    inputs.add(arg);
+                }
+            }
+            if (inputs.isEmpty())
+                throw new IllegalArgumentException("No inputs");
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return 2;
+        }
+        final CompactorTool tool = new CompactorTool(direction, builder.build(), outputDir, threads, err);
+        try {
+            return tool.convert(inputs, in, out);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private static Direction direction(final String command) {
+        try {
+            return Direction.valueOf(command.toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    private static String value(final String[] args, final int index, final String option) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + option);
+        return args[index];
+    }
+
+    private static Feature feature(final String name) {
+        final Feature feature;
+        try {
+            feature = Feature.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown feature " + name);
+        }
+        if (feature == Feature.DICTIONARY)
+            throw new IllegalArgumentException(Feature.DICTIONARY + " needs a NameDictionary, which the tool can not load");
+        return feature;
+    }
+
+    private int convert(final List<String> inputs, final InputStream in, final PrintStream out) throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            for (final String input : inputs) {
+                if (input.equals("-")) {
+                    convertStream("stdin", in, out);
+                    continue;
+                }
+                final File file = new File(input);
+                if (file.isDirectory()) {
+                    convertDirectory(file);
+                } else if (!file.isFile()) {
+                    failed(input, "No such file", total);
+                } else if (direction.isStream(file.getName())) {
+                    convertStreamFile(file, outputFor(file, file.getParentFile()));
+                } else if (direction.isFile(file.getName())) {
+                    submitFile(file, outputFor(file, file.getParentFile()));
+                } else {
+                    failed(input, "Not an input for " + direction.name().toLowerCase(Locale.ROOT), total);
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            // Stops the workers when the run ends early, their threads would keep the JVM alive
+            workers.shutdownNow();
+        }
+        if (files.schemas() > 0) {
+            err.println(files);
+            total.add(files);
+        }
+        err.println(total.toString(System.nanoTime() - start));
+        return total.failures() == 0 ? 0 : 1;
+    }
+
+    private void convertDirectory(final File directory) throws InterruptedException {
+        try {
+            Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path path, final BasicFileAttributes attributes) {
+                    final File file = path.toFile();
+                    final String name = file.getName();
+                    try {
+                        if (direction.isStream(name)) {
+                            convertStreamFile(file, outputFor(file, directory));
+                        } else if (direction.isFile(name)) {
+                            submitFile(file, outputFor(file, directory));
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path path, final IOException e) {
+                    failed(path.toString(), e.toString(), total);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            failed(directory.getPath(), e.toString(), total);
+        }
+        if (Thread.currentThread().isInterrupted())
+            throw new InterruptedException();
+    }
+
+    /**
+     * @return the output file, under the output directory at the input's path below the root
+     */
+    private File outputFor(final File input, final File root) {
+        final String name = direction.outputName(input.getName());
+        if (outputDir == null) {
+            return new File(input.getParentFile(), name);
+        }
+        final Path relative = root == null ? input.toPath().getFileName() : root.toPath().relativize(input.toPath());
+        final Path parent = relative.getParent();
+        return new File(parent == null ? outputDir : new File(outputDir, parent.toString()), name);
+    }
+
+    private void submitFile(final File file, final File output) throws InterruptedException {
+        queuedFiles.acquire();
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    convertFile(file, output);
+                } finally {
+                    queuedFiles.release();
+                }
+            }
+        });
+    }
+
+    private void convertFile(final File file, final File output) {
+        try {
+            final byte[] converted = direction.convertFile(Files.readAllBytes(file.toPath()), compactor, files);
+            createParent(output);
+            Files.write(output.toPath(), converted);
+        } catch (final IOException | RuntimeException | StackOverflowError e) {
+            files.failed();
+            failed(file.getPath(), reason(e), null);
+        }
+    }
+
+    private void convertStreamFile(final File file, final File output) throws InterruptedException {
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = new FileInputStream(file);
+            createParent(output);
+            out = new FileOutputStream(output);
+            convertStream(file.getPath(), in, out);
+        } catch (final IOException e) {
+            failed(file.getPath(), e.toString(), total);
+        } finally {
+            close(in);
+            close(out);
+        }
+    }
+
+    private void convertStream(final String name, final InputStream in, final OutputStream out) throws InterruptedException {
+        final InputStats stats = new InputStats(name);
+        final Deque<LineBatch> batches = new ArrayDeque<LineBatch>();
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, Direction.UTF_8));
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, Direction.UTF_8));
+            int firstLine = 1;
+            List<String> batch;
+            while (!(batch = readBatch(reader)).isEmpty()) {
+                final LineBatch lineBatch = new LineBatch(name, firstLine, batch, stats);
+                lineBatch.result = workers.submit(lineBatch);
+                batches.add(lineBatch);
+                firstLine += batch.size();
+                // Keep every worker busy without reading ahead of the output
+                if (batches.size() > threads * 2) {
+                    write(batches.poll(), writer);
+                }
+            }
+            while (!batches.isEmpty()) {
+                write(batches.poll(), writer);
+            }
+            writer.flush();
+        } catch (final IOException e) {
+            failed(name, e.toString(), stats);
+        } finally {
+            for (final LineBatch pending : batches) {
+                pending.result.cancel(true);
+            }
+        }
+        err.println(stats);
+        total.add(stats);
+    }
+
+    private static List<String> readBatch(final BufferedReader reader) throws IOException {
+        final List<String> batch = new ArrayList<String>(BATCH_LINES);
+        String line;
+        while (batch.size() < BATCH_LINES && (line = reader.readLine()) != null) {
+            batch.add(line);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes the converted lines of a batch, or an empty line for each line of a batch that failed as a whole
+     */
+    private void write(final LineBatch batch, final Writer writer) throws IOException, InterruptedException {
+        String[] lines;
+        try {
+            lines = batch.result.get();
+        } catch (final ExecutionException e) {
+            for (int i = 0; i < batch.lines.size(); i++) {
+                batch.stats.failed();
+            }
+            failed(batch.name + ":" + batch.firstLine + "-" + (batch.firstLine + batch.lines.size() - 1), reason(e.getCause()), null);
+            lines = new String[batch.lines.size()];
+            Arrays.fill(lines, "");
+        }
+        for (final String line : lines) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Converts a batch of stream lines on a worker. Blank lines stay blank and are not counted.
+     */
+    private final class LineBatch implements Callable<String[]> {
+
+        private final String name;
+        private final int firstLine;
+        private final List<String> lines;
+        private final InputStats stats;
+        // Set once the batch is submitted
+        private Future<String[]> result;
+
+        LineBatch(final String name, final int firstLine, final List<String> lines, final InputStats stats) {
+            this.name = name;
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.stats = stats;
+        }
+
+        @Override
+        public String[] call() {
+            final String[] converted = new String[lines.size()];
+            for (int i = 0; i < converted.length; i++) {
+                final String line = lines.get(i).trim();
+                if (line.isEmpty()) {
+                    converted[i] = "";
+                    continue;
+                }
+                try {
+                    converted[i] = direction.convertLine(line, compactor, stats);
+                } catch (final RuntimeException | StackOverflowError e) {
+                    stats.failed();
+                    converted[i] = "";
+                    if (stats.failures() <= MAX_FAILURES_SHOWN) {
+                        failed(name + ":" + (firstLine + i), reason(e), null);
+                    }
+                }
+            }
+            return converted;
+        }
+    }
+
+    /**
+     * Reports a failure, and counts it in the stats unless the caller already did
+     */
+    private void failed(final String where, final String reason, final InputStats stats) {
+        if (stats != null) {
+            stats.failed();
+        }
+        synchronized (err) {
+            err.println(where + ": " + reason);
+        }
+    }
+
+    private static String reason(final Throwable e) {
+        if (e instanceof StackOverflowError) {
+            return "Nested too deeply for the thread stack";
+        }
+        // One line per failure, parser messages point at the source on a line of their own
+        return (e.getMessage() == null ? e.toString() : e.getMessage()).replaceAll("\\s*\\n\\s*", " ");
+    }
+
+    private static void createParent(final File file) throws IOException {
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+            throw new IOException("Could not create " + parent);
+    }
+
+    private static void close(final Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (final IOException e) {
+            // Already reported or nothing left to lose
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.avro.compactor.cli;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+
+import java.nio.charset.Charset;
+
+/**
+ * What the tool does to each schema, and which inputs it reads
+ *    - Schema files hold one schema: Avro json in .avsc files, compacted bytes in .cavsc files
+ *    - Streams hold one schema per line: Avro json in .jsonl or .ndjson files, base64 compacted bytes in .b64 files
+ *    - Outputs keep the input's name with the other extension
+ */
+enum Direction {
+
+    COMPACT(".avsc", ".cavsc", new String[] {".jsonl", ".ndjson"}, ".b64") {
+        @Override
+        byte[] convertFile(final byte[] input, final Compactor compactor, final InputStats stats) {
+            final byte[] compacted = compactor.encode(parse(new String(input, UTF_8)));
+            stats.converted(input.length, compacted.length);
+            return compacted;
+        }
+
+        @Override
+        String convertLine(final String line, final Compactor compactor, final InputStats stats) {
+            final byte[] compacted = compactor.encode(parse(line));
+            stats.converted(utf8Length(line), compacted.length);
+            return Base64.encode(compacted);
+        }
+    },
+
+    EXPAND(".cavsc", ".avsc", new String[] {".b64"}, ".jsonl") {
+        @Override
+        byte[] convertFile(final byte[] input, final Compactor compactor, final InputStats stats) {
+            final byte[] json = compactor.decode(input).toString(true).getBytes(UTF_8);
+            stats.converted(json.length, input.length);
+            return json;
+        }
+
+        @Override
+        String convertLine(final String line, final Compactor compactor, final InputStats stats) {
+            final byte[] compacted = Base64.decode(line);
+            final String json = compactor.decode(compacted).toString();
+            stats.converted(utf8Length(json), compacted.length);
+            return json;
+        }
+    };
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String fileExtension;
+    private final String fileOutputExtension;
+    private final String[] streamExtensions;
+    private final String streamOutputExtension;
+
+    Direction(final String fileExtension, final String fileOutputExtension, final String[] streamExtensions, final String streamOutputExtension) {
+        this.fileExtension = fileExtension;
+        this.fileOutputExtension = fileOutputExtension;
+        this.streamExtensions = streamExtensions;
+        this.streamOutputExtension = streamOutputExtension;
+    }
+
+    /**
+     * Converts one schema and counts its sizes in the stats
+     */
+    abstract byte[] convertFile(byte[] input, Compactor compactor, InputStats stats);
+
+    abstract String convertLine(String line, Compactor compactor, InputStats stats);
+
+    boolean isFile(final String name) {
+        return name.endsWith(fileExtension);
+    }
+
+    boolean isStream(final String name) {
+        for (final String extension : streamExtensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String outputName(final String name) {
+        if (isFile(name)) {
+            return name.substring(0, name.length() - fileExtension.length()) + fileOutputExtension;
+        }
+        return name.substring(0, name.lastIndexOf('.')) + streamOutputExtension;
+    }
+
+    /**
+     * @return the length of the string in UTF-8, as it is read or written, without encoding it
+     */
+    static int utf8Length(final String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Written as a one byte replacement
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static Schema parse(final String json) {
+        // A parser remembers the named types it has seen, each schema gets its own
+        return new Schema.Parser().parse(json);
+    }
+}
@@ -0,0 +1,67 @@
+package org.avro.compactor.cli;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the schemas, sizes and failures of one input, or of all inputs together. Thread-safe.
+ *    - Sizes are counted as Avro json and as compacted bytes whichever way the tool runs, so the ratio is the compaction ratio.
+ *      Json is counted in UTF-8 bytes, files and stream lines alike
+ */
+final class InputStats {
+
+    private static final double MB = 1024 * 1024;
+
+    private final String name;
+    private final AtomicLong schemas = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong jsonBytes = new AtomicLong();
+    private final AtomicLong compactedBytes = new AtomicLong();
+
+    InputStats(final String name) {
+        this.name = name;
+    }
+
+    void converted(final long json, final long compacted) {
+        schemas.incrementAndGet();
+        jsonBytes.addAndGet(json);
+        compactedBytes.addAndGet(compacted);
+    }
+
+    void failed() {
+        schemas.incrementAndGet();
+        failures.incrementAndGet();
+    }
+
+    void add(final InputStats other) {
+        schemas.addAndGet(other.schemas.get());
+        failures.addAndGet(other.failures.get());
+        jsonBytes.addAndGet(other.jsonBytes.get());
+        compactedBytes.addAndGet(other.compactedBytes.get());
+    }
+
+    long schemas() {
+        return schemas.get();
+    }
+
+    long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        final long json = jsonBytes.get();
+        final long compacted = compactedBytes.get();
+        return String.format(Locale.ROOT, "%s: %d schemas, %.1f MB json, %.1f MB compacted (%.2fx), %d failed",
+            name, schemas.get(), json / MB, compacted / MB, compacted == 0 ? 0.0 : (double) json / compacted, failures.get());
+    }
+
+    /**
+     * @return the counts followed by the schemas and json megabytes per second
+     */
+    String toString(final long nanos) {
+        final double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format(Locale.ROOT, "%s in %.1f s, %.0f schemas/s, %.1f MB/s",
+            toString(), seconds, schemas.get() / seconds, jsonBytes.get() / MB / seconds);
+    }
+}
@@ -0,0 +1,65 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.avro.compactor.SchemaCompactor;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks and records compaction ratios next to the timings
+ *    - results.json holds the JMH results, including the GC profiler's allocation rates
+ *    - compaction.csv holds the Avro json size, compacted size, Huffman coded size and lossless size of each corpus schema
+ *
+ * Usage: BenchmarkRunner [output directory] [benchmark regex]
+ */
+public class BenchmarkRunner {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Compactor HUFFMAN = Compactor.builder().huffmanNames(true).build();
+    private static final Compactor LOSSLESS = Compactor.builder().lossless(true).build();
+
+    public static void main(final String[] args) throws Exception {
+        final File outputDir = new File(args.length > 0 ? args[0] : "build/reports/jmh");
+        final String include = args.length > 1 ? args[1] : ".*Benchmark.*";
+        if (!outputDir.isDirectory() && !outputDir.mkdirs())
+            throw new IOException("Could not create " + outputDir);
+
+        writeCompactionReport(new File(outputDir, "compaction.csv"));
+
+        final Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(new File(outputDir, "results.json").getPath())
+            .build();
+        new Runner(options).run();
+    }
+
+    private static void writeCompactionReport(final File file) throws IOException {
+        final PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            writer.println("schema,avro_bytes,compacted_bytes,ratio,huffman_bytes,lossless_bytes");
+            for (final Map.Entry<String, Schema> entry : SchemaCorpus.all().entrySet()) {
+                final int avroSize = entry.getValue().toString().getBytes(UTF_8).length;
+                final int compactedSize = SchemaCompactor.encode(entry.getValue()).length;
+                final int huffmanSize = HUFFMAN.encode(entry.getValue()).length;
+                final int losslessSize = LOSSLESS.encode(entry.getValue()).length;
+                writer.println(entry.getKey() + "," + avroSize + "," + compactedSize + ","
+                    + String.format("%.2f", (double) avroSize / compactedSize) + "," + huffmanSize + "," + losslessSize);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
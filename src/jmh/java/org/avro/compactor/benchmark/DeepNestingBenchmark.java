@@ -0,0 +1,57 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.SchemaCompactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how encode, decode and sizeOf scale with nesting depth
+ *    - Time per op should grow linearly with depth
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepNestingBenchmark {
+
+    @Param({"8", "16", "32", "64", "128"})
+    public int depth;
+
+    private Schema schema;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        schema = SchemaCorpus.deep(depth);
+        bytes = SchemaCompactor.encode(schema);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SchemaCompactor.encode(schema);
+    }
+
+    @Benchmark
+    public Schema decode() {
+        return SchemaCompactor.decode(bytes);
+    }
+
+    @Benchmark
+    public int sizeOf() {
+        return SchemaCompactor.sizeOf(schema);
+    }
+}
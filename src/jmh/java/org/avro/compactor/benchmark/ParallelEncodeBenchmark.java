@@ -0,0 +1,71 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how encodeAll and decodeAll scale with the number of fork/join threads
+ *    - The corpus cycles through SchemaCorpus until it holds corpusSize schemas
+ *    - parallelism 1 is the single threaded baseline
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelEncodeBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"10000"})
+    public int corpusSize;
+
+    private ForkJoinPool pool;
+    private List<Schema> schemas;
+    private List<byte[]> bytes;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(parallelism);
+        final List<Schema> corpus = new ArrayList<Schema>(SchemaCorpus.all().values());
+        schemas = new ArrayList<Schema>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            schemas.add(corpus.get(i % corpus.size()));
+        }
+        bytes = Compactor.DEFAULT.encodeAll(schemas, pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<byte[]> encodeAll() {
+        return Compactor.DEFAULT.encodeAll(schemas, pool);
+    }
+
+    @Benchmark
+    public List<Schema> decodeAll() {
+        return Compactor.DEFAULT.decodeAll(bytes, pool);
+    }
+}
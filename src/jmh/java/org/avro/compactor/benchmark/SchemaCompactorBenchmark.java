@@ -0,0 +1,118 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.avro.compactor.SchemaCompactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encode, decode and sizeOf over the schemas in SchemaCorpus
+ *    - parseJson is the baseline, what reading the schema costs without the compactor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaCompactorBenchmark {
+
+    private static final Compactor HUFFMAN = Compactor.builder().huffmanNames(true).build();
+    private static final Compactor LOSSLESS = Compactor.builder().lossless(true).build();
+
+    @Param({"readme", "wide", "names", "deep", "union", "enum"})
+    public String schemaName;
+
+    private Compactor compiled;
+    private Schema schema;
+    private byte[] bytes;
+    private byte[] huffmanBytes;
+    private byte[] losslessBytes;
+    private String json;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        schema = SchemaCorpus.get(schemaName);
+        bytes = SchemaCompactor.encode(schema);
+        huffmanBytes = HUFFMAN.encode(schema);
+        losslessBytes = LOSSLESS.encode(schema);
+        json = schema.toString();
+        buffer = ByteBuffer.allocateDirect(bytes.length);
+        compiled = Compactor.builder().compile(schema).build();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SchemaCompactor.encode(schema);
+    }
+
+    @Benchmark
+    public int encodeToBuffer() {
+        buffer.clear();
+        return SchemaCompactor.encode(schema, buffer);
+    }
+
+    @Benchmark
+    public Schema decode() {
+        return SchemaCompactor.decode(bytes);
+    }
+
+    @Benchmark
+    public byte[] encodeHuffman() {
+        return HUFFMAN.encode(schema);
+    }
+
+    @Benchmark
+    public Schema decodeHuffman() {
+        return HUFFMAN.decode(huffmanBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeLossless() {
+        return LOSSLESS.encode(schema);
+    }
+
+    @Benchmark
+    public Schema decodeLossless() {
+        return LOSSLESS.decode(losslessBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeCompiled() {
+        return compiled.encode(schema);
+    }
+
+    @Benchmark
+    public Schema decodeCompiled() {
+        return compiled.decode(bytes);
+    }
+
+    @Benchmark
+    public Schema parseJson() {
+        return new Schema.Parser().parse(json);
+    }
+
+    @Benchmark
+    public String viewName() {
+        return SchemaCompactor.view(bytes).getName();
+    }
+
+    @Benchmark
+    public int sizeOf() {
+        return SchemaCompactor.sizeOf(schema);
+    }
+}
@@ -0,0 +1,139 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated schemas used by the benchmarks
+ *    - readme: the example from the README
+ *    - wide: a single record with 63 fields
+ *    - names: 8 nested records with 40 long field names each
+ *    - deep: 32 levels of nested records
+ *    - union: a union with 15 branches
+ *    - enum: an enum with 15 symbols
+ *
+ * Counts stay one below the codec limits, the limit itself does not fit in the count bits.
+ */
+public class SchemaCorpus {
+
+    public static final String README_SCHEMA = "{\n" +
+        " \"namespace\": \"example.avro\",\n" +
+        " \"type\": \"record\",\n" +
+        " \"name\": \"Record\",\n" +
+        " \"fields\": [\n" +
+        "    { \"name\": \"Null\", \"type\": \"null\", \"doc\": \"no value\" },\n" +
+        "    { \"name\": \"Boolean\", \"type\": \"boolean\", \"doc\" : \"a binary value\" },\n" +
+        "    { \"name\": \"Integer\", \"type\": \"int\", \"doc\": \"32-bit signed integer\" },\n" +
+        "    { \"name\": \"Long\", \"type\": \"long\", \"doc\": \"64-bit signed integer\" },\n" +
+        "    { \"name\": \"Float\", \"type\": \"long\", \"doc\": \"single precision (32-bit) IEEE 754 floating-point number\" },\n" +
+        "    { \"name\": \"Double\", \"type\": \"double\", \"doc\": \"double precision (64-bit) IEEE 754 floating-point number\" },\n" +
+        "    { \"name\": \"Bytes\", \"type\": \"bytes\", \"doc\": \"sequence of 8-bit unsigned bytes\" },\n" +
+        "    { \"name\": \"String\", \"type\": \"string\", \"doc\" : \"unicode character sequence\" },\n" +
+        "    { \"name\": \"Enum\", \"type\": { \"type\": \"enum\", \"name\": \"Foo\", \"symbols\": [\"ALPHA\", \"BETA\", \"DELTA\", \"GAMMA\"] }},\n" +
+        "    { \"name\": \"Fixed\", \"type\": { \"type\": \"fixed\", \"name\": \"md5\", \"size\": 16 }},\n" +
+        "    { \"name\": \"Array\", \"type\": { \"type\": \"array\", \"items\": \"string\" }},\n" +
+        "    { \"name\": \"Map\", \"type\": { \"type\": \"map\", \"values\": \"string\" }},\n" +
+        "    { \"name\": \"Union\", \"type\": [\"string\", \"null\"] }\n" +
+        " ]\n" +
+        "}";
+
+    private static final List<Type> FIELD_TYPES = Arrays.asList(
+        Type.BOOLEAN,
+        Type.INT,
+        Type.LONG,
+        Type.FLOAT,
+        Type.DOUBLE,
+        Type.STRING,
+        Type.BYTES
+    );
+
+    private static final Map<String, Schema> schemas = new LinkedHashMap<String, Schema>();
+
+    static {
+        schemas.put("readme", new Schema.Parser().parse(README_SCHEMA));
+        schemas.put("wide", wide(63));
+        schemas.put("names", names(8, 40));
+        schemas.put("deep", deep(32));
+        schemas.put("union", union(15));
+        schemas.put("enum", enumeration(15));
+    }
+
+    public static Map<String, Schema> all() {
+        return Collections.unmodifiableMap(schemas);
+    }
+
+    public static Schema get(final String name) {
+        final Schema schema = schemas.get(name);
+        if (schema == null)
+            throw new IllegalArgumentException("Unknown schema " + name + ". Expected one of " + schemas.keySet());
+        return schema;
+    }
+
+    public static Schema wide(final int fieldCount) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(field("field" + i, Schema.create(FIELD_TYPES.get(i % FIELD_TYPES.size()))));
+        }
+        return Schema.createRecord("Wide", null, null, false, fields);
+    }
+
+    public static Schema names(final int recordCount, final int fieldCount) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (int r = 0; r < recordCount; r++) {
+            final List<Field> recordFields = new ArrayList<Field>();
+            for (int i = 0; i < fieldCount; i++) {
+                final String name = "customer_account_attribute_" + r + "_" + i;
+                recordFields.add(field(name, Schema.create(FIELD_TYPES.get(i % FIELD_TYPES.size()))));
+            }
+            fields.add(field("nested_record_" + r, Schema.createRecord("NestedRecord" + r, null, null, false, recordFields)));
+        }
+        return Schema.createRecord("Names", null, null, false, fields);
+    }
+
+    public static Schema deep(final int depth) {
+        Schema schema = Schema.create(Type.STRING);
+        for (int i = 0; i < depth; i++) {
+            final List<Field> fields = new ArrayList<Field>();
+            fields.add(field("id", Schema.create(Type.LONG)));
+            fields.add(field("child", schema));
+            schema = Schema.createRecord("Level" + i, null, null, false, fields);
+        }
+        return schema;
+    }
+
+    public static Schema union(final int branchCount) {
+        final List<Schema> branches = new ArrayList<Schema>();
+        branches.add(Schema.create(Type.NULL));
+        for (final Type type : FIELD_TYPES) {
+            branches.add(Schema.create(type));
+        }
+        branches.add(Schema.createArray(Schema.create(Type.STRING)));
+        branches.add(Schema.createMap(Schema.create(Type.STRING)));
+        for (int i = 0; branches.size() < branchCount; i++) {
+            final List<Field> fields = new ArrayList<Field>();
+            fields.add(field("value" + i, Schema.create(Type.STRING)));
+            branches.add(Schema.createRecord("Branch" + i, null, null, false, fields));
+        }
+        return Schema.createUnion(branches.subList(0, branchCount));
+    }
+
+    public static Schema enumeration(final int symbolCount) {
+        final List<String> symbols = new ArrayList<String>();
+        for (int i = 0; i < symbolCount; i++) {
+            symbols.add("SYMBOL_NUMBER_" + i);
+        }
+        return Schema.createEnum("Enumeration", null, null, symbols);
+    }
+
+    private static Field field(final String name, final Schema schema) {
+        return new Field(name, schema, null, (Object) null);
+    }
+}
@@ -0,0 +1,59 @@
+package org.avro.compactor.benchmark;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how encode, decode and sizeOf scale with record width when counts have a variable length
+ *    - Time per op should grow linearly with the field count, past the 63 field limit of the fixed width format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WideSchemaBenchmark {
+
+    private static final Compactor COMPACTOR = Compactor.builder().variableLength(true).build();
+
+    @Param({"16", "63", "256", "1024", "4096"})
+    public int fieldCount;
+
+    private Schema schema;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        schema = SchemaCorpus.wide(fieldCount);
+        bytes = COMPACTOR.encode(schema);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return COMPACTOR.encode(schema);
+    }
+
+    @Benchmark
+    public Schema decode() {
+        return COMPACTOR.decode(bytes);
+    }
+
+    @Benchmark
+    public int sizeOf() {
+        return COMPACTOR.sizeOf(schema);
+    }
+}
@@ -0,0 +1,58 @@
+package org.avro.compactor;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Maps a range of inputs to outputs, splitting the range in half until it is small enough to run in one thread
+ *    - Each result is stored at the index of its input, so order is kept
+ *    - A failure names the index of the input that caused it
+ *    - The inputs are read by index, so they must be a RandomAccess list
+ *    - Each schema is one item, however wide. Its bits depend on everything written before them, the back-references
+ *      and the offsets of an OFFSET_INDEX, so its fields can not be encoded apart and joined
+ */
+class BulkTask<I, O> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int THRESHOLD = 64;
+
+    interface Mapping<I, O> {
+        O apply(I input);
+    }
+
+    private final Mapping<I, O> mapping;
+    private final List<I> inputs;
+    private final O[] outputs;
+    private final int from;
+    private final int to;
+
+    BulkTask(final Mapping<I, O> mapping, final List<I> inputs, final O[] outputs) {
+        this(mapping, inputs, outputs, 0, inputs.size());
+    }
+
+    private BulkTask(final Mapping<I, O> mapping, final List<I> inputs, final O[] outputs, final int from, final int to) {
+        this.mapping = mapping;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                try {
+                    outputs[i] = mapping.apply(inputs.get(i));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Item " + i + ": " + e.getMessage(), e);
+                }
+            }
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        invokeAll(new BulkTask<I, O>(mapping, inputs, outputs, from, middle),
+                new BulkTask<I, O>(mapping, inputs, outputs, middle, to));
+    }
+}
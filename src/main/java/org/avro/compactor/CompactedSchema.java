@@ -0,0 +1,59 @@
+package org.avro.compactor;
+
+import org.apache.avro.SchemaNormalization;
+
+import java.util.Arrays;
+
+/**
+ * Compacted bytes with a 64-bit fingerprint of them, for stores that keep each distinct schema once
+ *    - The fingerprint is Avro's CRC-64 of the compacted bytes, taken once when the schema is encoded
+ *    - Equal and hashed by the fingerprint and the bytes, so it can key a map or a content-addressed store
+ *    - A canonical Compactor gives equal bytes for schemas with the same SchemaFingerprint, see Compactor.isCanonical
+ */
+public final class CompactedSchema {
+
+    private final byte[] bytes;
+    private final long fingerprint;
+
+    CompactedSchema(final byte[] bytes) {
+        this.bytes = bytes;
+        this.fingerprint = SchemaNormalization.fingerprint64(bytes);
+    }
+
+    /**
+     * @param bytes a compacted schema, exactly as encoded. The bytes are copied.
+     */
+    public static CompactedSchema of(final byte[] bytes) {
+        return new CompactedSchema(bytes.clone());
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompactedSchema)) return false;
+        final CompactedSchema that = (CompactedSchema) o;
+        return fingerprint == that.fingerprint && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "CompactedSchema{" + Long.toHexString(fingerprint) + ", " + bytes.length + " bytes}";
+    }
+}
@@ -0,0 +1,822 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.avro.compactor.cache.SchemaInterner;
+import org.avro.compactor.codec.BitBreakdown;
+import org.avro.compactor.codec.BitCategory;
+import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.DictionaryNameCodec;
+import org.avro.compactor.codec.Feature;
+import org.avro.compactor.codec.FeaturesCodec;
+import org.avro.compactor.codec.FieldCodec;
+import org.avro.compactor.codec.HuffmanNameCodec;
+import org.avro.compactor.codec.HuffmanTable;
+import org.avro.compactor.codec.LosslessCodec;
+import org.avro.compactor.codec.NameCodec;
+import org.avro.compactor.codec.NameDictionary;
+import org.avro.compactor.codec.Profile;
+import org.avro.compactor.codec.ProfileCodec;
+import org.avro.compactor.codec.SchemaAnalyzer;
+import org.avro.compactor.codec.VersionCodec;
+import org.avro.compactor.metrics.CompactorListener;
+import org.avro.compactor.metrics.Operation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Encodes and decodes Avro schemas with a chosen set of features
+ *    - Without features the version 1 format is written
+ *    - With features the version 2 format is written, the header holds the feature flags
+ *    - Decoding reads the header, so any Compactor can decode what any other Compactor encoded
+ *
+ * Instances are immutable and can be shared between threads. The codecs hold no per-call state,
+ * each call gets its own BitWriter or BitReader, and writers are reused per thread.
+ * encodeAll and decodeAll spread large inputs over a ForkJoinPool.
+ * With a SchemaInterner decoded schemas share their equal parts and must not be modified.
+ * A CompactorListener is told the time and bits of each encode and decode, see Slf4jReporter.
+ * Schemas compiled by the Builder are encoded and decoded by comparing against precomputed bytes, see CompiledSchema.
+ * Without LOSSLESS the output is canonical, compact gives the bytes with a fingerprint for content-addressed storage.
+ * equal, appendsFields and canRead compare compacted schemas without decoding them, see SchemaComparator.
+ */
+public class Compactor {
+
+    private static final byte VERSION_1 = 1;
+    private static final byte VERSION_2 = 2;
+    // Written by DeltaCompactor
+    static final byte VERSION_DELTA = 3;
+    private static final BitCodec<Byte> VERSION_CODEC = new VersionCodec();
+    private static final BitCodec<Set<Feature>> FEATURES_CODEC = new FeaturesCodec();
+    private static final BitCodec<Profile> PROFILE_CODEC = new ProfileCodec();
+    private static final NameCodec NAME_CODEC = new NameCodec();
+    private static final CompiledSchema[] NOT_COMPILED = new CompiledSchema[0];
+    private static final Set<Feature> NO_FEATURES = EnumSet.noneOf(Feature.class);
+    private static final int CUSTOM_TABLE_BITS = 1;
+    private static final int TABLE_FINGERPRINT_BITS = 32;
+    private static final int DICTIONARY_FINGERPRINT_BITS = 32;
+    // A thread keeps its writer up to this capacity, one huge schema does not pin a huge buffer
+    private static final int MAX_KEPT_WRITER_BYTES = 64 * 1024;
+
+    // Reused per thread so encoding does not allocate a new buffer on every call, see takeWriter
+    private static final ThreadLocal<BitWriter> WRITERS = new ThreadLocal<BitWriter>() {
+        @Override
+        protected BitWriter initialValue() {
+            return new BitWriter();
+        }
+    };
+
+    // Shared by encodeAll/decodeAll, fork/join workers are daemon threads
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    public static final Compactor DEFAULT = builder().build();
+
+    private final Set<Feature> features;
+    // The features written when the profile is left out
+    private final Set<Feature> baseFeatures;
+    private final NameDictionary dictionary;
+    private final HuffmanTable huffmanTable;
+    private final SchemaInterner interner;
+    private final CompactorListener listener;
+    private final ConcurrentMap<CodecKey, FieldCodec> fieldCodecs = new ConcurrentHashMap<CodecKey, FieldCodec>();
+    private final FieldCodec fieldCodec;
+    private final CompiledSchema[] compiled;
+
+    private Compactor(final Set<Feature> features, final NameDictionary dictionary, final HuffmanTable huffmanTable,
+                      final SchemaInterner interner, final CompactorListener listener, final List<Schema> toCompile) {
+        this.features = Collections.unmodifiableSet(features);
+        this.baseFeatures = EnumSet.copyOf(features);
+        this.baseFeatures.remove(Feature.PROFILE);
+        this.dictionary = dictionary;
+        this.huffmanTable = huffmanTable;
+        this.interner = interner;
+        this.listener = listener;
+        this.fieldCodec = fieldCodecFor(baseFeatures, Profile.DEFAULT, huffmanTable);
+        final CompiledSchema[] compiled = new CompiledSchema[toCompile.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(toCompile.get(i));
+        }
+        this.compiled = compiled.length == 0 ? NOT_COMPILED : compiled;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Set<Feature> features() {
+        return features;
+    }
+
+    /**
+     * The compacted bytes of a canonical Compactor only depend on what Avro's Parsing Canonical Form keeps,
+     * plus logical types: schemas with the same SchemaFingerprint are encoded to the same bytes.
+     * Docs, aliases, defaults, sort orders, other properties and namespaces are not written.
+     * Union branch order is kept, data refers to branches by their index.
+     *
+     * @return true unless the Compactor is LOSSLESS
+     */
+    public boolean isCanonical() {
+        return !features.contains(Feature.LOSSLESS);
+    }
+
+    public void validate(final Schema schema) {
+        try {
+            if (features.isEmpty()) {
+                fieldCodec.validate(schema);
+            } else {
+                // References make the schema a graph, encoding visits each named type once
+                final BitWriter writer = takeWriter();
+                try {
+                    writeSchema(schema, writer);
+                } finally {
+                    returnWriter(writer);
+                }
+            }
+        } catch (final RuntimeException e) {
+            listener.failed(Operation.VALIDATE, schema, e);
+            throw e;
+        }
+    }
+
+    public int sizeOf(final Schema schema) {
+        final CompiledSchema compiledSchema = compiledFor(schema);
+        if (compiledSchema != null) {
+            return compiledSchema.size();
+        }
+        return (int) Math.ceil(((double) sizeOfBits(schema)) / 8);
+    }
+
+    private int sizeOfBits(final Schema schema) {
+        if (!features.isEmpty()) {
+            // The size of a back-reference depends on what has been written before it
+            final BitWriter writer = takeWriter();
+            try {
+                return writeSchema(schema, writer).position();
+            } finally {
+                returnWriter(writer);
+            }
+        }
+        int size = 0;
+        size += VERSION_CODEC.sizeOf(VERSION_1);
+        size += fieldCodec.sizeOf(schema);
+        return size;
+    }
+
+    public byte[] encode(final Schema schema) {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(schema);
+        if (compiledSchema != null) {
+            encoded(schema, compiledSchema, start);
+            return compiledSchema.toByteArray();
+        }
+        final BitWriter writer = takeWriter();
+        try {
+            return write(schema, writer).toByteArray();
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Encodes the schema with a 64-bit fingerprint of the bytes, so a store can keep each distinct schema once.
+     * A compiled schema's fingerprint is precomputed.
+     */
+    public CompactedSchema compact(final Schema schema) {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(schema);
+        if (compiledSchema != null) {
+            encoded(schema, compiledSchema, start);
+            return compiledSchema.compacted();
+        }
+        final BitWriter writer = takeWriter();
+        try {
+            return new CompactedSchema(write(schema, writer).toByteArray());
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Encodes the schema straight into the buffer, starting at its position.
+     * The position is advanced past the bytes written.
+     *
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the schema does not fit in the remaining buffer
+     */
+    public int encode(final Schema schema, final ByteBuffer buffer) {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(schema);
+        if (compiledSchema != null) {
+            compiledSchema.writeTo(buffer);
+            encoded(schema, compiledSchema, start);
+            return compiledSchema.size();
+        }
+        final BitWriter writer = takeWriter();
+        try {
+            final int bytesWritten = write(schema, writer.reset(buffer)).flush().bytesWritten();
+            buffer.position(buffer.position() + bytesWritten);
+            return bytesWritten;
+        } finally {
+            // Also lets go of the caller's buffer
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Encodes the schema and writes it to the stream
+     *
+     * @return the number of bytes written
+     */
+    public int encode(final Schema schema, final OutputStream out) throws IOException {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(schema);
+        if (compiledSchema != null) {
+            out.write(compiledSchema.toByteArray());
+            encoded(schema, compiledSchema, start);
+            return compiledSchema.size();
+        }
+        final BitWriter writer = takeWriter();
+        try {
+            write(schema, writer).writeTo(out);
+            return writer.bytesWritten();
+        } finally {
+            returnWriter(writer);
+        }
+    }
+
+    /**
+     * Encodes the schema into a caller's writer, writer.position() gives the bits written afterwards.
+     * Compiled schemas are encoded in full, the precomputed bytes end on a byte boundary.
+     */
+    public void encode(final Schema schema, final BitWriter writer) {
+        write(schema, writer);
+    }
+
+    private BitWriter write(final Schema schema, final BitWriter writer) {
+        if (listener == CompactorListener.NONE) {
+            return writeSchema(schema, writer);
+        }
+        final long start = System.nanoTime();
+        try {
+            writeSchema(schema, writer.tally());
+        } catch (final RuntimeException e) {
+            listener.failed(Operation.ENCODE, schema, e);
+            throw e;
+        }
+        listener.encoded(schema, writer.breakdown(), System.nanoTime() - start);
+        return writer;
+    }
+
+    private BitWriter writeSchema(final Schema schema, final BitWriter writer) {
+        final BitCategory category = writer.enter(BitCategory.HEADER);
+        final Profile profile = features.contains(Feature.PROFILE) ? profileFor(schema) : null;
+        if (profile == null) {
+            writeHeader(baseFeatures, writer);
+            writer.exit(category);
+            writeTree(schema, fieldCodec, writer);
+        } else {
+            writeHeader(features, writer);
+            PROFILE_CODEC.encode(profile, writer);
+            writer.exit(category);
+            writeTree(schema, fieldCodecFor(features, profile, huffmanTable), writer);
+        }
+        return writer;
+    }
+
+    private static void writeTree(final Schema schema, final FieldCodec codec, final BitWriter writer) {
+        if (codec.isLossless()) {
+            LosslessCodec.encode(schema, codec, writer);
+        } else {
+            codec.encode(schema, writer);
+        }
+    }
+
+    private void writeHeader(final Set<Feature> features, final BitWriter writer) {
+        if (features.isEmpty()) {
+            VERSION_CODEC.encode(VERSION_1, writer);
+            return;
+        }
+        VERSION_CODEC.encode(VERSION_2, writer);
+        FEATURES_CODEC.encode(features, writer);
+        if (features.contains(Feature.HUFFMAN_NAMES)) {
+            final boolean custom = !huffmanTable.equals(HuffmanTable.DEFAULT);
+            writer.putBits(custom ? 1 : 0, CUSTOM_TABLE_BITS);
+            if (custom) {
+                writer.putBits(huffmanTable.fingerprint(), TABLE_FINGERPRINT_BITS);
+            }
+        }
+        if (features.contains(Feature.DICTIONARY)) {
+            writer.putBits(dictionary.fingerprint(), DICTIONARY_FINGERPRINT_BITS);
+        }
+    }
+
+    /**
+     * @return the narrowest profile for the schema, or null if it would not pay for its place in the header
+     */
+    private Profile profileFor(final Schema schema) {
+        final SchemaAnalyzer analyzer = SchemaAnalyzer.analyze(schema, features.contains(Feature.DICTIONARY) ? dictionary : null);
+        int headerBits = PROFILE_CODEC.sizeOf(Profile.DEFAULT);
+        if (baseFeatures.isEmpty()) {
+            headerBits += FEATURES_CODEC.sizeOf(features);
+        }
+        int savedBits = analyzer.savedBits();
+        if (features.contains(Feature.HUFFMAN_NAMES)) {
+            savedBits -= analyzer.savedCharacterBits();
+        }
+        return savedBits > headerBits ? analyzer.profile() : null;
+    }
+
+    public Schema decode(final byte[] bytes) {
+        final long start = startTime();
+        for (final CompiledSchema compiledSchema : compiled) {
+            if (compiledSchema.matches(bytes, 0)) {
+                return decoded(compiledSchema, start);
+            }
+        }
+        return decode(new BitReader(bytes));
+    }
+
+    /**
+     * Decodes the schema starting at the buffer's position without copying it out of the buffer.
+     * The position is advanced past the bytes consumed, so packed schemas can be read one after another.
+     */
+    public Schema decode(final ByteBuffer buffer) {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(buffer, buffer.position());
+        if (compiledSchema != null) {
+            buffer.position(buffer.position() + compiledSchema.size());
+            return decoded(compiledSchema, start);
+        }
+        final BitReader reader = new BitReader(buffer, buffer.position());
+        final Schema schema = decode(reader);
+        buffer.position(buffer.position() + reader.bytesRead());
+        return schema;
+    }
+
+    /**
+     * Decodes the schema starting at an absolute offset without copying it out of the buffer.
+     * The buffer's position is not changed.
+     */
+    public Schema decode(final ByteBuffer buffer, final int offset) {
+        final long start = startTime();
+        final CompiledSchema compiledSchema = compiledFor(buffer, offset);
+        if (compiledSchema != null) {
+            return decoded(compiledSchema, start);
+        }
+        return decode(new BitReader(buffer, offset));
+    }
+
+    /**
+     * Decodes a schema from a reader, reader.bytesRead() gives the bytes consumed afterwards.
+     * Compiled schemas are not checked, the reader may not start on a byte boundary.
+     */
+    public Schema decode(final BitReader reader) {
+        if (listener == CompactorListener.NONE) {
+            return read(reader);
+        }
+        final long start = System.nanoTime();
+        final int position = reader.position();
+        final Schema schema;
+        try {
+            schema = read(reader);
+        } catch (final RuntimeException e) {
+            listener.failed(Operation.DECODE, null, e);
+            throw e;
+        }
+        listener.decoded(schema, reader.position() - position, System.nanoTime() - start);
+        return schema;
+    }
+
+    private Schema read(final BitReader reader) {
+        final FieldCodec codec = readHeader(reader);
+        return codec.isLossless() ? LosslessCodec.decode(codec, reader) : codec.decode(reader);
+    }
+
+    /**
+     * Encodes and decodes the schema once, so a known schema can later be encoded and decoded by comparing bytes.
+     * The Builder compiles schemas into the Compactor, or keep the CompiledSchema and call it directly.
+     */
+    public CompiledSchema compile(final Schema schema) {
+        final BitWriter writer = takeWriter();
+        final byte[] bytes;
+        final BitBreakdown breakdown;
+        try {
+            bytes = writeSchema(schema, writer.tally()).toByteArray();
+            breakdown = writer.breakdown();
+        } finally {
+            returnWriter(writer);
+        }
+        return new CompiledSchema(schema, read(new BitReader(bytes)), features.contains(Feature.LOSSLESS), bytes, breakdown);
+    }
+
+    private CompiledSchema compiledFor(final Schema schema) {
+        for (final CompiledSchema compiledSchema : compiled) {
+            if (compiledSchema.matches(schema)) {
+                return compiledSchema;
+            }
+        }
+        return null;
+    }
+
+    private CompiledSchema compiledFor(final ByteBuffer buffer, final int offset) {
+        for (final CompiledSchema compiledSchema : compiled) {
+            if (compiledSchema.matches(buffer, offset)) {
+                return compiledSchema;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes the thread's writer off the thread while it is in use,
+     * so a listener that encodes on the same thread gets a writer of its own
+     */
+    private static BitWriter takeWriter() {
+        final BitWriter writer = WRITERS.get();
+        if (writer == null) {
+            return new BitWriter();
+        }
+        WRITERS.set(null);
+        return writer.reset();
+    }
+
+    private static void returnWriter(final BitWriter writer) {
+        writer.reset();
+        if (writer.capacity() <= MAX_KEPT_WRITER_BYTES) {
+            WRITERS.set(writer);
+        }
+    }
+
+    private long startTime() {
+        return listener == CompactorListener.NONE ? 0 : System.nanoTime();
+    }
+
+    private void encoded(final Schema schema, final CompiledSchema compiledSchema, final long start) {
+        if (listener != CompactorListener.NONE) {
+            listener.encoded(schema, compiledSchema.breakdown(), System.nanoTime() - start);
+        }
+    }
+
+    private Schema decoded(final CompiledSchema compiledSchema, final long start) {
+        if (listener != CompactorListener.NONE) {
+            listener.decoded(compiledSchema.schema(), compiledSchema.size() * Byte.SIZE, System.nanoTime() - start);
+        }
+        return compiledSchema.schema();
+    }
+
+    /**
+     * Encodes every schema in parallel on a shared ForkJoinPool
+     *
+     * @return the encoded schemas in the same order as the input
+     */
+    public List<byte[]> encodeAll(final Iterable<Schema> schemas) {
+        return encodeAll(schemas, POOL);
+    }
+
+    public List<byte[]> encodeAll(final Iterable<Schema> schemas, final ForkJoinPool pool) {
+        final List<Schema> inputs = toList(schemas);
+        final byte[][] outputs = new byte[inputs.size()][];
+        pool.invoke(new BulkTask<Schema, byte[]>(new BulkTask.Mapping<Schema, byte[]>() {
+            @Override
+            public byte[] apply(final Schema schema) {
+                return encode(schema);
+            }
+        }, inputs, outputs));
+        return Arrays.asList(outputs);
+    }
+
+    /**
+     * Decodes every schema in parallel on a shared ForkJoinPool
+     *
+     * @return the decoded schemas in the same order as the input
+     */
+    public List<Schema> decodeAll(final Iterable<byte[]> schemas) {
+        return decodeAll(schemas, POOL);
+    }
+
+    public List<Schema> decodeAll(final Iterable<byte[]> schemas, final ForkJoinPool pool) {
+        final List<byte[]> inputs = toList(schemas);
+        final Schema[] outputs = new Schema[inputs.size()];
+        pool.invoke(new BulkTask<byte[], Schema>(new BulkTask.Mapping<byte[], Schema>() {
+            @Override
+            public Schema apply(final byte[] bytes) {
+                return decode(bytes);
+            }
+        }, inputs, outputs));
+        return Arrays.asList(outputs);
+    }
+
+    /**
+     * @return the items as a list that is cheap to read by index, copied unless it already is one
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> toList(final Iterable<T> items) {
+        if (items instanceof List && items instanceof RandomAccess) {
+            return (List<T>) items;
+        }
+        final List<T> list = items instanceof Collection ? new ArrayList<T>(((Collection<T>) items).size()) : new ArrayList<T>();
+        for (final T item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Opens a lazy view over a compacted schema, see SchemaView
+     */
+    public SchemaView view(final byte[] bytes) {
+        return view(ByteBuffer.wrap(bytes), 0);
+    }
+
+    /**
+     * Opens a lazy view over a compacted schema at an absolute offset, see SchemaView.
+     * The buffer is read in place and its position is not changed.
+     */
+    public SchemaView view(final ByteBuffer buffer, final int offset) {
+        final BitReader reader = new BitReader(buffer, offset);
+        final FieldCodec codec = readHeader(reader);
+        return new SchemaView(codec, buffer, offset, reader.position());
+    }
+
+    /**
+     * Compares two compacted schemas as decode(a).equals(decode(b)) would.
+     * Bytes written with the same header are compared as bytes, the encoding of a schema is deterministic.
+     */
+    public boolean equal(final byte[] a, final byte[] b) {
+        if (Arrays.equals(a, b)) {
+            return true;
+        }
+        final BitReader aReader = new BitReader(a);
+        final BitReader bReader = new BitReader(b);
+        final FieldCodec aCodec = readHeader(aReader);
+        final FieldCodec bCodec = readHeader(bReader);
+        if (aCodec == bCodec && !aCodec.isLossless()) {
+            return false;
+        }
+        if (!aCodec.isReadableInParts() || !bCodec.isReadableInParts()) {
+            return decode(a).equals(decode(b));
+        }
+        return SchemaComparator.equal(viewAfterHeader(aCodec, a, aReader), viewAfterHeader(bCodec, b, bReader));
+    }
+
+    /**
+     * @return true if the extended schema is the base record with zero or more fields added at the end
+     */
+    public boolean appendsFields(final byte[] base, final byte[] extended) {
+        final BitReader baseReader = new BitReader(base);
+        final BitReader extendedReader = new BitReader(extended);
+        final FieldCodec baseCodec = readHeader(baseReader);
+        final FieldCodec extendedCodec = readHeader(extendedReader);
+        if (!baseCodec.isReadableInParts() || !extendedCodec.isReadableInParts()) {
+            return SchemaComparator.appendsFields(decode(base), decode(extended));
+        }
+        return SchemaComparator.appendsFields(viewAfterHeader(baseCodec, base, baseReader), viewAfterHeader(extendedCodec, extended, extendedReader));
+    }
+
+    /**
+     * Checks whether data written with the writer schema can be read with the reader schema, like Avro's SchemaCompatibility.
+     * Decoded schemas have no defaults, so every reader field must be written.
+     */
+    public boolean canRead(final byte[] reader, final byte[] writer) {
+        if (Arrays.equals(reader, writer)) {
+            return true;
+        }
+        final BitReader readerBits = new BitReader(reader);
+        final BitReader writerBits = new BitReader(writer);
+        final FieldCodec readerCodec = readHeader(readerBits);
+        final FieldCodec writerCodec = readHeader(writerBits);
+        if (!readerCodec.isReadableInParts() || !writerCodec.isReadableInParts()) {
+            return SchemaCompatibility.checkReaderWriterCompatibility(decode(reader), decode(writer)).getType()
+                    == SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE;
+        }
+        return SchemaComparator.canRead(viewAfterHeader(readerCodec, reader, readerBits), viewAfterHeader(writerCodec, writer, writerBits));
+    }
+
+    private static SchemaView viewAfterHeader(final FieldCodec codec, final byte[] bytes, final BitReader reader) {
+        return new SchemaView(codec, ByteBuffer.wrap(bytes), 0, reader.position());
+    }
+
+    private FieldCodec readHeader(final BitReader reader) {
+        final byte version = VERSION_CODEC.decode(reader);
+        switch (version) {
+            case VERSION_1:
+                return fieldCodecFor(NO_FEATURES, Profile.DEFAULT, null);
+            case VERSION_2:
+                final Set<Feature> features = FEATURES_CODEC.decode(reader);
+                final HuffmanTable table = features.contains(Feature.HUFFMAN_NAMES) ? readHuffmanTable(reader) : null;
+                if (features.contains(Feature.DICTIONARY)) {
+                    checkDictionary(reader);
+                }
+                final Profile profile = features.contains(Feature.PROFILE) ? PROFILE_CODEC.decode(reader) : Profile.DEFAULT;
+                return fieldCodecFor(features, profile, table);
+            case VERSION_DELTA:
+                throw new IllegalArgumentException("Schema was encoded as a delta, decode it with the DeltaCompactor holding its base");
+            default:
+                throw new IllegalArgumentException("Unsupported version " + version);
+        }
+    }
+
+    private HuffmanTable readHuffmanTable(final BitReader reader) {
+        if (reader.getBits(CUSTOM_TABLE_BITS) == 0) {
+            return HuffmanTable.DEFAULT;
+        }
+        final int fingerprint = reader.getBits(TABLE_FINGERPRINT_BITS);
+        if (huffmanTable == null || huffmanTable.fingerprint() != fingerprint)
+            throw new IllegalArgumentException("Schema was encoded with a custom HuffmanTable, use a Compactor built with the same table");
+        return huffmanTable;
+    }
+
+    private void checkDictionary(final BitReader reader) {
+        final int fingerprint = reader.getBits(DICTIONARY_FINGERPRINT_BITS);
+        if (dictionary == null || dictionary.fingerprint() != fingerprint)
+            throw new IllegalArgumentException("Schema was encoded with a " + Feature.DICTIONARY + ", use a Compactor built with the same NameDictionary");
+    }
+
+    private FieldCodec fieldCodecFor(final Set<Feature> features, final Profile widths, final HuffmanTable table) {
+        final Profile profile = widths.withVariableLength(features.contains(Feature.VARIABLE_LENGTH));
+        final HuffmanTable huffmanTable = features.contains(Feature.HUFFMAN_NAMES) ? table : null;
+        final CodecKey key = new CodecKey(features, profile, huffmanTable);
+        final FieldCodec fieldCodec = fieldCodecs.get(key);
+        if (fieldCodec != null) {
+            return fieldCodec;
+        }
+        final NameCodec nameCodec = nameCodecFor(features, profile, huffmanTable);
+        final FieldCodec created = new FieldCodec(nameCodec, nameCodec, features, profile, interner);
+        final FieldCodec existing = fieldCodecs.putIfAbsent(key, created);
+        return existing == null ? created : existing;
+    }
+
+    private NameCodec nameCodecFor(final Set<Feature> features, final Profile profile, final HuffmanTable table) {
+        final NameCodec spelledCodec;
+        if (table != null) {
+            spelledCodec = new HuffmanNameCodec(table, profile);
+        } else {
+            spelledCodec = profile.isDefault() ? NAME_CODEC : new NameCodec(profile);
+        }
+        if (features.contains(Feature.DICTIONARY)) {
+            if (dictionary == null)
+                throw new IllegalArgumentException("Schema was encoded with a " + Feature.DICTIONARY + ", use a Compactor built with the same NameDictionary");
+            return new DictionaryNameCodec(dictionary, spelledCodec);
+        }
+        return spelledCodec;
+    }
+
+    private static final class CodecKey {
+
+        private final Set<Feature> features;
+        private final Profile profile;
+        private final HuffmanTable table;
+
+        CodecKey(final Set<Feature> features, final Profile profile, final HuffmanTable table) {
+            this.features = features;
+            this.profile = profile;
+            this.table = table;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof CodecKey)) {
+                return false;
+            }
+            final CodecKey other = (CodecKey) o;
+            return features.equals(other.features) && profile.equals(other.profile)
+                    && (table == null ? other.table == null : table.equals(other.table));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = features.hashCode();
+            result = 31 * result + profile.hashCode();
+            result = 31 * result + (table == null ? 0 : table.hashCode());
+            return result;
+        }
+    }
+
+    public static class Builder {
+
+        private final Set<Feature> features = EnumSet.noneOf(Feature.class);
+        private NameDictionary dictionary;
+        private HuffmanTable huffmanTable;
+        private SchemaInterner interner;
+        private CompactorListener listener = CompactorListener.NONE;
+        private final List<Schema> compiled = new ArrayList<Schema>();
+
+        private Builder() {}
+
+        /**
+         * Write named types once and refer back to them, required for recursive schemas
+         */
+        public Builder namedTypeReferences(final boolean enabled) {
+            return feature(Feature.NAMED_TYPE_REFERENCES, enabled);
+        }
+
+        /**
+         * Prefix record and union bodies with their length so a SchemaView can jump over them
+         */
+        public Builder offsetIndex(final boolean enabled) {
+            return feature(Feature.OFFSET_INDEX, enabled);
+        }
+
+        /**
+         * Write names and symbols found in the dictionary as a short index, readers need the same dictionary
+         */
+        public Builder dictionary(final NameDictionary dictionary) {
+            this.dictionary = dictionary;
+            return feature(Feature.DICTIONARY, dictionary != null);
+        }
+
+        /**
+         * Escape counts and lengths that do not fit their width, so schemas of any size can be encoded
+         */
+        public Builder variableLength(final boolean enabled) {
+            return feature(Feature.VARIABLE_LENGTH, enabled);
+        }
+
+        /**
+         * Write name characters with the built-in HuffmanTable
+         */
+        public Builder huffmanNames(final boolean enabled) {
+            return feature(Feature.HUFFMAN_NAMES, enabled);
+        }
+
+        /**
+         * Write name characters with a custom HuffmanTable, readers need the same table
+         */
+        public Builder huffmanTable(final HuffmanTable huffmanTable) {
+            this.huffmanTable = huffmanTable;
+            return feature(Feature.HUFFMAN_NAMES, huffmanTable != null);
+        }
+
+        /**
+         * Keep namespaces, docs, aliases, field order, defaults and properties so decoding gives back the same schema
+         */
+        public Builder lossless(final boolean enabled) {
+            return feature(Feature.LOSSLESS, enabled);
+        }
+
+        /**
+         * Analyze each schema and write the narrowest Profile that fits it, when that makes the schema smaller
+         */
+        public Builder profile(final boolean enabled) {
+            return feature(Feature.PROFILE, enabled);
+        }
+
+        /**
+         * Share equal parts of decoded schemas through the interner, usually one per process.
+         * Not a feature, encoding is unchanged and lossless schemas are not interned.
+         */
+        public Builder interner(final SchemaInterner interner) {
+            this.interner = interner;
+            return this;
+        }
+
+        /**
+         * Report the time and bits of each encode and decode, and each failure, to the listener.
+         * Not a feature, encoding is unchanged. Null turns reporting off.
+         */
+        public Builder listener(final CompactorListener listener) {
+            this.listener = listener != null ? listener : CompactorListener.NONE;
+            return this;
+        }
+
+        /**
+         * Encode the schemas once when the Compactor is built, see CompiledSchema.
+         * For the few schemas on a hot path, every encode and decode checks them first.
+         */
+        public Builder compile(final Schema... schemas) {
+            compiled.addAll(Arrays.asList(schemas));
+            return this;
+        }
+
+        public Builder feature(final Feature feature, final boolean enabled) {
+            if (enabled) {
+                features.add(feature);
+            } else {
+                features.remove(feature);
+            }
+            return this;
+        }
+
+        public Compactor build() {
+            if (features.contains(Feature.DICTIONARY) && dictionary == null)
+                throw new IllegalStateException(Feature.DICTIONARY + " requires a NameDictionary");
+            final HuffmanTable table = huffmanTable != null ? huffmanTable : HuffmanTable.DEFAULT;
+            return new Compactor(EnumSet.copyOf(features), dictionary, features.contains(Feature.HUFFMAN_NAMES) ? table : null, interner, listener,
+                new ArrayList<Schema>(compiled));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.BitBreakdown;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One known schema encoded ahead of time by a Compactor, see Compactor.compile
+ *    - Encoding a matching schema copies the precomputed bytes instead of walking the codecs
+ *    - Decoding bytes that start with the precomputed bytes returns the decoded schema without reading them,
+ *      the format is prefix free so a full decode would read exactly those bytes
+ *    - A schema matches if it is the same instance or equal to the compiled one.
+ *      A lossless Compactor also compares the json, since Schema.equals ignores docs and aliases
+ *
+ * The decoded schema is shared between callers and must not be modified.
+ */
+public class CompiledSchema {
+
+    private final Schema source;
+    private final Schema schema;
+    private final String json;
+    private final byte[] bytes;
+    private final BitBreakdown breakdown;
+    private final CompactedSchema compacted;
+
+    CompiledSchema(final Schema source, final Schema schema, final boolean lossless, final byte[] bytes, final BitBreakdown breakdown) {
+        this.source = source;
+        this.schema = schema;
+        this.json = lossless ? source.toString() : null;
+        this.bytes = bytes;
+        this.breakdown = breakdown;
+        this.compacted = new CompactedSchema(bytes);
+    }
+
+    /**
+     * @return the schema given to the decoder, as Compactor.decode would build it
+     */
+    public Schema schema() {
+        return schema;
+    }
+
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * @return the precomputed bytes with their fingerprint
+     */
+    public CompactedSchema compacted() {
+        return compacted;
+    }
+
+    /**
+     * @return the bits of the precomputed bytes by what they were spent on
+     */
+    public BitBreakdown breakdown() {
+        return breakdown;
+    }
+
+    public boolean matches(final Schema other) {
+        if (other == source || other == schema) {
+            return true;
+        }
+        if (json != null) {
+            return source.equals(other) && json.equals(other.toString());
+        }
+        return source.equals(other);
+    }
+
+    /**
+     * @return true if the bytes from the offset start with the precomputed bytes
+     */
+    public boolean matches(final byte[] other, final int offset) {
+        if (other.length - offset < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (other[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the buffer from the absolute offset starts with the precomputed bytes, the buffer is not changed
+     */
+    public boolean matches(final ByteBuffer other, final int offset) {
+        if (other.limit() - offset < bytes.length) {
+            return false;
+        }
+        if (other.hasArray()) {
+            return matches(other.array(), other.arrayOffset() + offset);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (other.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the precomputed bytes if the schema matches, otherwise null
+     */
+    public byte[] encode(final Schema other) {
+        return matches(other) ? bytes.clone() : null;
+    }
+
+    /**
+     * @return the decoded schema if the bytes start with the precomputed bytes, otherwise null
+     */
+    public Schema decode(final byte[] other) {
+        return matches(other, 0) ? schema : null;
+    }
+
+    /**
+     * Writes the precomputed bytes at the buffer's position and advances it
+     *
+     * @throws java.nio.BufferOverflowException if they do not fit in the remaining buffer
+     */
+    void writeTo(final ByteBuffer buffer) {
+        buffer.put(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledSchema{" + schema.getType().getName() + " " + schema.getName() + ", " + bytes.length + " bytes}";
+    }
+}
@@ -0,0 +1,111 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.cache.ByteArrayKey;
+import org.avro.compactor.cache.CacheStats;
+import org.avro.compactor.cache.LruCache;
+import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.DeltaCodec;
+import org.avro.compactor.codec.VersionCodec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Encodes schemas as a small patch against an earlier version, for schemas that change a step at a time
+ *    - A delta is the version 3 header, the 64-bit fingerprint of the base's full json and the DeltaCodec edits
+ *    - Bases are registered by fingerprint, decode looks the base up and applies the patch to it.
+ *      The full json keeps apart bases that only differ in docs or defaults, which the patch keeps too
+ *    - The unchanged parts of the base are shared with the decoded schema, and decoded deltas are cached
+ *      by their bytes, so a delta repeated on every message is decoded once
+ *
+ * Decoded schemas are shared between callers and must not be modified. Instances are thread-safe.
+ */
+public class DeltaCompactor {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final BitCodec<Byte> VERSION_CODEC = new VersionCodec();
+    private static final DeltaCodec DELTA_CODEC = new DeltaCodec();
+    private static final int FINGERPRINT_BITS = 64;
+
+    private final ConcurrentMap<Long, Schema> bases = new ConcurrentHashMap<Long, Schema>();
+    private final LruCache<ByteArrayKey, Schema> decodeCache;
+
+    public DeltaCompactor() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the number of decoded deltas to keep
+     */
+    public DeltaCompactor(final int maxSize) {
+        this.decodeCache = new LruCache<ByteArrayKey, Schema>(maxSize);
+    }
+
+    /**
+     * Makes the schema available as a base to decode against
+     *
+     * @return its fingerprint
+     */
+    public long register(final Schema base) {
+        final long fingerprint = SchemaFingerprint.ofJson(base);
+        bases.putIfAbsent(fingerprint, base);
+        return fingerprint;
+    }
+
+    /**
+     * @return the registered base with the fingerprint, or null if there is none
+     */
+    public Schema base(final long fingerprint) {
+        return bases.get(fingerprint);
+    }
+
+    /**
+     * Encodes the schema as a patch against the base, the base is registered
+     */
+    public byte[] encode(final Schema base, final Schema schema) {
+        final BitWriter writer = new BitWriter();
+        VERSION_CODEC.encode(Compactor.VERSION_DELTA, writer);
+        writer.putBits(register(base), FINGERPRINT_BITS);
+        DELTA_CODEC.encode(base, schema, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the delta's base has not been registered
+     */
+    public Schema decode(final byte[] bytes) {
+        final ByteArrayKey key = ByteArrayKey.wrap(bytes);
+        final Schema cached = decodeCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final BitReader reader = new BitReader(bytes);
+        final long fingerprint = readFingerprint(reader);
+        final Schema base = bases.get(fingerprint);
+        if (base == null)
+            throw new IllegalArgumentException("Delta base schema is not registered. Found fingerprint " + Long.toHexString(fingerprint));
+        return decodeCache.putIfAbsent(key.copy(), DELTA_CODEC.decode(base, reader));
+    }
+
+    /**
+     * @return the fingerprint of the base the delta was encoded against
+     */
+    public static long baseFingerprint(final byte[] bytes) {
+        return readFingerprint(new BitReader(bytes));
+    }
+
+    private static long readFingerprint(final BitReader reader) {
+        final byte version = VERSION_CODEC.decode(reader);
+        if (version != Compactor.VERSION_DELTA)
+            throw new IllegalArgumentException("Not a delta, decode it with a Compactor. Found version " + version);
+        return reader.getLong(FINGERPRINT_BITS);
+    }
+
+    public CacheStats decodeStats() {
+        return decodeCache.stats();
+    }
+}
@@ -0,0 +1,62 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.NameDictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Many schemas encoded against one shared NameDictionary
+ *    - The dictionary holds the names and symbols used by more than one schema
+ *    - Store dictionary().toByteArray() once next to each schema's bytes, readers load the dictionary once
+ */
+public class SchemaBatch {
+
+    private final NameDictionary dictionary;
+    private final List<byte[]> schemas;
+
+    public SchemaBatch(final NameDictionary dictionary, final List<byte[]> schemas) {
+        this.dictionary = dictionary;
+        this.schemas = Collections.unmodifiableList(new ArrayList<byte[]>(schemas));
+    }
+
+    /**
+     * Builds a dictionary over the schemas and encodes each one against it, in order, in parallel.
+     * The schemas are read once, so any Iterable works
+     */
+    public static SchemaBatch encode(final Iterable<Schema> schemas) {
+        final List<Schema> list = Compactor.toList(schemas);
+        final NameDictionary dictionary = NameDictionary.build(list);
+        final Compactor compactor = Compactor.builder().dictionary(dictionary).build();
+        return new SchemaBatch(dictionary, compactor.encodeAll(list));
+    }
+
+    public static List<Schema> decode(final NameDictionary dictionary, final Iterable<byte[]> schemas) {
+        return Compactor.builder().dictionary(dictionary).build().decodeAll(schemas);
+    }
+
+    public List<Schema> decode() {
+        return decode(dictionary, schemas);
+    }
+
+    public NameDictionary dictionary() {
+        return dictionary;
+    }
+
+    public List<byte[]> schemas() {
+        return schemas;
+    }
+
+    /**
+     * @return the size of the dictionary plus every encoded schema
+     */
+    public int totalSize() {
+        int size = dictionary.toByteArray().length;
+        for (final byte[] bytes : schemas) {
+            size += bytes.length;
+        }
+        return size;
+    }
+}
@@ -1,52 +1,91 @@
 package org.avro.compactor;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
-import org.avro.compactor.codec.BitCodec;
-import org.avro.compactor.codec.FieldCodec;
-import org.avro.compactor.codec.NameCodec;
-import org.avro.compactor.codec.VersionCodec;
+import org.avro.compactor.codec.NameDictionary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
- * TODO: autodetect compatibility and set feature flags
- * - example: If all enum symbols are all caps and alpha (set higher compaction rule)
- * - example: If field names are only 32 characters long (set higher compaction rule)
+ * Encodes and decodes Avro schemas with the default Compactor
+ *    - Use Compactor.builder() to enable optional features
+ *    - Compactor.builder().profile(true) detects the narrowest widths each schema needs, see SchemaAnalyzer
+ *    - Compactor.builder().listener(new Slf4jReporter()) reports latencies, bits and failures, the default reports nothing
  */
 public class SchemaCompactor {
 
-    private static byte CURRENT_VERSION = 1;
-    private static BitCodec<Byte> VERSION_CODEC = new VersionCodec();
-    private static NameCodec NAME_CODEC = new NameCodec();
-    private static FieldCodec FIELD_CODEC = new FieldCodec(NAME_CODEC, NAME_CODEC);
-
     public static void validate(final Schema schema) {
-        FIELD_CODEC.validate(schema);
+        Compactor.DEFAULT.validate(schema);
     }
 
     public static int sizeOf(final Schema schema) {
-        return (int) Math.ceil(((double) sizeOfBits(schema)) / 8);
+        return Compactor.DEFAULT.sizeOf(schema);
     }
 
-    private static int sizeOfBits(final Schema schema) {
-        validate(schema);
-        int size = 0;
-        size += VERSION_CODEC.sizeOf(CURRENT_VERSION);
-        size += FIELD_CODEC.sizeOf(schema);
-        return size;
+    public static byte[] encode(final Schema schema) {
+        return Compactor.DEFAULT.encode(schema);
     }
 
-    public static byte[] encode(final Schema schema) {
-        validate(schema);
-        final BitBuffer buffer = BitBuffer.allocate(sizeOfBits(schema));
-        VERSION_CODEC.encode(CURRENT_VERSION, buffer);
-        FIELD_CODEC.encode(schema, buffer);
-        return buffer.asByteArray();
+    public static CompactedSchema compact(final Schema schema) {
+        return Compactor.DEFAULT.compact(schema);
+    }
+
+    public static int encode(final Schema schema, final ByteBuffer buffer) {
+        return Compactor.DEFAULT.encode(schema, buffer);
+    }
+
+    public static int encode(final Schema schema, final OutputStream out) throws IOException {
+        return Compactor.DEFAULT.encode(schema, out);
     }
 
     public static Schema decode(final byte[] bytes) {
-        final BitBuffer buffer = BitBuffer.wrap(bytes);
-        final byte version = VERSION_CODEC.decode(buffer); // TODO: handle old versions
-        return FIELD_CODEC.decode(buffer);
+        return Compactor.DEFAULT.decode(bytes);
+    }
+
+    public static Schema decode(final ByteBuffer buffer) {
+        return Compactor.DEFAULT.decode(buffer);
+    }
+
+    public static Schema decode(final ByteBuffer buffer, final int offset) {
+        return Compactor.DEFAULT.decode(buffer, offset);
+    }
+
+    public static List<byte[]> encodeAll(final Iterable<Schema> schemas) {
+        return Compactor.DEFAULT.encodeAll(schemas);
+    }
+
+    public static List<Schema> decodeAll(final Iterable<byte[]> schemas) {
+        return Compactor.DEFAULT.decodeAll(schemas);
+    }
+
+    public static SchemaBatch encodeBatch(final Iterable<Schema> schemas) {
+        return SchemaBatch.encode(schemas);
+    }
+
+    public static List<Schema> decodeBatch(final NameDictionary dictionary, final Iterable<byte[]> schemas) {
+        return SchemaBatch.decode(dictionary, schemas);
+    }
+
+    public static boolean equal(final byte[] a, final byte[] b) {
+        return Compactor.DEFAULT.equal(a, b);
+    }
+
+    public static boolean appendsFields(final byte[] base, final byte[] extended) {
+        return Compactor.DEFAULT.appendsFields(base, extended);
+    }
+
+    public static boolean canRead(final byte[] reader, final byte[] writer) {
+        return Compactor.DEFAULT.canRead(reader, writer);
+    }
+
+    public static SchemaView view(final byte[] bytes) {
+        return Compactor.DEFAULT.view(bytes);
+    }
+
+    public static SchemaView view(final ByteBuffer buffer, final int offset) {
+        return Compactor.DEFAULT.view(buffer, offset);
     }
 
 
@@ -0,0 +1,210 @@
+package org.avro.compactor;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.FieldCodec;
+import org.avro.compactor.codec.field.EnumCodec;
+import org.avro.compactor.codec.field.RecordCodec;
+
+import java.util.List;
+
+/**
+ * Compares compacted schemas without building Schemas
+ *    - equal and appendsFields read both bit streams once, side by side, and stop at the first difference
+ *    - canRead matches fields by name and tries union branches in turn, so it walks two SchemaViews instead
+ *    - Each side is read with the codecs from its own header, so schemas written with different features compare
+ *    - Named types are compared by name without namespace, the compacted format does not keep it
+ *    - canRead follows the SchemaCompatibility of the Avro version in use, for the parts the compacted format keeps.
+ *      Numbers are promoted, string and bytes are not. Fields have no defaults, so a reader field the writer lacks fails
+ *    - Schemas that can not be read in parts are compared as decoded Schemas, see Compactor
+ */
+final class SchemaComparator {
+
+    private SchemaComparator() {}
+
+    /**
+     * @return true if the views decode to equal schemas
+     */
+    static boolean equal(final SchemaView a, final SchemaView b) {
+        return equal(a.fieldCodec(), a.reader(), b.fieldCodec(), b.reader());
+    }
+
+    /**
+     * Reads a part of each schema, both readers end up after their part when the parts are equal
+     */
+    private static boolean equal(final FieldCodec aCodec, final BitReader a, final FieldCodec bCodec, final BitReader b) {
+        if (!sameLogicalType(aCodec.decodeLogicalType(a), bCodec.decodeLogicalType(b))) {
+            return false;
+        }
+        final Type type = aCodec.decodeType(a);
+        if (type != bCodec.decodeType(b)) {
+            return false;
+        }
+        switch (type) {
+            case RECORD: {
+                final RecordCodec aRecord = aCodec.recordCodec();
+                final RecordCodec bRecord = bCodec.recordCodec();
+                if (!aRecord.decodeName(a).equals(bRecord.decodeName(b))) {
+                    return false;
+                }
+                final int fieldCount = aRecord.decodeFieldCount(a);
+                if (fieldCount != bRecord.decodeFieldCount(b)) {
+                    return false;
+                }
+                return equalFields(aCodec, a, bCodec, b, fieldCount);
+            }
+            case ENUM: {
+                final EnumCodec aEnum = aCodec.enumCodec();
+                final EnumCodec bEnum = bCodec.enumCodec();
+                if (!aEnum.decodeName(a).equals(bEnum.decodeName(b))) {
+                    return false;
+                }
+                final int symbolCount = aEnum.decodeSymbolCount(a);
+                if (symbolCount != bEnum.decodeSymbolCount(b)) {
+                    return false;
+                }
+                for (int i = 0; i < symbolCount; i++) {
+                    if (!aEnum.decodeSymbol(a).equals(bEnum.decodeSymbol(b))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case FIXED:
+                return aCodec.fixedCodec().decodeName(a).equals(bCodec.fixedCodec().decodeName(b))
+                    && aCodec.fixedCodec().decodeSize(a) == bCodec.fixedCodec().decodeSize(b);
+            case UNION: {
+                final int typeCount = aCodec.unionCodec().decodeTypeCount(a);
+                if (typeCount != bCodec.unionCodec().decodeTypeCount(b)) {
+                    return false;
+                }
+                for (int i = 0; i < typeCount; i++) {
+                    if (!equal(aCodec, a, bCodec, b)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case ARRAY:
+            case MAP:
+                return equal(aCodec, a, bCodec, b);
+            default:
+                return true;
+        }
+    }
+
+    private static boolean equalFields(final FieldCodec aCodec, final BitReader a, final FieldCodec bCodec, final BitReader b,
+                                       final int fieldCount) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (!aCodec.recordCodec().decodeFieldName(a).equals(bCodec.recordCodec().decodeFieldName(b)) || !equal(aCodec, a, bCodec, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if both are records with the same name and the extended record starts with the base record's fields
+     */
+    static boolean appendsFields(final SchemaView base, final SchemaView extended) {
+        if (base.getType() != Type.RECORD || extended.getType() != Type.RECORD
+                || !sameLogicalType(base.getLogicalType(), extended.getLogicalType())
+                || !base.getName().equals(extended.getName()) || base.getFieldCount() > extended.getFieldCount()) {
+            return false;
+        }
+        return equalFields(base.fieldCodec(), base.bodyReader(), extended.fieldCodec(), extended.bodyReader(), base.getFieldCount());
+    }
+
+    static boolean appendsFields(final Schema base, final Schema extended) {
+        if (base.getType() != Type.RECORD || extended.getType() != Type.RECORD
+                || !base.getName().equals(extended.getName()) || base.getFields().size() > extended.getFields().size()) {
+            return false;
+        }
+        final List<Field> extendedFields = extended.getFields();
+        for (final Field field : base.getFields()) {
+            final Field other = extendedFields.get(field.pos());
+            if (!field.name().equals(other.name()) || !field.schema().equals(other.schema())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if data written with the writer schema can be read with the reader schema
+     */
+    static boolean canRead(final SchemaView reader, final SchemaView writer) {
+        if (writer.getType() == Type.UNION) {
+            // Any branch may have been written
+            for (final SchemaView branch : writer.getTypes()) {
+                if (!canRead(reader, branch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (reader.getType() == Type.UNION) {
+            for (final SchemaView branch : reader.getTypes()) {
+                if (canRead(branch, writer)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (reader.getType() != writer.getType()) {
+            return isPromotable(writer.getType(), reader.getType());
+        }
+        switch (reader.getType()) {
+            case RECORD:
+                if (!reader.getName().equals(writer.getName())) {
+                    return false;
+                }
+                for (int i = 0; i < reader.getFieldCount(); i++) {
+                    final SchemaView written = writer.getField(reader.getFieldName(i));
+                    if (written == null || !canRead(reader.getField(i), written)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ENUM:
+                return reader.getName().equals(writer.getName()) && reader.getEnumSymbols().containsAll(writer.getEnumSymbols());
+            case FIXED:
+                return reader.getName().equals(writer.getName()) && reader.getFixedSize() == writer.getFixedSize();
+            case ARRAY:
+                return canRead(reader.getElementType(), writer.getElementType());
+            case MAP:
+                return canRead(reader.getValueType(), writer.getValueType());
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isPromotable(final Type writer, final Type reader) {
+        switch (writer) {
+            case INT:
+                return reader == Type.LONG || reader == Type.FLOAT || reader == Type.DOUBLE;
+            case LONG:
+                return reader == Type.FLOAT || reader == Type.DOUBLE;
+            case FLOAT:
+                return reader == Type.DOUBLE;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean sameLogicalType(final LogicalType a, final LogicalType b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a instanceof LogicalTypes.Decimal && b instanceof LogicalTypes.Decimal) {
+            final LogicalTypes.Decimal aDecimal = (LogicalTypes.Decimal) a;
+            final LogicalTypes.Decimal bDecimal = (LogicalTypes.Decimal) b;
+            return aDecimal.getPrecision() == bDecimal.getPrecision() && aDecimal.getScale() == bDecimal.getScale();
+        }
+        return a.getName().equals(b.getName());
+    }
+}
@@ -0,0 +1,64 @@
+package org.avro.compactor;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.avro.compactor.codec.field.LogicalTypeCodec;
+
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A 64-bit fingerprint of everything a compacted schema keeps
+ *    - The Avro parsing fingerprint, mixed with the schema's logical types since the parsing form drops them
+ *    - Docs, aliases, defaults and other write time parts do not change it, namespaces do
+ *    - ofJson fingerprints the full json instead, for schemas that keep their write time parts
+ */
+public final class SchemaFingerprint {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SchemaFingerprint() {}
+
+    public static long of(final Schema schema) {
+        return SchemaNormalization.parsingFingerprint64(schema) * 31 + logicalTypesHash(schema, new IdentityHashMap<Schema, Boolean>());
+    }
+
+    public static long ofJson(final Schema schema) {
+        return SchemaNormalization.fingerprint64(schema.toString().getBytes(UTF_8));
+    }
+
+    private static int logicalTypesHash(final Schema schema, final Map<Schema, Boolean> seen) {
+        if (seen.put(schema, Boolean.TRUE) != null) {
+            return 0;
+        }
+        final String name = LogicalTypeCodec.nameOf(schema);
+        int hash = name == null ? 0 : name.hashCode();
+        if (schema.getLogicalType() instanceof LogicalTypes.Decimal) {
+            final LogicalTypes.Decimal decimal = (LogicalTypes.Decimal) schema.getLogicalType();
+            hash = (hash * 31 + decimal.getPrecision()) * 31 + decimal.getScale();
+        }
+        switch (schema.getType()) {
+            case RECORD:
+                for (final Schema.Field field : schema.getFields()) {
+                    hash = hash * 31 + logicalTypesHash(field.schema(), seen);
+                }
+                break;
+            case UNION:
+                for (final Schema type : schema.getTypes()) {
+                    hash = hash * 31 + logicalTypesHash(type, seen);
+                }
+                break;
+            case ARRAY:
+                hash = hash * 31 + logicalTypesHash(schema.getElementType(), seen);
+                break;
+            case MAP:
+                hash = hash * 31 + logicalTypesHash(schema.getValueType(), seen);
+                break;
+            default:
+                break;
+        }
+        return hash;
+    }
+}
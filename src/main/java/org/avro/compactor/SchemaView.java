@@ -0,0 +1,299 @@
+package org.avro.compactor;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.FieldCodec;
+import org.avro.compactor.codec.field.EnumCodec;
+import org.avro.compactor.codec.field.RecordCodec;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lazy view over a compacted schema
+ *    - Only a node's type and logical type are read up front, plus the name and field count of a record,
+ *      the name and symbols of an enum and the name and size of a fixed type
+ *    - Field names, fields, union branches and array/map items are read when they are accessed
+ *    - A full Schema is only built by toSchema(), and only for the part being viewed
+ *    - Schemas written with OFFSET_INDEX jump over record and union bodies. Others find the next field or branch
+ *      at the end of the view of the one before, which is kept, so each part is read once however the views are walked
+ *
+ * Views read straight from the compacted bytes, which must not change while a view is in use.
+ * Views are not thread-safe.
+ */
+public class SchemaView {
+
+    private static final String[] NO_NAMES = new String[0];
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final FieldCodec fieldCodec;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int position;
+    private final LogicalType logicalType;
+    private final Type type;
+    private final String name;
+    // Symbols of an enum
+    private final String[] symbols;
+    private final int fixedSize;
+    // Where the fields or branches start, or the end of the whole node when it has none
+    private final int bodyPosition;
+    private final SchemaView[] children;
+    // Field names of a record, read with the child positions
+    private String[] fieldNames;
+    private int[] childPositions;
+    private Map<String, Integer> fieldIndexes;
+    private int end = -1;
+    private Schema schema;
+
+    SchemaView(final FieldCodec fieldCodec, final ByteBuffer buffer, final int offset, final int position) {
+        this.fieldCodec = fieldCodec;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.position = position;
+
+        final BitReader reader = reader();
+        this.logicalType = fieldCodec.decodeLogicalType(reader);
+        this.type = fieldCodec.decodeType(reader);
+        int fixedSize = 0;
+        int childCount = 0;
+        String[] symbols = NO_NAMES;
+        switch (type) {
+            case RECORD:
+                this.name = fieldCodec.recordCodec().decodeName(reader);
+                childCount = fieldCodec.recordCodec().decodeFieldCount(reader);
+                break;
+            case UNION:
+                this.name = null;
+                childCount = fieldCodec.unionCodec().decodeTypeCount(reader);
+                break;
+            case ENUM: {
+                final EnumCodec enumCodec = fieldCodec.enumCodec();
+                this.name = enumCodec.decodeName(reader);
+                symbols = new String[enumCodec.decodeSymbolCount(reader)];
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = enumCodec.decodeSymbol(reader);
+                }
+                break;
+            }
+            case FIXED:
+                this.name = fieldCodec.fixedCodec().decodeName(reader);
+                fixedSize = fieldCodec.fixedCodec().decodeSize(reader);
+                break;
+            case ARRAY:
+            case MAP:
+                this.name = null;
+                this.fieldNames = NO_NAMES;
+                this.childPositions = new int[] { reader.position() };
+                childCount = 1;
+                break;
+            default:
+                this.name = null;
+        }
+        this.symbols = symbols;
+        this.fixedSize = fixedSize;
+        this.bodyPosition = reader.position();
+        this.children = new SchemaView[childCount];
+        if (childCount == 0) {
+            this.fieldNames = NO_NAMES;
+            this.childPositions = NO_POSITIONS;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of a named type without its namespace, which is not written, otherwise the type's name
+     */
+    public String getName() {
+        return name != null ? name : type.getName();
+    }
+
+    /**
+     * @return the logical type, or null if there is none
+     */
+    public LogicalType getLogicalType() {
+        return logicalType;
+    }
+
+    public List<String> getEnumSymbols() {
+        checkType(Type.ENUM);
+        return Collections.unmodifiableList(Arrays.asList(symbols));
+    }
+
+    public int getFixedSize() {
+        checkType(Type.FIXED);
+        return fixedSize;
+    }
+
+    public int getFieldCount() {
+        checkType(Type.RECORD);
+        return children.length;
+    }
+
+    public List<String> getFieldNames() {
+        checkType(Type.RECORD);
+        return Collections.unmodifiableList(Arrays.asList(readChildren().fieldNames));
+    }
+
+    public String getFieldName(final int index) {
+        checkType(Type.RECORD);
+        return readChildren().fieldNames[index];
+    }
+
+    /**
+     * @return the position of the field, or -1 if the record has no such field
+     */
+    public int getFieldIndex(final String fieldName) {
+        checkType(Type.RECORD);
+        if (fieldIndexes == null) {
+            readChildren();
+            fieldIndexes = new HashMap<String, Integer>();
+            for (int i = 0; i < fieldNames.length; i++) {
+                fieldIndexes.put(fieldNames[i], i);
+            }
+        }
+        final Integer index = fieldIndexes.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    public SchemaView getField(final int index) {
+        checkType(Type.RECORD);
+        return child(index);
+    }
+
+    /**
+     * @return the field's view, or null if the record has no such field
+     */
+    public SchemaView getField(final String fieldName) {
+        final int index = getFieldIndex(fieldName);
+        return index < 0 ? null : child(index);
+    }
+
+    public List<SchemaView> getTypes() {
+        checkType(Type.UNION);
+        return new AbstractList<SchemaView>() {
+            @Override
+            public SchemaView get(final int index) {
+                return child(index);
+            }
+
+            @Override
+            public int size() {
+                return children.length;
+            }
+        };
+    }
+
+    public SchemaView getElementType() {
+        checkType(Type.ARRAY);
+        return child(0);
+    }
+
+    public SchemaView getValueType() {
+        checkType(Type.MAP);
+        return child(0);
+    }
+
+    /**
+     * Builds the Schema for this part of the compacted schema, the result is kept for later calls
+     */
+    public Schema toSchema() {
+        if (schema == null) {
+            schema = fieldCodec.decode(reader());
+        }
+        return schema;
+    }
+
+    FieldCodec fieldCodec() {
+        return fieldCodec;
+    }
+
+    private SchemaView child(final int index) {
+        // Reading the children may create the view, keep it so its end is not read again
+        readChildren();
+        if (children[index] == null) {
+            children[index] = new SchemaView(fieldCodec, buffer, offset, childPositions[index]);
+        }
+        return children[index];
+    }
+
+    /**
+     * Reads the field names and where each field or branch starts, the first time they are needed
+     */
+    private SchemaView readChildren() {
+        if (childPositions != null) {
+            return this;
+        }
+        final RecordCodec recordCodec = type == Type.RECORD ? fieldCodec.recordCodec() : null;
+        final BitReader reader = reader(bodyPosition);
+        final int[] positions = new int[children.length];
+        final String[] names = recordCodec != null ? new String[children.length] : NO_NAMES;
+        for (int i = 0; i < children.length; i++) {
+            if (recordCodec != null) {
+                names[i] = recordCodec.decodeFieldName(reader);
+            }
+            positions[i] = reader.position();
+            if (fieldCodec.isOffsetIndexed()) {
+                fieldCodec.skip(reader);
+            } else {
+                if (children[i] == null) {
+                    children[i] = new SchemaView(fieldCodec, buffer, offset, positions[i]);
+                }
+                reader.position(children[i].end());
+            }
+        }
+        fieldNames = names;
+        childPositions = positions;
+        return this;
+    }
+
+    /**
+     * @return the bit position just after this part of the schema
+     */
+    private int end() {
+        if (end < 0) {
+            if (children.length == 0) {
+                end = bodyPosition;
+            } else if (fieldCodec.isOffsetIndexed()) {
+                final BitReader reader = reader();
+                fieldCodec.skip(reader);
+                end = reader.position();
+            } else {
+                end = child(children.length - 1).end();
+            }
+        }
+        return end;
+    }
+
+    BitReader reader() {
+        return reader(position);
+    }
+
+    /**
+     * @return a reader at the first field or branch, past the header read by the constructor
+     */
+    BitReader bodyReader() {
+        return reader(bodyPosition);
+    }
+
+    private BitReader reader(final int position) {
+        final BitReader reader = new BitReader(buffer, offset);
+        reader.position(position);
+        return reader;
+    }
+
+    private void checkType(final Type expected) {
+        if (type != expected)
+            throw new UnsupportedOperationException("Not a " + expected.getName() + ": " + type.getName());
+    }
+}
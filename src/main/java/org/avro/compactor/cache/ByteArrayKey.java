@@ -0,0 +1,39 @@
+package org.avro.compactor.cache;
+
+import java.util.Arrays;
+
+/**
+ * A cache key for a byte array
+ *    - Lookups wrap the caller's array, only stored keys take a private copy
+ */
+public class ByteArrayKey {
+
+    private final byte[] bytes;
+    private final int hashCode;
+
+    private ByteArrayKey(final byte[] bytes, final int hashCode) {
+        this.bytes = bytes;
+        this.hashCode = hashCode;
+    }
+
+    public static ByteArrayKey wrap(final byte[] bytes) {
+        return new ByteArrayKey(bytes, Arrays.hashCode(bytes));
+    }
+
+    public ByteArrayKey copy() {
+        return new ByteArrayKey(bytes.clone(), hashCode);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ByteArrayKey)) return false;
+        final ByteArrayKey that = (ByteArrayKey) o;
+        return hashCode == that.hashCode && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
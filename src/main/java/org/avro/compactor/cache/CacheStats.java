@@ -0,0 +1,46 @@
+package org.avro.compactor.cache;
+
+/**
+ * An immutable snapshot of a cache's counters
+ */
+public class CacheStats {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public CacheStats(final int size, final long hitCount, final long missCount, final long evictionCount) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    public double hitRate() {
+        final long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{size=" + size + ", hits=" + hitCount + ", misses=" + missCount
+            + ", evictions=" + evictionCount + "}";
+    }
+}
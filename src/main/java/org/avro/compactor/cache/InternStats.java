@@ -0,0 +1,77 @@
+package org.avro.compactor.cache;
+
+/**
+ * An immutable snapshot of a SchemaInterner's counters
+ *    - Counters only grow, since(earlier) gives the counts for the time between two snapshots,
+ *      so a long running process can watch how the hit rate changes
+ */
+public class InternStats {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long collectedCount;
+    private final long bytesSaved;
+
+    public InternStats(final int size, final long hitCount, final long missCount, final long collectedCount, final long bytesSaved) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.collectedCount = collectedCount;
+        this.bytesSaved = bytesSaved;
+    }
+
+    /**
+     * @return the canonical schemas still held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the schemas replaced by an existing canonical instance
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the schemas that became a canonical instance
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the canonical instances collected after nothing used them
+     */
+    public long collectedCount() {
+        return collectedCount;
+    }
+
+    /**
+     * @return the estimated bytes of the duplicate schemas that were not kept
+     */
+    public long bytesSaved() {
+        return bytesSaved;
+    }
+
+    public double hitRate() {
+        final long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * @return the counts since an earlier snapshot of the same interner, with the current size
+     */
+    public InternStats since(final InternStats earlier) {
+        return new InternStats(size, hitCount - earlier.hitCount, missCount - earlier.missCount,
+            collectedCount - earlier.collectedCount, bytesSaved - earlier.bytesSaved);
+    }
+
+    @Override
+    public String toString() {
+        return "InternStats{size=" + size + ", hits=" + hitCount + ", misses=" + missCount
+            + ", collected=" + collectedCount + ", bytesSaved=" + bytesSaved + "}";
+    }
+}
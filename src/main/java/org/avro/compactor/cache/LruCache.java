@@ -0,0 +1,87 @@
+package org.avro.compactor.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe cache that evicts the least recently used entry
+ *    - Values are computed outside of the lock, so a slow miss does not block hits
+ *    - If two threads miss on the same key at once the first value stored wins
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(final int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1. Found " + maxSize);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(final K key) {
+        final V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Looks the key up like get without counting it, for callers that probe several keys per lookup
+     * and count the lookup once with recordHit or recordMiss
+     */
+    public synchronized V peek(final K key) {
+        return entries.get(key);
+    }
+
+    public synchronized void recordHit() {
+        hits++;
+    }
+
+    public synchronized void recordMiss() {
+        misses++;
+    }
+
+    /**
+     * Stores the value unless another thread stored one first
+     *
+     * @return the value held by the cache for the key
+     */
+    public synchronized V putIfAbsent(final K key, final V value) {
+        final V existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(key, value);
+        return value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(entries.size(), hits, misses, evictions);
+    }
+}
@@ -0,0 +1,239 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DatumReader;
+import org.avro.compactor.Compactor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded, thread-safe cache from a compacted writer schema and a reader schema to a ready DatumReader
+ *    - Keyed by a hash of the compacted bytes and the reader schema instance,
+ *      so a hit neither decodes the writer schema nor compares reader schemas
+ *    - A miss decodes the writer schema with the Compactor and builds the DatumReader with the factory,
+ *      GenericDatumReader by default. Avro's readers build the resolving grammar once per thread and keep it
+ *    - reader(ByteBuffer, Schema) reads a compacted schema stored in front of the data. The lengths of the schemas
+ *      seen so far are indexed by their first bytes, so the end of a known schema is found without decoding it.
+ *      The format is prefix free, so only one known schema can match. The candidate lengths are probed without
+ *      counting them, each call counts one hit or miss
+ *
+ * DatumReaders are shared between callers. Use a reader schema instance per reader schema, equal copies are cached apart.
+ */
+public class ResolverCache<D> {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final int PREFIX_BYTES = 4;
+    private static final int[] NO_LENGTHS = new int[0];
+
+    /**
+     * Builds a DatumReader that resolves data written with the writer schema to the reader schema
+     */
+    public interface DatumReaderFactory<D> {
+        DatumReader<D> create(Schema writer, Schema reader);
+    }
+
+    private final Compactor compactor;
+    private final DatumReaderFactory<D> factory;
+    private final int maxSize;
+    private final LruCache<Key, DatumReader<D>> readers;
+    private final ConcurrentMap<Integer, int[]> lengthsByPrefix = new ConcurrentHashMap<Integer, int[]>();
+    // Schemas shorter than the prefix, tried on every lookup
+    private volatile int[] shortLengths = NO_LENGTHS;
+
+    public ResolverCache() {
+        this(Compactor.DEFAULT, DEFAULT_MAX_SIZE);
+    }
+
+    public ResolverCache(final Compactor compactor, final int maxSize) {
+        this(compactor, maxSize, new DatumReaderFactory<D>() {
+            @Override
+            public DatumReader<D> create(final Schema writer, final Schema reader) {
+                return new GenericDatumReader<D>(writer, reader);
+            }
+        });
+    }
+
+    public ResolverCache(final Compactor compactor, final int maxSize, final DatumReaderFactory<D> factory) {
+        this.compactor = compactor;
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.readers = new LruCache<Key, DatumReader<D>>(maxSize);
+    }
+
+    /**
+     * @param writerSchema the compacted writer schema, exactly as encoded
+     */
+    public DatumReader<D> reader(final byte[] writerSchema, final Schema readerSchema) {
+        final Key key = new Key(writerSchema, 0, writerSchema.length, readerSchema);
+        final DatumReader<D> reader = readers.get(key);
+        if (reader != null) {
+            return reader;
+        }
+        return store(key.copy(), compactor.decode(writerSchema), readerSchema);
+    }
+
+    /**
+     * Reads the compacted writer schema at the buffer's position and advances the position past it,
+     * so the buffer is left at the data
+     */
+    public DatumReader<D> reader(final ByteBuffer buffer, final Schema readerSchema) {
+        final int position = buffer.position();
+        final DatumReader<D> known = known(buffer, position, lengthsByPrefix.get(prefixOf(buffer, position, PREFIX_BYTES)), readerSchema);
+        if (known != null) {
+            readers.recordHit();
+            return known;
+        }
+        final DatumReader<D> knownShort = known(buffer, position, shortLengths, readerSchema);
+        if (knownShort != null) {
+            readers.recordHit();
+            return knownShort;
+        }
+        readers.recordMiss();
+        final Schema writer = compactor.decode(buffer);
+        final byte[] bytes = new byte[buffer.position() - position];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        index(bytes);
+        return store(new Key(bytes, 0, bytes.length, readerSchema), writer, readerSchema);
+    }
+
+    private DatumReader<D> known(final ByteBuffer buffer, final int position, final int[] lengths, final Schema readerSchema) {
+        if (lengths == null) {
+            return null;
+        }
+        for (final int length : lengths) {
+            if (length > buffer.limit() - position) {
+                continue;
+            }
+            final DatumReader<D> reader = readers.peek(keyOf(buffer, position, length, readerSchema));
+            if (reader != null) {
+                buffer.position(position + length);
+                return reader;
+            }
+        }
+        return null;
+    }
+
+    private DatumReader<D> store(final Key key, final Schema writer, final Schema readerSchema) {
+        return readers.putIfAbsent(key, factory.create(writer, readerSchema));
+    }
+
+    private void index(final byte[] bytes) {
+        if (lengthsByPrefix.size() > maxSize) {
+            // Lengths of evicted schemas only cost a failed lookup, start over rather than grow
+            lengthsByPrefix.clear();
+        }
+        if (bytes.length < PREFIX_BYTES) {
+            synchronized (this) {
+                shortLengths = withLength(shortLengths, bytes.length);
+            }
+            return;
+        }
+        final Integer prefix = prefixOf(ByteBuffer.wrap(bytes), 0, PREFIX_BYTES);
+        while (true) {
+            final int[] lengths = lengthsByPrefix.get(prefix);
+            if (lengths == null) {
+                if (lengthsByPrefix.putIfAbsent(prefix, new int[] {bytes.length}) == null) {
+                    return;
+                }
+            } else if (withLength(lengths, bytes.length) == lengths || lengthsByPrefix.replace(prefix, lengths, withLength(lengths, bytes.length))) {
+                return;
+            }
+        }
+    }
+
+    private static int[] withLength(final int[] lengths, final int length) {
+        for (final int known : lengths) {
+            if (known == length) {
+                return lengths;
+            }
+        }
+        final int[] added = Arrays.copyOf(lengths, lengths.length + 1);
+        added[lengths.length] = length;
+        return added;
+    }
+
+    private static int prefixOf(final ByteBuffer buffer, final int position, final int bytes) {
+        int prefix = 0;
+        for (int i = 0; i < bytes; i++) {
+            final int index = position + i;
+            prefix = (prefix << 8) | (index < buffer.limit() ? buffer.get(index) & 0xFF : 0);
+        }
+        return prefix;
+    }
+
+    private static Key keyOf(final ByteBuffer buffer, final int position, final int length, final Schema readerSchema) {
+        if (buffer.hasArray()) {
+            return new Key(buffer.array(), buffer.arrayOffset() + position, length, readerSchema);
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new Key(bytes, 0, length, readerSchema);
+    }
+
+    public CacheStats stats() {
+        return readers.stats();
+    }
+
+    public void clear() {
+        readers.clear();
+        lengthsByPrefix.clear();
+        shortLengths = NO_LENGTHS;
+    }
+
+    /**
+     * A range of compacted bytes and a reader schema instance.
+     * Lookups point at the caller's bytes, only stored keys take a private copy.
+     */
+    private static final class Key {
+
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+        private final Schema readerSchema;
+        private final int hashCode;
+
+        Key(final byte[] bytes, final int offset, final int length, final Schema readerSchema) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.readerSchema = readerSchema;
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            this.hashCode = 31 * hash + System.identityHashCode(readerSchema);
+        }
+
+        Key copy() {
+            return new Key(Arrays.copyOfRange(bytes, offset, offset + length), 0, length, readerSchema);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key that = (Key) o;
+            if (hashCode != that.hashCode || length != that.length || readerSchema != that.readerSchema) return false;
+            for (int i = 0; i < length; i++) {
+                if (bytes[offset + i] != that.bytes[that.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
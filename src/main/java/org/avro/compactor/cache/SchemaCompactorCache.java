@@ -0,0 +1,81 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.avro.compactor.SchemaFingerprint;
+import org.avro.compactor.codec.Feature;
+
+
+/**
+ * A bounded, thread-safe cache in front of a Compactor
+ *    - Encoding is keyed by the schema's 64-bit parsing fingerprint, mixed with its logical types
+ *      since the parsing form drops them. A lossless Compactor keys by the fingerprint of the full json instead
+ *    - Decoding is keyed by the compacted bytes
+ *    - Each direction keeps up to maxSize entries and evicts the least recently used
+ *
+ * Decoded schemas are shared between callers and must not be modified.
+ * Encoded bytes are copied on the way out so callers can not change the cached value.
+ */
+public class SchemaCompactorCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+
+    private final Compactor compactor;
+    private final boolean lossless;
+    private final LruCache<Long, byte[]> encodeCache;
+    private final LruCache<ByteArrayKey, Schema> decodeCache;
+
+    public SchemaCompactorCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SchemaCompactorCache(final int maxSize) {
+        this(Compactor.DEFAULT, maxSize);
+    }
+
+    public SchemaCompactorCache(final Compactor compactor, final int maxSize) {
+        this.compactor = compactor;
+        this.lossless = compactor.features().contains(Feature.LOSSLESS);
+        this.encodeCache = new LruCache<Long, byte[]>(maxSize);
+        this.decodeCache = new LruCache<ByteArrayKey, Schema>(maxSize);
+    }
+
+    public byte[] encode(final Schema schema) {
+        final Long fingerprint = fingerprint(schema);
+        byte[] bytes = encodeCache.get(fingerprint);
+        if (bytes == null) {
+            bytes = encodeCache.putIfAbsent(fingerprint, compactor.encode(schema));
+        }
+        return bytes.clone();
+    }
+
+    public Schema decode(final byte[] bytes) {
+        final ByteArrayKey key = ByteArrayKey.wrap(bytes);
+        final Schema schema = decodeCache.get(key);
+        if (schema != null) {
+            return schema;
+        }
+        return decodeCache.putIfAbsent(key.copy(), compactor.decode(bytes));
+    }
+
+    private long fingerprint(final Schema schema) {
+        if (lossless) {
+            return SchemaFingerprint.ofJson(schema);
+        }
+        return SchemaFingerprint.of(schema);
+    }
+
+    public CacheStats encodeStats() {
+        return encodeCache.stats();
+    }
+
+    public CacheStats decodeStats() {
+        return decodeCache.stats();
+    }
+
+    public void clear() {
+        encodeCache.clear();
+        decodeCache.clear();
+    }
+}
@@ -0,0 +1,141 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.Schema;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent intern table that maps structurally equal schemas to one shared instance
+ *    - Schemas are compared with Schema.equals, so names, types, symbols, fields and properties must match
+ *    - Values are held weakly, a canonical schema nothing else uses is collected and its entry is cleared on a later call
+ *    - Interning is bottom up, when a parent is interned its children are already canonical,
+ *      so a hit frees only the parent and bytesSaved counts its shallow size
+ *
+ * Interned schemas are shared between callers and must not be modified.
+ * Records must be complete, with their fields set, before they are interned.
+ */
+public class SchemaInterner {
+
+    private final ConcurrentMap<Entry, Entry> entries = new ConcurrentHashMap<Entry, Entry>();
+    private final ReferenceQueue<Schema> collected = new ReferenceQueue<Schema>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong collections = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @return the canonical instance equal to the schema, the schema itself if it is the first of its kind
+     */
+    public Schema intern(final Schema schema) {
+        expunge();
+        final Entry probe = new Entry(schema, null);
+        while (true) {
+            final Entry existing = entries.get(probe);
+            final Schema canonical = existing == null ? null : existing.get();
+            if (canonical != null) {
+                hits.incrementAndGet();
+                bytesSaved.addAndGet(shallowSize(schema));
+                return canonical;
+            }
+            if (existing != null) {
+                // Collected but not expunged yet
+                entries.remove(existing, existing);
+            }
+            final Entry entry = new Entry(schema, collected);
+            if (entries.putIfAbsent(entry, entry) == null) {
+                misses.incrementAndGet();
+                return schema;
+            }
+        }
+    }
+
+    public int size() {
+        expunge();
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public InternStats stats() {
+        return new InternStats(size(), hits.get(), misses.get(), collections.get(), bytesSaved.get());
+    }
+
+    private void expunge() {
+        Object reference;
+        while ((reference = collected.poll()) != null) {
+            final Entry entry = (Entry) reference;
+            if (entries.remove(entry, entry)) {
+                collections.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Estimated bytes of the schema object itself and its names, not its children.
+     * Measured on a 64-bit JVM with compressed oops.
+     */
+    static long shallowSize(final Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+                long record = 216 + sizeOf(schema.getName());
+                for (final Schema.Field field : schema.getFields()) {
+                    record += 104 + sizeOf(field.name());
+                }
+                return record;
+            case ENUM:
+                long symbols = 240 + sizeOf(schema.getName());
+                for (final String symbol : schema.getEnumSymbols()) {
+                    symbols += 72 + sizeOf(symbol);
+                }
+                return symbols;
+            case UNION:
+                return 200 + 72 * schema.getTypes().size();
+            case FIXED:
+                return 128 + sizeOf(schema.getName());
+            case ARRAY:
+            case MAP:
+                return 96;
+            default:
+                return 88;
+        }
+    }
+
+    private static long sizeOf(final String name) {
+        return 40 + ((name.length() + 7) & ~7);
+    }
+
+    /**
+     * Weakly holds a schema, equal to another entry when their schemas are equal.
+     * The hash is kept so a collected entry can still be found and removed.
+     */
+    private static final class Entry extends WeakReference<Schema> {
+
+        private final int hash;
+
+        Entry(final Schema schema, final ReferenceQueue<Schema> queue) {
+            super(schema, queue);
+            this.hash = schema.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            final Entry that = (Entry) o;
+            if (hash != that.hash) return false;
+            final Schema schema = get();
+            return schema != null && schema.equals(that.get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.avro.compactor.codec;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The bits of one encoded schema split by BitCategory
+ *    - Built by BitWriter when it was asked to tally, see BitWriter.tally
+ *    - The bits add up to the writer's position, the padding of the last byte is not counted
+ */
+public class BitBreakdown {
+
+    private static final BitCategory[] CATEGORIES = BitCategory.values();
+
+    private final int[] bits;
+
+    BitBreakdown(final int[] bits) {
+        this.bits = bits.clone();
+    }
+
+    public int bits(final BitCategory category) {
+        return bits[category.ordinal()];
+    }
+
+    public int totalBits() {
+        int total = 0;
+        for (final int categoryBits : bits) {
+            total += categoryBits;
+        }
+        return total;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof BitBreakdown && Arrays.equals(bits, ((BitBreakdown) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("BitBreakdown{");
+        for (final BitCategory category : CATEGORIES) {
+            if (category.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(category.name().toLowerCase(Locale.ROOT)).append('=').append(bits[category.ordinal()]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,35 @@
+package org.avro.compactor.codec;
+
+/**
+ * What the bits of an encoded schema are spent on, see BitWriter.tally
+ *    - Codecs mark the category of the bits they write, nested codecs take over until they return
+ *    - So the length of a name counts as COUNTS and its characters as NAMES
+ */
+public enum BitCategory {
+
+    /**
+     * The version, feature flags, Huffman table reference and Profile
+     */
+    HEADER,
+
+    /**
+     * Types, flags, back-references, offsets and everything else not in another category
+     */
+    STRUCTURE,
+
+    /**
+     * Names and symbols, spelled or as a dictionary index
+     */
+    NAMES,
+
+    /**
+     * Field, symbol and union type counts, name lengths and fixed sizes
+     */
+    COUNTS,
+
+    /**
+     * Docs, aliases, order, defaults and properties kept by LosslessCodec, including the text block
+     */
+    METADATA
+
+}
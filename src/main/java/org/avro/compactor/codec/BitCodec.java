@@ -1,15 +1,23 @@
 package org.avro.compactor.codec;
 
-import net.magik6k.bitbuffer.BitBuffer;
-
+/**
+ * Encodes and decodes a value in a bit packed format
+ *    - validate checks the value and everything it contains
+ *    - sizeOf and encode check each value as they visit it, so callers do not need to validate first
+ *    - skip moves the reader past an encoded value without building it
+ *
+ * Codecs are immutable and safe to share between threads, all per-call state lives in the BitWriter or BitReader.
+ */
 public interface BitCodec<T> {
 
     void validate(final T data);
 
     int sizeOf(final T data);
 
-    void encode(final T data, BitBuffer buffer);
+    void encode(final T data, BitWriter writer);
+
+    T decode(BitReader reader);
 
-    T decode(BitBuffer buffer);
+    void skip(BitReader reader);
 
 }
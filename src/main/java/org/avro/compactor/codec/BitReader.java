@@ -0,0 +1,255 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.Schema;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads bits written by BitWriter
+ *    - Bits are read most significant bit first
+ *    - Reads use absolute gets on the ByteBuffer, so heap, direct and mapped buffers are read in place
+ *      and the buffer's position is never changed
+ *    - Each read takes the 8 bytes that hold its bits as one word, after a single check against the limit.
+ *      Heap buffers are read from their array, the buffer's limit is read once when the reader is created
+ *    - Also collects the named types decoded so far so back-references can be resolved
+ */
+public class BitReader {
+
+    private static final int MAX_PEEK_BITS = Long.SIZE - Byte.SIZE + 1;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int limit;
+    // Bits between the offset and the limit, capped at what a position can hold
+    private final int limitBits;
+    private final byte[] array;
+    private final int arrayOffset;
+    private int position;
+    private List<Schema> namedTypes;
+    private List<String> texts;
+    private int textIndex;
+    private BitSet openRecords;
+    private int recursiveReferences;
+
+    public BitReader(final byte[] bytes) {
+        this(ByteBuffer.wrap(bytes), 0);
+    }
+
+    public BitReader(final ByteBuffer buffer, final int offset) {
+        if (offset < 0 || offset > buffer.limit())
+            throw new IndexOutOfBoundsException("Offset " + offset + " is outside of the buffer. Found limit " + buffer.limit());
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = buffer.limit();
+        this.limitBits = (int) Math.min(Integer.MAX_VALUE, (long) (limit - offset) * Byte.SIZE);
+        this.array = buffer.hasArray() ? buffer.array() : null;
+        this.arrayOffset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+    }
+
+    public byte getByteUnsigned(final int bits) {
+        return (byte) getLong(bits);
+    }
+
+    public int getBits(final int bits) {
+        return (int) getLong(bits);
+    }
+
+    public long getLong(final int bits) {
+        if (bits > MAX_PEEK_BITS) {
+            // The bits may span 9 bytes, read them as two words
+            final long high = getLong(bits - Integer.SIZE);
+            return (high << Integer.SIZE) | getLong(Integer.SIZE);
+        }
+        final int end = position + bits;
+        if (end > limitBits)
+            throw new IllegalArgumentException("Unexpected end of compacted schema after " + (limit - offset) + " bytes");
+        final long value = bits == 0 ? 0 : (window() << (position & 7)) >>> (Long.SIZE - bits);
+        position = end;
+        return value;
+    }
+
+    /**
+     * Reads whole bytes, straight from the buffer when the reader is on a byte boundary
+     */
+    public byte[] getBytes(final int length) {
+        final byte[] values = new byte[length];
+        if ((position & 7) != 0) {
+            for (int i = 0; i < length; i++) {
+                values[i] = getByteUnsigned(Byte.SIZE);
+            }
+            return values;
+        }
+        final int start = offset + (position >>> 3);
+        if (start + length > limit)
+            throw new IllegalArgumentException("Unexpected end of compacted schema after " + (limit - offset) + " bytes");
+        if (array != null) {
+            System.arraycopy(array, arrayOffset + start, values, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                values[i] = buffer.get(start + i);
+            }
+        }
+        position += length * Byte.SIZE;
+        return values;
+    }
+
+    /**
+     * Skips the padding up to the next byte boundary
+     */
+    public void alignToByte() {
+        skip((8 - (position & 7)) & 7);
+    }
+
+    /**
+     * Looks at the next bits without reading them, bits past the end of the buffer are read as zero.
+     * Up to 57 bits can be looked at, so they always fit in the 8 bytes that hold them.
+     */
+    public long peekLong(final int bits) {
+        if (bits > MAX_PEEK_BITS)
+            throw new IllegalArgumentException("Can only peek up to " + MAX_PEEK_BITS + " bits. Found " + bits);
+        return bits == 0 ? 0 : (window() << (position & 7)) >>> (Long.SIZE - bits);
+    }
+
+    /**
+     * @return the 8 bytes from the one holding the position, most significant byte first. Bytes past the limit are zero.
+     */
+    private long window() {
+        final int start = offset + (position >>> 3);
+        if (start + Long.SIZE / Byte.SIZE <= limit) {
+            if (array != null) {
+                final int index = arrayOffset + start;
+                return ((long) (array[index] & 0xFF) << 56)
+                        | ((long) (array[index + 1] & 0xFF) << 48)
+                        | ((long) (array[index + 2] & 0xFF) << 40)
+                        | ((long) (array[index + 3] & 0xFF) << 32)
+                        | ((long) (array[index + 4] & 0xFF) << 24)
+                        | ((array[index + 5] & 0xFF) << 16)
+                        | ((array[index + 6] & 0xFF) << 8)
+                        | (array[index + 7] & 0xFF);
+            }
+            if (buffer.order() == ByteOrder.BIG_ENDIAN) {
+                return buffer.getLong(start);
+            }
+        }
+        final int end = Math.min(start + Long.SIZE / Byte.SIZE, limit);
+        long word = 0;
+        for (int index = start; index < end; index++) {
+            word = (word << Byte.SIZE) | (buffer.get(index) & 0xFF);
+        }
+        return word << (Byte.SIZE * (Long.SIZE / Byte.SIZE - Math.max(0, end - start)));
+    }
+
+    public void skip(final int bits) {
+        position(position + bits);
+    }
+
+    /**
+     * @return the number of bits read
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Moves to a bit position relative to the reader's starting offset
+     */
+    public void position(final int bitPosition) {
+        if (bitPosition < 0 || bitPosition > limitBits)
+            throw new IllegalArgumentException("Bit position " + bitPosition + " is outside of the compacted schema");
+        this.position = bitPosition;
+    }
+
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of whole bytes the bits read so far occupy
+     */
+    public int bytesRead() {
+        return (position + 7) >>> 3;
+    }
+
+    public void addNamedType(final Schema schema) {
+        if (namedTypes == null) {
+            namedTypes = new ArrayList<Schema>();
+        }
+        namedTypes.add(schema);
+    }
+
+    public int namedTypeCount() {
+        return namedTypes == null ? 0 : namedTypes.size();
+    }
+
+    public Schema namedType(final int index) {
+        if (index >= namedTypeCount())
+            throw new IllegalArgumentException("Named type reference " + index + " is out of range. Found " + namedTypeCount() + " named types");
+        return namedTypes.get(index);
+    }
+
+    /**
+     * Swaps a named type for an equal one, later back-references get the replacement
+     */
+    public void replaceNamedType(final Schema schema, final Schema replacement) {
+        for (int i = namedTypeCount() - 1; i >= 0; i--) {
+            if (namedTypes.get(i) == schema) {
+                namedTypes.set(i, replacement);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the record with the named type index as being decoded, so references to it from inside it can be told apart
+     */
+    public void openRecord(final int index) {
+        if (openRecords == null) {
+            openRecords = new BitSet();
+        }
+        openRecords.set(index);
+    }
+
+    public void closeRecord(final int index) {
+        openRecords.clear(index);
+    }
+
+    public boolean isOpenRecord(final int index) {
+        return openRecords != null && openRecords.get(index);
+    }
+
+    /**
+     * Counts references to records that are still being decoded, a subtree holding one is not complete yet
+     */
+    public void addRecursiveReference() {
+        recursiveReferences++;
+    }
+
+    public int recursiveReferenceCount() {
+        return recursiveReferences;
+    }
+
+    /**
+     * Sets the free text read back from the block LosslessCodec writes after the bits
+     */
+    public void texts(final List<String> texts) {
+        this.texts = texts;
+        this.textIndex = 0;
+    }
+
+    /**
+     * @return the next text in the order it was written
+     */
+    public String nextText() {
+        if (texts == null || textIndex >= texts.size())
+            throw new IllegalArgumentException("Unexpected end of compacted schema text after " + textIndex + " texts");
+        return texts.get(textIndex++);
+    }
+}
@@ -0,0 +1,379 @@
+package org.avro.compactor.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bit buffer used when encoding
+ *    - Bits are written most significant bit first
+ *    - By default bits go to an internal array that grows as needed,
+ *      so the encoded size does not need to be known up front
+ *    - reset(ByteBuffer) writes straight into a caller's buffer instead, starting at its position
+ *    - A writer can be reset and reused, the internal array and named type table are kept
+ *    - Also tracks the named types written so far, like the handle table in ObjectOutputStream,
+ *      so later uses can be written as a back-reference, and the records still being written so a record inside itself is caught
+ *    - tally() counts the bits written per BitCategory until the next reset, codecs mark the category with enter/exit
+ *    - Bits are gathered in a 64-bit word that is stored 8 bytes at a time once full, the word always starts
+ *      on a byte boundary so flush and putBytes only store its whole bytes and keep the rest
+ */
+public class BitWriter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] bytes;
+    private ByteBuffer target;
+    private int offset;
+    private int position;
+    // Bits not stored yet, right aligned. They start at bit position - wordBits, which is on a byte boundary
+    private long word;
+    private int wordBits;
+    private Map<String, Integer> namedTypes;
+    private Set<String> openRecords;
+    private List<String> texts;
+    private int[] tally;
+    private BitCategory category = BitCategory.STRUCTURE;
+
+    public BitWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BitWriter(final int initialCapacity) {
+        this.bytes = new byte[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Clears the writer so it can be reused with its internal array
+     */
+    public BitWriter reset() {
+        this.target = null;
+        this.offset = 0;
+        return clear();
+    }
+
+    /**
+     * Clears the writer and points it at a caller's buffer, starting at the buffer's position.
+     * Writing past the buffer's limit throws a BufferOverflowException.
+     */
+    public BitWriter reset(final ByteBuffer buffer) {
+        this.target = buffer;
+        this.offset = buffer.position();
+        return clear();
+    }
+
+    private BitWriter clear() {
+        position = 0;
+        word = 0;
+        wordBits = 0;
+        if (namedTypes != null) {
+            namedTypes.clear();
+        }
+        if (openRecords != null) {
+            openRecords.clear();
+        }
+        if (texts != null) {
+            texts.clear();
+        }
+        tally = null;
+        category = BitCategory.STRUCTURE;
+        return this;
+    }
+
+    /**
+     * Counts the bits written from now on per BitCategory, until the writer is reset
+     */
+    public BitWriter tally() {
+        tally = new int[BitCategory.values().length];
+        return this;
+    }
+
+    /**
+     * @return the bits counted since tally(), or null if the writer is not tallying
+     */
+    public BitBreakdown breakdown() {
+        return tally == null ? null : new BitBreakdown(tally);
+    }
+
+    /**
+     * Marks the bits written from now on as the category
+     *
+     * @return the previous category, to pass to exit
+     */
+    public BitCategory enter(final BitCategory next) {
+        final BitCategory previous = category;
+        category = next;
+        return previous;
+    }
+
+    public void exit(final BitCategory previous) {
+        category = previous;
+    }
+
+    public BitWriter putByte(final byte value, final int bits) {
+        return putBits(value, bits);
+    }
+
+    public BitWriter putBits(final long value, final int bits) {
+        if (tally != null) {
+            tally[category.ordinal()] += bits;
+        }
+        if (bits == 0) {
+            return this;
+        }
+        final long masked = bits == Long.SIZE ? value : value & ((1L << bits) - 1);
+        final int free = Long.SIZE - wordBits;
+        if (bits < free) {
+            word = (word << bits) | masked;
+            wordBits += bits;
+        } else {
+            // Fill the word, store it and keep what did not fit. Shifting by 64 is a no-op in Java, the word is empty then
+            final int rest = bits - free;
+            storeWord((position - wordBits) >>> 3, free == Long.SIZE ? masked >>> rest : (word << free) | (masked >>> rest));
+            word = rest == 0 ? 0 : masked & ((1L << rest) - 1);
+            wordBits = rest;
+        }
+        position += bits;
+        return this;
+    }
+
+    /**
+     * Writes whole bytes, a byte at a time when the writer is on a byte boundary
+     */
+    public BitWriter putBytes(final byte[] values) {
+        if ((position & 7) != 0) {
+            // putBits tallies them
+            for (final byte value : values) {
+                putBits(value & 0xFF, Byte.SIZE);
+            }
+            return this;
+        }
+        storeWholeBytes();
+        final int start = position >>> 3;
+        for (int i = 0; i < values.length; i++) {
+            store(start + i, values[i]);
+        }
+        position += values.length * Byte.SIZE;
+        if (tally != null) {
+            tally[category.ordinal()] += values.length * Byte.SIZE;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the bits of another writer, tallied as the current category
+     */
+    public BitWriter putBits(final BitWriter other) {
+        final byte[] values = other.toByteArray();
+        final int wholeBytes = other.position() >>> 3;
+        putBytes(wholeBytes == values.length ? values : Arrays.copyOf(values, wholeBytes));
+        final int rest = other.position() & 7;
+        if (rest > 0) {
+            putBits((values[wholeBytes] & 0xFF) >>> (Byte.SIZE - rest), rest);
+        }
+        return this;
+    }
+
+    /**
+     * Pads with zero bits up to the next byte boundary
+     */
+    public BitWriter alignToByte() {
+        return putBits(0, (8 - (position & 7)) & 7);
+    }
+
+    /**
+     * Overwrites bits that were already written, used to fill in a length once it is known
+     */
+    public BitWriter putBitsAt(final int bitPosition, final long value, final int bits) {
+        if (bitPosition + bits > position)
+            throw new IllegalArgumentException("Can only overwrite bits already written. Found " + (bitPosition + bits) + " > " + position);
+        final int wordStart = position - wordBits;
+        for (int i = 0; i < bits; i++) {
+            final int bit = bitPosition + i;
+            final boolean set = ((value >>> (bits - 1 - i)) & 1) == 1;
+            if (bit >= wordStart) {
+                final long mask = 1L << (position - 1 - bit);
+                word = set ? word | mask : word & ~mask;
+            } else {
+                final int mask = 0x80 >>> (bit & 7);
+                final int stored = load(bit >>> 3);
+                store(bit >>> 3, set ? stored | mask : stored & ~mask);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bits written
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return the size of the internal array, which grows to the largest schema written since the writer was created
+     */
+    public int capacity() {
+        return bytes.length;
+    }
+
+    /**
+     * @return the number of whole bytes the bits written so far occupy
+     */
+    public int bytesWritten() {
+        return (position + 7) >>> 3;
+    }
+
+    /**
+     * Stores the bits written so far, the last partial byte padded with zero bits.
+     * The partial byte is kept in the word, so writing can carry on after a flush.
+     */
+    public BitWriter flush() {
+        storeWholeBytes();
+        if (wordBits > 0) {
+            store(position >>> 3, (int) (word << (Byte.SIZE - wordBits)));
+        }
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        flush();
+        if (target == null) {
+            return Arrays.copyOf(bytes, bytesWritten());
+        }
+        final byte[] copy = new byte[bytesWritten()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = target.get(offset + i);
+        }
+        return copy;
+    }
+
+    public void writeTo(final OutputStream out) throws IOException {
+        if (target != null)
+            throw new IllegalStateException("Bits were written to a ByteBuffer");
+        flush();
+        out.write(bytes, 0, bytesWritten());
+    }
+
+    /**
+     * Records a named type in the order it was written. Repeated names keep their first index.
+     */
+    public void addNamedType(final String fullName) {
+        if (namedTypes == null) {
+            namedTypes = new HashMap<String, Integer>();
+        }
+        if (!namedTypes.containsKey(fullName)) {
+            namedTypes.put(fullName, namedTypes.size());
+        }
+    }
+
+    public int namedTypeCount() {
+        return namedTypes == null ? 0 : namedTypes.size();
+    }
+
+    /**
+     * @return the index of a named type already written, or -1 if it has not been written
+     */
+    public int namedTypeIndex(final String fullName) {
+        final Integer index = namedTypes == null ? null : namedTypes.get(fullName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Marks a record as being written until closeRecord
+     *
+     * @return false if the record is already being written, it refers to itself
+     */
+    public boolean openRecord(final String fullName) {
+        if (openRecords == null) {
+            openRecords = new HashSet<String>();
+        }
+        return openRecords.add(fullName);
+    }
+
+    public void closeRecord(final String fullName) {
+        openRecords.remove(fullName);
+    }
+
+    /**
+     * Collects free text in the order it was written, LosslessCodec writes it after the bits as one block
+     */
+    public void addText(final String text) {
+        if (texts == null) {
+            texts = new ArrayList<String>();
+        }
+        texts.add(text);
+    }
+
+    public List<String> texts() {
+        return texts == null ? Collections.<String>emptyList() : texts;
+    }
+
+    /**
+     * Stores the whole bytes of the word and keeps the bits of a partial byte, which start on a byte boundary
+     */
+    private void storeWholeBytes() {
+        final int partialBits = wordBits & 7;
+        int index = (position - wordBits) >>> 3;
+        for (int shift = wordBits - Byte.SIZE; shift >= partialBits; shift -= Byte.SIZE) {
+            store(index++, (int) (word >>> shift));
+        }
+        word &= (1L << partialBits) - 1;
+        wordBits = partialBits;
+    }
+
+    /**
+     * Stores a full word as 8 bytes, most significant byte first
+     */
+    private void storeWord(final int index, final long value) {
+        if (target != null) {
+            if (offset + index + Long.SIZE / Byte.SIZE > target.limit())
+                throw new BufferOverflowException();
+            if (target.order() == ByteOrder.BIG_ENDIAN) {
+                target.putLong(offset + index, value);
+                return;
+            }
+            for (int i = 0; i < Long.SIZE / Byte.SIZE; i++) {
+                target.put(offset + index + i, (byte) (value >>> (Long.SIZE - Byte.SIZE * (i + 1))));
+            }
+            return;
+        }
+        if (index + Long.SIZE / Byte.SIZE > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(index + Long.SIZE / Byte.SIZE, bytes.length * 2));
+        }
+        bytes[index] = (byte) (value >>> 56);
+        bytes[index + 1] = (byte) (value >>> 48);
+        bytes[index + 2] = (byte) (value >>> 40);
+        bytes[index + 3] = (byte) (value >>> 32);
+        bytes[index + 4] = (byte) (value >>> 24);
+        bytes[index + 5] = (byte) (value >>> 16);
+        bytes[index + 6] = (byte) (value >>> 8);
+        bytes[index + 7] = (byte) value;
+    }
+
+    private int load(final int index) {
+        return target == null ? bytes[index] : target.get(offset + index);
+    }
+
+    private void store(final int index, final int value) {
+        if (target != null) {
+            if (offset + index >= target.limit())
+                throw new BufferOverflowException();
+            target.put(offset + index, (byte) value);
+            return;
+        }
+        if (index >= bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(index + 1, bytes.length * 2));
+        }
+        bytes[index] = (byte) value;
+    }
+}
@@ -0,0 +1,80 @@
+package org.avro.compactor.codec;
+
+/**
+ * Encodes and decodes a count, length or size in a given number of bits
+ *    - Fixed counts are stored in the bits as they are, so they must be less than 2^bits
+ *    - Variable counts less than 2^bits - 1 are stored the same way. All ones is an escape followed by
+ *      the rest of the count as an Elias-gamma code, so any int can be stored
+ *
+ * Counts are primitive ints, so this is not a BitCodec.
+ */
+public final class CountCodec {
+
+    private static final int MAX_GAMMA_ZEROS = Integer.SIZE - 1;
+
+    private final int bits;
+    private final boolean variable;
+    private final int escape;
+    private final int maxCount;
+
+    public CountCodec(final int bits, final boolean variable) {
+        this.bits = bits;
+        this.variable = variable;
+        this.escape = (1 << bits) - 1;
+        this.maxCount = variable ? Integer.MAX_VALUE : escape;
+    }
+
+    public int maxCount() {
+        return maxCount;
+    }
+
+    public int sizeOf(final int count) {
+        if (!variable || count < escape) {
+            return bits;
+        }
+        return bits + 2 * bitsFor(gammaValue(count)) - 1;
+    }
+
+    public void encode(final int count, BitWriter writer) {
+        final BitCategory previous = writer.enter(BitCategory.COUNTS);
+        if (!variable || count < escape) {
+            writer.putBits(count, bits);
+        } else {
+            final long value = gammaValue(count);
+            final int length = bitsFor(value);
+            writer.putBits(escape, bits);
+            writer.putBits(0, length - 1);
+            writer.putBits(value, length);
+        }
+        writer.exit(previous);
+    }
+
+    public int decode(BitReader reader) {
+        final int count = reader.getBits(bits);
+        if (!variable || count < escape) {
+            return count;
+        }
+        int zeros = 0;
+        while (reader.getBits(1) == 0) {
+            zeros++;
+            if (zeros > MAX_GAMMA_ZEROS)
+                throw new IllegalArgumentException("Variable length count is too long. Found more than " + MAX_GAMMA_ZEROS + " leading zeros");
+        }
+        final long value = ((1L << zeros) | reader.getLong(zeros)) - 1 + escape;
+        if (value > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Variable length count is larger than " + Integer.MAX_VALUE + ". Found " + value);
+        return (int) value;
+    }
+
+    public void skip(BitReader reader) {
+        decode(reader);
+    }
+
+    private long gammaValue(final int count) {
+        return (long) count - escape + 1;
+    }
+
+    private static int bitsFor(final long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+}
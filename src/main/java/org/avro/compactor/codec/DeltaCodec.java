@@ -0,0 +1,634 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.field.LogicalTypeCodec;
+import org.avro.compactor.codec.field.TypeCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes a schema as a patch against a base schema
+ *    - A presence bit for the text block, then the deflated doc, alias, property and json default texts of the
+ *      inserted and changed fields, like LOSSLESS. The block comes first so the reader has the texts before the edits
+ *    - Then each named type of the base is flagged in 1 bit, in the order they are first visited.
+ *      Flagged types are unchanged in the schema, so new parts can refer back to them like NAMED_TYPE_REFERENCES
+ *    - Then each node is a 2 bit edit: SAME keeps the base node, REPLACE is followed by the new node in full
+ *      and EDIT changes the base node in place. A node is only SAME when its docs, aliases, defaults and orders
+ *      are the same at every level too, Schema.equals leaves out docs and aliases
+ *    - Record fields, enum symbols and union types are edited as a list of ops. Each op is 2 bits followed by
+ *      how many base items are kept before it: INSERT a new item, REMOVE the next base item or CHANGE its type.
+ *      END keeps the rest of the base items
+ *    - Array items and map values are edited as a node
+ *    - An edited node ends with a 1 bit attributes flag. A set flag is followed by its own doc, error flag and aliases
+ *      for a record, doc and aliases for an enum, and properties for any type, otherwise it keeps those of the base
+ *    - Records and enums are only edited in place when they keep their full name and do not refer to themselves,
+ *      otherwise they are replaced
+ *    - A field is changed when anything about it changes. Inserted and changed fields are followed by their doc, aliases,
+ *      order, default and properties as LosslessCodec writes them, the default as Avro binary where it reads back the same
+ *
+ * Kept fields keep everything from the base. Inserted and replaced parts are written like LOSSLESS, so nothing is dropped.
+ */
+public class DeltaCodec {
+
+    private static final int TEXTS_BITS = 1;
+    private static final int KEPT_BITS = 1;
+    private static final int EDIT_BITS = 2;
+    private static final int SAME = 0;
+    private static final int REPLACE = 1;
+    private static final int EDIT = 2;
+    private static final int ATTRIBUTES_BITS = 1;
+    private static final int ERROR_BITS = 1;
+
+    private static final int OP_BITS = 2;
+    private static final int END = 0;
+    private static final int INSERT = 1;
+    private static final int REMOVE = 2;
+    private static final int CHANGE = 3;
+
+    private static final CountCodec KEEP_CODEC = new CountCodec(4, true);
+    private static final Profile PROFILE = Profile.DEFAULT.withVariableLength(true);
+
+    private final NameCodec nameCodec = new NameCodec(PROFILE);
+    private final FieldCodec fieldCodec = new FieldCodec(nameCodec, nameCodec,
+        EnumSet.of(Feature.NAMED_TYPE_REFERENCES, Feature.VARIABLE_LENGTH, Feature.LOSSLESS), PROFILE);
+
+    public void encode(final Schema base, final Schema schema, final BitWriter writer) {
+        // The texts are only known once the edits are written, and go before them
+        final BitWriter edits = new BitWriter();
+        final Map<String, Schema> namedTypes = namedTypes(schema);
+        for (final Map.Entry<String, Schema> baseType : namedTypes(base).entrySet()) {
+            final Schema namedType = namedTypes.get(baseType.getKey());
+            final boolean kept = namedType != null && isSame(baseType.getValue(), namedType);
+            edits.putBits(kept ? 1 : 0, KEPT_BITS);
+            if (kept) {
+                edits.addNamedType(baseType.getKey());
+            }
+        }
+        final Set<String> recursive = recursiveNames(base);
+        recursive.addAll(recursiveNames(schema));
+        new Encoder(recursive, edits).node(base, schema);
+        final List<String> texts = edits.texts();
+        writer.putBits(texts.isEmpty() ? 0 : 1, TEXTS_BITS);
+        if (!texts.isEmpty()) {
+            LosslessCodec.encodeTexts(texts, writer);
+        }
+        writer.putBits(edits);
+    }
+
+    public Schema decode(final Schema base, final BitReader reader) {
+        if (reader.getBits(TEXTS_BITS) == 1) {
+            LosslessCodec.decodeTexts(reader);
+        }
+        for (final Schema baseType : namedTypes(base).values()) {
+            if (reader.getBits(KEPT_BITS) == 1) {
+                reader.addNamedType(baseType);
+            }
+        }
+        return new Decoder(reader).node(base);
+    }
+
+    private final class Encoder {
+
+        private final Set<String> recursive;
+        private final BitWriter writer;
+
+        Encoder(final Set<String> recursive, final BitWriter writer) {
+            this.recursive = recursive;
+            this.writer = writer;
+        }
+
+        void node(final Schema base, final Schema schema) {
+            if (isSame(base, schema)) {
+                writer.putBits(SAME, EDIT_BITS);
+            } else if (isEditable(base, schema)) {
+                writer.putBits(EDIT, EDIT_BITS);
+                edit(base, schema);
+                attributes(base, schema);
+                if (TypeCodec.isNamed(schema.getType())) {
+                    writer.addNamedType(schema.getFullName());
+                }
+            } else {
+                writer.putBits(REPLACE, EDIT_BITS);
+                fieldCodec.encode(schema, writer);
+            }
+        }
+
+        private boolean isEditable(final Schema base, final Schema schema) {
+            if (base.getType() != schema.getType() || LogicalTypeCodec.nameOf(base) != null || LogicalTypeCodec.nameOf(schema) != null) {
+                return false;
+            }
+            switch (schema.getType()) {
+                case RECORD:
+                case ENUM:
+                    // A named type already written is cheaper as a back-reference
+                    return base.getFullName().equals(schema.getFullName()) && !recursive.contains(schema.getFullName())
+                        && writer.namedTypeIndex(schema.getFullName()) < 0;
+                case UNION:
+                case ARRAY:
+                case MAP:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void edit(final Schema base, final Schema schema) {
+            switch (schema.getType()) {
+                case RECORD:
+                    final List<Field> baseFields = base.getFields();
+                    final List<Field> fields = schema.getFields();
+                    list(fieldNames(baseFields), fieldNames(fields), new ListEdit() {
+                        @Override
+                        boolean same(final int baseIndex, final int index) {
+                            return isSame(baseFields.get(baseIndex), fields.get(index));
+                        }
+
+                        @Override
+                        void insert(final int index) {
+                            nameCodec.encode(fields.get(index).name(), writer);
+                            fieldCodec.encode(fields.get(index).schema(), writer);
+                            LosslessCodec.encodeField(fields.get(index), writer);
+                        }
+
+                        @Override
+                        void change(final int baseIndex, final int index) {
+                            node(baseFields.get(baseIndex).schema(), fields.get(index).schema());
+                            LosslessCodec.encodeField(fields.get(index), writer);
+                        }
+                    });
+                    break;
+                case ENUM:
+                    final List<String> symbols = schema.getEnumSymbols();
+                    list(base.getEnumSymbols(), symbols, new ListEdit() {
+                        @Override
+                        void insert(final int index) {
+                            nameCodec.encode(symbols.get(index), writer);
+                        }
+                    });
+                    break;
+                case UNION:
+                    final List<Schema> baseTypes = base.getTypes();
+                    final List<Schema> types = schema.getTypes();
+                    list(unionKeys(baseTypes), unionKeys(types), new ListEdit() {
+                        @Override
+                        boolean same(final int baseIndex, final int index) {
+                            return isSame(baseTypes.get(baseIndex), types.get(index));
+                        }
+
+                        @Override
+                        void insert(final int index) {
+                            fieldCodec.encode(types.get(index), writer);
+                        }
+
+                        @Override
+                        void change(final int baseIndex, final int index) {
+                            node(baseTypes.get(baseIndex), types.get(index));
+                        }
+                    });
+                    break;
+                case ARRAY:
+                    node(base.getElementType(), schema.getElementType());
+                    break;
+                case MAP:
+                    node(base.getValueType(), schema.getValueType());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Type " + schema.getType() + " can not be edited");
+            }
+        }
+
+        private void attributes(final Schema base, final Schema schema) {
+            final boolean changed = !hasSameAttributes(base, schema);
+            writer.putBits(changed ? 1 : 0, ATTRIBUTES_BITS);
+            if (!changed) {
+                return;
+            }
+            final BitCategory previous = writer.enter(BitCategory.METADATA);
+            if (schema.getType() == Type.RECORD || schema.getType() == Type.ENUM) {
+                LosslessCodec.encodeText(schema.getDoc(), writer);
+                if (schema.getType() == Type.RECORD) {
+                    writer.putBits(schema.isError() ? 1 : 0, ERROR_BITS);
+                }
+                LosslessCodec.encodeAliases(schema.getAliases(), writer);
+            }
+            LosslessCodec.encodeProps(schema, writer);
+            writer.exit(previous);
+        }
+
+        /**
+         * Walks the items in order, base items missing from the rest of the list are removed,
+         * base items with the next key are kept or changed and anything else is inserted
+         */
+        private void list(final List<String> baseKeys, final List<String> keys, final ListEdit edit) {
+            final Set<String> remaining = new HashSet<String>(keys);
+            int baseIndex = 0;
+            int kept = 0;
+            for (int index = 0; index < keys.size(); index++) {
+                while (baseIndex < baseKeys.size() && !remaining.contains(baseKeys.get(baseIndex))) {
+                    kept = op(REMOVE, kept);
+                    baseIndex++;
+                }
+                if (baseIndex < baseKeys.size() && baseKeys.get(baseIndex).equals(keys.get(index))) {
+                    if (edit.same(baseIndex, index)) {
+                        kept++;
+                    } else {
+                        kept = op(CHANGE, kept);
+                        edit.change(baseIndex, index);
+                    }
+                    baseIndex++;
+                } else {
+                    kept = op(INSERT, kept);
+                    edit.insert(index);
+                }
+                remaining.remove(keys.get(index));
+            }
+            for (; baseIndex < baseKeys.size(); baseIndex++) {
+                kept = op(REMOVE, kept);
+            }
+            writer.putBits(END, OP_BITS);
+        }
+
+        private int op(final int op, final int kept) {
+            writer.putBits(op, OP_BITS);
+            KEEP_CODEC.encode(kept, writer);
+            return 0;
+        }
+    }
+
+    private abstract static class ListEdit {
+
+        boolean same(final int baseIndex, final int index) {
+            return true;
+        }
+
+        abstract void insert(final int index);
+
+        void change(final int baseIndex, final int index) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class Decoder {
+
+        private final BitReader reader;
+
+        Decoder(final BitReader reader) {
+            this.reader = reader;
+        }
+
+        Schema node(final Schema base) {
+            final int edit = reader.getBits(EDIT_BITS);
+            switch (edit) {
+                case SAME:
+                    return base;
+                case REPLACE:
+                    return fieldCodec.decode(reader);
+                case EDIT:
+                    final Schema edited = edit(base);
+                    if (TypeCodec.isNamed(edited.getType())) {
+                        reader.addNamedType(edited);
+                    }
+                    return edited;
+                default:
+                    throw new IllegalArgumentException("Delta edit " + edit + " is not supported");
+            }
+        }
+
+        private Schema edit(final Schema base) {
+            switch (base.getType()) {
+                case RECORD:
+                    final List<Field> baseFields = base.getFields();
+                    final List<Field> fields = new ArrayList<Field>();
+                    list(baseFields.size(), new ListApply() {
+                        @Override
+                        void keep(final int baseIndex) {
+                            fields.add(copy(baseFields.get(baseIndex)));
+                        }
+
+                        @Override
+                        void insert() {
+                            final String name = nameCodec.decode(reader);
+                            fields.add(LosslessCodec.decodeField(name, fieldCodec.decode(reader), reader));
+                        }
+
+                        @Override
+                        void change(final int baseIndex) {
+                            final Field baseField = baseFields.get(baseIndex);
+                            fields.add(LosslessCodec.decodeField(baseField.name(), node(baseField.schema()), reader));
+                        }
+                    });
+                    final boolean recordAttributes = reader.getBits(ATTRIBUTES_BITS) == 1;
+                    final String recordDoc = recordAttributes ? LosslessCodec.decodeText(reader) : base.getDoc();
+                    final boolean error = recordAttributes ? reader.getBits(ERROR_BITS) == 1 : base.isError();
+                    final Schema record = Schema.createRecord(base.getName(), recordDoc, base.getNamespace(), error);
+                    addAliases(recordAttributes ? LosslessCodec.decodeAliases(reader) : base.getAliases(), record);
+                    record.setFields(fields);
+                    return props(recordAttributes, base, record);
+                case ENUM:
+                    final List<String> baseSymbols = base.getEnumSymbols();
+                    final List<String> symbols = new ArrayList<String>();
+                    list(baseSymbols.size(), new ListApply() {
+                        @Override
+                        void keep(final int baseIndex) {
+                            symbols.add(baseSymbols.get(baseIndex));
+                        }
+
+                        @Override
+                        void insert() {
+                            symbols.add(nameCodec.decode(reader));
+                        }
+                    });
+                    final boolean enumAttributes = reader.getBits(ATTRIBUTES_BITS) == 1;
+                    final String enumDoc = enumAttributes ? LosslessCodec.decodeText(reader) : base.getDoc();
+                    final Schema enumSchema = Schema.createEnum(base.getName(), enumDoc, base.getNamespace(), symbols);
+                    addAliases(enumAttributes ? LosslessCodec.decodeAliases(reader) : base.getAliases(), enumSchema);
+                    return props(enumAttributes, base, enumSchema);
+                case UNION:
+                    final List<Schema> baseTypes = base.getTypes();
+                    final List<Schema> types = new ArrayList<Schema>();
+                    list(baseTypes.size(), new ListApply() {
+                        @Override
+                        void keep(final int baseIndex) {
+                            types.add(baseTypes.get(baseIndex));
+                        }
+
+                        @Override
+                        void insert() {
+                            types.add(fieldCodec.decode(reader));
+                        }
+
+                        @Override
+                        void change(final int baseIndex) {
+                            types.add(node(baseTypes.get(baseIndex)));
+                        }
+                    });
+                    return props(reader.getBits(ATTRIBUTES_BITS) == 1, base, Schema.createUnion(types));
+                case ARRAY:
+                    final Schema array = Schema.createArray(node(base.getElementType()));
+                    return props(reader.getBits(ATTRIBUTES_BITS) == 1, base, array);
+                case MAP:
+                    final Schema map = Schema.createMap(node(base.getValueType()));
+                    return props(reader.getBits(ATTRIBUTES_BITS) == 1, base, map);
+                default:
+                    throw new IllegalArgumentException("Type " + base.getType() + " can not be edited");
+            }
+        }
+
+        /**
+         * @return the schema with the properties of the delta when its attributes changed, otherwise those of the base
+         */
+        private Schema props(final boolean attributes, final Schema base, final Schema schema) {
+            if (attributes) {
+                LosslessCodec.decodeProps(schema, reader);
+                return schema;
+            }
+            return copyProps(base, schema);
+        }
+
+        private void list(final int baseSize, final ListApply apply) {
+            int baseIndex = 0;
+            int op;
+            while ((op = reader.getBits(OP_BITS)) != END) {
+                final int kept = KEEP_CODEC.decode(reader);
+                if (kept > baseSize - baseIndex - (op == INSERT ? 0 : 1))
+                    throw new IllegalArgumentException("Delta keeps more items than the base has. Found " + kept + " after " + baseIndex + " of " + baseSize);
+                for (int i = 0; i < kept; i++) {
+                    apply.keep(baseIndex++);
+                }
+                switch (op) {
+                    case INSERT:
+                        apply.insert();
+                        break;
+                    case REMOVE:
+                        baseIndex++;
+                        break;
+                    default:
+                        apply.change(baseIndex++);
+                        break;
+                }
+            }
+            while (baseIndex < baseSize) {
+                apply.keep(baseIndex++);
+            }
+        }
+    }
+
+    private abstract static class ListApply {
+
+        abstract void keep(final int baseIndex);
+
+        abstract void insert();
+
+        void change(final int baseIndex) {
+            throw new IllegalArgumentException("Delta can only insert or remove enum symbols");
+        }
+    }
+
+    /**
+     * Schema.equals leaves out docs, aliases and the error flag, so those are compared at every level after it
+     */
+    private static boolean isSame(final Schema base, final Schema schema) {
+        return base.equals(schema) && hasSameAttributes(base, schema, new HashSet<String>());
+    }
+
+    /**
+     * Field.equals leaves out the doc and aliases, of the field and of the types inside it
+     */
+    private static boolean isSame(final Field base, final Field field) {
+        return base.equals(field) && hasSameAttributes(base, field)
+            && hasSameAttributes(base.schema(), field.schema(), new HashSet<String>());
+    }
+
+    /**
+     * Compares two equal schemas, which have the same shape, a named type once
+     */
+    private static boolean hasSameAttributes(final Schema base, final Schema schema, final Set<String> visited) {
+        if (TypeCodec.isNamed(base.getType()) && !visited.add(base.getFullName())) {
+            return true;
+        }
+        if (!hasSameAttributes(base, schema)) {
+            return false;
+        }
+        if (base.getType() == Type.RECORD) {
+            for (int i = 0; i < base.getFields().size(); i++) {
+                if (!hasSameAttributes(base.getFields().get(i), schema.getFields().get(i))) {
+                    return false;
+                }
+            }
+        }
+        final List<Schema> baseChildren = children(base);
+        final List<Schema> schemaChildren = children(schema);
+        for (int i = 0; i < baseChildren.size(); i++) {
+            if (!hasSameAttributes(baseChildren.get(i), schemaChildren.get(i), visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the node itself has the same doc, aliases, error flag and properties, not looking inside it
+     */
+    private static boolean hasSameAttributes(final Schema base, final Schema schema) {
+        if (!base.getObjectProps().equals(schema.getObjectProps())) {
+            return false;
+        }
+        switch (base.getType()) {
+            case RECORD:
+                return base.isError() == schema.isError() && isSame(base.getDoc(), schema.getDoc())
+                    && isSame(base.getAliases(), schema.getAliases());
+            case ENUM:
+            case FIXED:
+                return isSame(base.getDoc(), schema.getDoc()) && isSame(base.getAliases(), schema.getAliases());
+            default:
+                return true;
+        }
+    }
+
+    private static boolean hasSameAttributes(final Field base, final Field field) {
+        return isSame(base.doc(), field.doc()) && isSame(base.aliases(), field.aliases());
+    }
+
+    private static boolean isSame(final String base, final String text) {
+        return base == null ? text == null : base.equals(text);
+    }
+
+    /**
+     * Aliases in the same order, so the json reads the same
+     */
+    private static boolean isSame(final Collection<String> baseAliases, final Collection<String> aliases) {
+        return new ArrayList<String>(baseAliases).equals(new ArrayList<String>(aliases));
+    }
+
+    private static void addAliases(final Collection<String> aliases, final Schema schema) {
+        for (final String alias : aliases) {
+            schema.addAlias(alias);
+        }
+    }
+
+    /**
+     * A field belongs to one record, so a kept field is copied into the new one
+     */
+    private static Field copy(final Field field) {
+        final Field copy = new Field(field.name(), field.schema(), field.doc(), field.defaultVal(), field.order());
+        for (final String alias : field.aliases()) {
+            copy.addAlias(alias);
+        }
+        copyProps(field, copy);
+        return copy;
+    }
+
+    private static <T extends JsonProperties> T copyProps(final JsonProperties from, final T to) {
+        for (final Map.Entry<String, Object> prop : from.getObjectProps().entrySet()) {
+            to.addProp(prop.getKey(), prop.getValue());
+        }
+        return to;
+    }
+
+    private static List<String> fieldNames(final List<Field> fields) {
+        final List<String> names = new ArrayList<String>(fields.size());
+        for (final Field field : fields) {
+            names.add(field.name());
+        }
+        return names;
+    }
+
+    /**
+     * A union holds at most one type of each name, and one of each unnamed type
+     */
+    private static List<String> unionKeys(final List<Schema> types) {
+        final List<String> keys = new ArrayList<String>(types.size());
+        for (final Schema type : types) {
+            keys.add(TypeCodec.isNamed(type.getType()) ? type.getFullName() : type.getType().getName());
+        }
+        return keys;
+    }
+
+    /**
+     * @return the named types by full name, in the order they are first visited
+     */
+    static Map<String, Schema> namedTypes(final Schema schema) {
+        final Map<String, Schema> namedTypes = new LinkedHashMap<String, Schema>();
+        collectNamedTypes(schema, namedTypes);
+        return namedTypes;
+    }
+
+    private static void collectNamedTypes(final Schema schema, final Map<String, Schema> namedTypes) {
+        if (TypeCodec.isNamed(schema.getType())) {
+            if (namedTypes.containsKey(schema.getFullName())) {
+                return;
+            }
+            namedTypes.put(schema.getFullName(), schema);
+        }
+        for (final Schema child : children(schema)) {
+            collectNamedTypes(child, namedTypes);
+        }
+    }
+
+    /**
+     * @return the full names of the records that refer to themselves, directly or through other types
+     */
+    private static Set<String> recursiveNames(final Schema schema) {
+        final Set<String> recursive = new HashSet<String>();
+        for (final Schema namedType : namedTypes(schema).values()) {
+            if (namedType.getType() != Type.RECORD) {
+                continue;
+            }
+            final Set<String> visited = new HashSet<String>();
+            for (final Schema child : children(namedType)) {
+                if (refersTo(child, namedType.getFullName(), visited)) {
+                    recursive.add(namedType.getFullName());
+                    break;
+                }
+            }
+        }
+        return recursive;
+    }
+
+    private static boolean refersTo(final Schema schema, final String fullName, final Set<String> visited) {
+        if (TypeCodec.isNamed(schema.getType())) {
+            if (schema.getFullName().equals(fullName)) {
+                return true;
+            }
+            if (!visited.add(schema.getFullName())) {
+                return false;
+            }
+        }
+        for (final Schema child : children(schema)) {
+            if (refersTo(child, fullName, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Schema> children(final Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+                final List<Schema> fieldTypes = new ArrayList<Schema>();
+                for (final Field field : schema.getFields()) {
+                    fieldTypes.add(field.schema());
+                }
+                return fieldTypes;
+            case UNION:
+                return schema.getTypes();
+            case ARRAY:
+                return Collections.singletonList(schema.getElementType());
+            case MAP:
+                return Collections.singletonList(schema.getValueType());
+            default:
+                return Collections.emptyList();
+        }
+    }
+}
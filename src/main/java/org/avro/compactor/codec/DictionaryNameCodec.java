@@ -0,0 +1,112 @@
+package org.avro.compactor.codec;
+
+/**
+ * Encodes and decodes Avro schema names against a shared NameDictionary
+ *    - A 1 bit flag marks whether the name is in the dictionary
+ *    - Dictionary names are stored as an index, the most frequent names get the shortest indexes:
+ *      a 2 bit tier followed by 4, 8, 12 or 16 bits
+ *    - Other names are spelled out with the given NameCodec, NameCodec itself by default
+ */
+public class DictionaryNameCodec extends NameCodec {
+
+    private static final int FLAG_BITS = 1;
+    private static final int TIER_BITS = 2;
+    private static final int[] TIER_INDEX_BITS = {4, 8, 12, 16};
+    private static final int[] TIER_START = new int[TIER_INDEX_BITS.length + 1];
+
+    static {
+        for (int tier = 0; tier < TIER_INDEX_BITS.length; tier++) {
+            TIER_START[tier + 1] = TIER_START[tier] + (int) Math.pow(2, TIER_INDEX_BITS[tier]);
+        }
+    }
+
+    public static final int MAX_DICTIONARY_SIZE = TIER_START[TIER_INDEX_BITS.length];
+
+    private final NameDictionary dictionary;
+    private final NameCodec spelledCodec;
+
+    public DictionaryNameCodec(final NameDictionary dictionary) {
+        this(dictionary, Profile.DEFAULT);
+    }
+
+    /**
+     * Names that are not in the dictionary are spelled out with the profile's widths
+     */
+    public DictionaryNameCodec(final NameDictionary dictionary, final Profile profile) {
+        this(dictionary, new NameCodec(profile));
+    }
+
+    /**
+     * Names that are not in the dictionary are spelled out with the spelled codec
+     */
+    public DictionaryNameCodec(final NameDictionary dictionary, final NameCodec spelledCodec) {
+        if (dictionary.size() > MAX_DICTIONARY_SIZE)
+            throw new IllegalArgumentException("Dictionary can hold up to " + MAX_DICTIONARY_SIZE + " names. Found " + dictionary.size());
+        this.dictionary = dictionary;
+        this.spelledCodec = spelledCodec;
+    }
+
+    public NameDictionary dictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void validate(final String name) {
+        if (dictionary.indexOf(name) < 0) {
+            spelledCodec.validate(name);
+        }
+    }
+
+    @Override
+    public int sizeOf(final String name) {
+        final int index = dictionary.indexOf(name);
+        if (index < 0) {
+            return FLAG_BITS + spelledCodec.sizeOf(name);
+        }
+        return FLAG_BITS + TIER_BITS + TIER_INDEX_BITS[tierOf(index)];
+    }
+
+    @Override
+    public void encode(final String name, BitWriter writer) {
+        final int index = dictionary.indexOf(name);
+        if (index < 0) {
+            final BitCategory previous = writer.enter(BitCategory.NAMES);
+            writer.putBits(0, FLAG_BITS);
+            writer.exit(previous);
+            spelledCodec.encode(name, writer);
+            return;
+        }
+        final int tier = tierOf(index);
+        final BitCategory previous = writer.enter(BitCategory.NAMES);
+        writer.putBits(1, FLAG_BITS);
+        writer.putBits(tier, TIER_BITS);
+        writer.putBits(index - TIER_START[tier], TIER_INDEX_BITS[tier]);
+        writer.exit(previous);
+    }
+
+    @Override
+    public String decode(BitReader reader) {
+        if (reader.getBits(FLAG_BITS) == 0) {
+            return spelledCodec.decode(reader);
+        }
+        final int tier = reader.getBits(TIER_BITS);
+        return dictionary.get(TIER_START[tier] + reader.getBits(TIER_INDEX_BITS[tier]));
+    }
+
+    @Override
+    public void skip(BitReader reader) {
+        if (reader.getBits(FLAG_BITS) == 0) {
+            spelledCodec.skip(reader);
+            return;
+        }
+        reader.skip(TIER_INDEX_BITS[reader.getBits(TIER_BITS)]);
+    }
+
+    private static int tierOf(final int index) {
+        int tier = 0;
+        while (index >= TIER_START[tier + 1]) {
+            tier++;
+        }
+        return tier;
+    }
+}
@@ -0,0 +1,59 @@
+package org.avro.compactor.codec;
+
+/**
+ * Optional encoding features recorded in the version 2 header
+ *    - Each feature is stored as one flag bit, in ordinal order
+ */
+public enum Feature {
+
+    /**
+     * Named types (record, enum, fixed) are written in full once and then as a back-reference index
+     *    - Repeated types are only paid for once
+     *    - Recursive types can be encoded
+     */
+    NAMED_TYPE_REFERENCES,
+
+    /**
+     * Record and union bodies are prefixed with their length in bits
+     *    - Lets a SchemaView jump over fields it does not need
+     *    - Costs 24 bits per record and union
+     */
+    OFFSET_INDEX,
+
+    /**
+     * Names and symbols are looked up in a NameDictionary shared by the reader and the writer
+     *    - Dictionary names are written as a short index
+     *    - The dictionary itself is not written, readers must be built with the same dictionary
+     */
+    DICTIONARY,
+
+    /**
+     * The header holds a Profile with the narrowest widths that fit the schema, chosen by SchemaAnalyzer
+     *    - Lowercase names use 5 bit characters, small records use small field counts, etc
+     *    - Costs 19 bits in the header, so it is only written when it saves more than it costs
+     */
+    PROFILE,
+
+    /**
+     * Counts, lengths and sizes that do not fit their width are escaped and written as an Elias-gamma code
+     *    - Lifts the limits on fields, symbols, union types, name length and fixed size
+     *    - Values that fit cost the same as without it, except the all ones value which is now the escape
+     */
+    VARIABLE_LENGTH,
+
+    /**
+     * Name characters are written with a canonical Huffman code instead of 6 bits each, see HuffmanTable
+     *    - The header holds 1 bit for the built-in table, or 33 bits to reference a custom table by its fingerprint
+     *    - Readers of a custom table must be built with the same table
+     */
+    HUFFMAN_NAMES,
+
+    /**
+     * Namespaces, docs, aliases, field order, defaults and other properties are kept, see LosslessCodec
+     *    - The decoded schema equals the original, for storage where round-tripping has to be exact
+     *    - Text is deflated into one block after the field tree, defaults are written as Avro binary
+     *    - Schemas can not be read in parts
+     */
+    LOSSLESS
+
+}
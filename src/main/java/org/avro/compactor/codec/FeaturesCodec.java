@@ -0,0 +1,54 @@
+package org.avro.compactor.codec;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Encodes and decodes the set of enabled features
+ *    - The features are stored as 8 flag bits
+ */
+public class FeaturesCodec implements BitCodec<Set<Feature>> {
+
+    private static final int FEATURES_BITS = 8;
+    private static final Feature[] FEATURES = Feature.values();
+
+    public FeaturesCodec() {}
+
+    public void validate(final Set<Feature> features) {
+        if (FEATURES.length > FEATURES_BITS)
+            throw new IllegalStateException("Only " + FEATURES_BITS + " feature flags are supported. Found " + FEATURES.length);
+    }
+
+    public int sizeOf(final Set<Feature> features) {
+        validate(features);
+        return FEATURES_BITS;
+    }
+
+    public void encode(final Set<Feature> features, BitWriter writer) {
+        validate(features);
+        int flags = 0;
+        for (final Feature feature : features) {
+            flags |= 1 << feature.ordinal();
+        }
+        writer.putBits(flags, FEATURES_BITS);
+    }
+
+    public Set<Feature> decode(BitReader reader) {
+        final int flags = reader.getBits(FEATURES_BITS);
+        final Set<Feature> features = EnumSet.noneOf(Feature.class);
+        for (int i = 0; i < FEATURES_BITS; i++) {
+            if ((flags & (1 << i)) == 0) {
+                continue;
+            }
+            if (i >= FEATURES.length)
+                throw new IllegalArgumentException("Unknown feature flag " + i);
+            features.add(FEATURES[i]);
+        }
+        return features;
+    }
+
+    public void skip(BitReader reader) {
+        reader.skip(FEATURES_BITS);
+    }
+
+}
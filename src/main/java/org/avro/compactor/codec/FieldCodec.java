@@ -1,70 +1,306 @@
 package org.avro.compactor.codec;
 
-import net.magik6k.bitbuffer.BitBuffer;
+import org.apache.avro.LogicalType;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
+import org.avro.compactor.cache.SchemaInterner;
 import org.avro.compactor.codec.field.ArrayCodec;
 import org.avro.compactor.codec.field.EnumCodec;
 import org.avro.compactor.codec.field.FixedCodec;
+import org.avro.compactor.codec.field.LogicalTypeCodec;
 import org.avro.compactor.codec.field.MapCodec;
 import org.avro.compactor.codec.field.TypeCodec;
 import org.avro.compactor.codec.field.PrimitiveCodec;
 import org.avro.compactor.codec.field.RecordCodec;
 import org.avro.compactor.codec.field.UnionCodec;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * TODO: Support LogicalType
+ * Encodes and decodes any Avro schema by its type
+ *    - The type is encoded/decoded with TypeCodec
+ *    - A standard logical type is written before the type as the logical type marker followed by LogicalTypeCodec.
+ *      Back-references carry no marker, the named type they point to already has its logical type
+ *    - With NAMED_TYPE_REFERENCES a named type is followed by a 1 bit reference flag.
+ *      A set flag is followed by the index of an earlier named type, stored in just enough bits
+ *      to address the named types seen so far
+ *    - With OFFSET_INDEX record and union bodies are prefixed with their length in 24 bits,
+ *      so they can be skipped without reading them
+ *    - Counts and sizes are stored in the widths of the Profile
+ *    - With LOSSLESS each type is followed by its properties, and the named type and field codecs
+ *      keep their write time parts, see LosslessCodec
+ *    - With a SchemaInterner each decoded type is swapped for its canonical instance, children first.
+ *      Lossless schemas are not interned, Schema.equals ignores docs and aliases
  */
 public class FieldCodec implements BitCodec<Schema> {
 
+    private static final int REFERENCE_FLAG_BITS = 1;
+    private static final int LENGTH_BITS = 24;
+    private static final int MAX_LENGTH = (int) Math.pow(2, LENGTH_BITS) - 1;
+
     private final Map<Type, BitCodec<Schema>> fieldCodecs = new HashMap<Type, BitCodec<Schema>>();
+    private final RecordCodec recordCodec;
+    private final UnionCodec unionCodec;
+    private final EnumCodec enumCodec;
+    private final FixedCodec fixedCodec;
+    private final boolean namedTypeReferences;
+    private final boolean offsetIndex;
+    private final boolean lossless;
+    private final SchemaInterner interner;
 
     public FieldCodec(final NameCodec nameCodec, final NameCodec symbolCodec) {
+        this(nameCodec, symbolCodec, Collections.<Feature>emptySet());
+    }
+
+    public FieldCodec(final NameCodec nameCodec, final NameCodec symbolCodec, final Set<Feature> features) {
+        this(nameCodec, symbolCodec, features, Profile.DEFAULT);
+    }
+
+    /**
+     * The name codecs should be built with the same profile
+     */
+    public FieldCodec(final NameCodec nameCodec, final NameCodec symbolCodec, final Set<Feature> features, final Profile profile) {
+        this(nameCodec, symbolCodec, features, profile, null);
+    }
+
+    public FieldCodec(final NameCodec nameCodec, final NameCodec symbolCodec, final Set<Feature> features, final Profile profile,
+                      final SchemaInterner interner) {
+        this.namedTypeReferences = features.contains(Feature.NAMED_TYPE_REFERENCES);
+        this.offsetIndex = features.contains(Feature.OFFSET_INDEX);
+        this.lossless = features.contains(Feature.LOSSLESS);
+        this.interner = lossless ? null : interner;
+        this.recordCodec = new RecordCodec(nameCodec, this, profile, lossless);
+        this.unionCodec = new UnionCodec(this, profile);
+        this.enumCodec = new EnumCodec(nameCodec, symbolCodec, profile, lossless);
+        this.fixedCodec = new FixedCodec(nameCodec, profile, lossless);
+
         // Primitive
         for (Type type : TypeCodec.primitiveTypes) {
             fieldCodecs.put(type, new PrimitiveCodec(type));
         }
 
         // Complex
-        fieldCodecs.put(Type.RECORD, new RecordCodec(nameCodec, this));
-        fieldCodecs.put(Type.UNION, new UnionCodec(this));
+        fieldCodecs.put(Type.RECORD, recordCodec);
+        fieldCodecs.put(Type.UNION, unionCodec);
         fieldCodecs.put(Type.ARRAY, new ArrayCodec(this));
         fieldCodecs.put(Type.MAP, new MapCodec(this));
-        fieldCodecs.put(Type.ENUM, new EnumCodec(nameCodec, symbolCodec));
-        fieldCodecs.put(Type.FIXED, new FixedCodec(nameCodec));
+        fieldCodecs.put(Type.ENUM, enumCodec);
+        fieldCodecs.put(Type.FIXED, fixedCodec);
     }
 
     public void validate(final Schema schema) {
-        final Type type = schema.getType();
-        TypeCodec.validate(type);
-        if(fieldCodecs.containsKey(type)) {
-            fieldCodecs.get(type).validate(schema);
-        } else {
-            throw new UnsupportedOperationException("Fields of type " + type + " are not supported");
-        }
+        codecFor(schema).validate(schema);
     }
 
     public int sizeOf(final Schema schema) {
-        validate(schema);
+        // The text block is deflated, so its size is only known by encoding
+        if (lossless)
+            throw new UnsupportedOperationException("Schemas encoded with " + Feature.LOSSLESS + " can only be sized by encoding them");
+        final BitCodec<Schema> codec = codecFor(schema);
         int size = 0;
-        final Type type = schema.getType();
-        size += TypeCodec.sizeOf(type);
-        size += fieldCodecs.get(type).sizeOf(schema);
+        if (LogicalTypeCodec.nameOf(schema) != null) {
+            size += TypeCodec.sizeOfLogical();
+            size += LogicalTypeCodec.sizeOf(schema);
+        }
+        size += TypeCodec.sizeOf(schema.getType());
+        if (isIndexed(schema.getType())) {
+            size += LENGTH_BITS;
+        }
+        size += codec.sizeOf(schema);
         return size;
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
-        validate(schema);
+    public void encode(final Schema schema, BitWriter writer) {
+        final BitCodec<Schema> codec = codecFor(schema);
         final Type type = schema.getType();
-        TypeCodec.encode(type, buffer);
-        fieldCodecs.get(type).encode(schema, buffer);
+        final int index = namedTypeReferences && TypeCodec.isNamed(type) ? writer.namedTypeIndex(schema.getFullName()) : -1;
+        if (index < 0 && LogicalTypeCodec.nameOf(schema) != null) {
+            TypeCodec.encodeLogical(writer);
+            LogicalTypeCodec.encode(schema, writer);
+        }
+        TypeCodec.encode(type, writer);
+        if (namedTypeReferences && TypeCodec.isNamed(type)) {
+            writer.putBits(index < 0 ? 0 : 1, REFERENCE_FLAG_BITS);
+            if (index >= 0) {
+                writer.putBits(index, referenceBits(writer.namedTypeCount()));
+                return;
+            }
+        }
+        if (isIndexed(type)) {
+            final int lengthPosition = writer.position();
+            writer.putBits(0, LENGTH_BITS);
+            codec.encode(schema, writer);
+            final int length = writer.position() - lengthPosition - LENGTH_BITS;
+            if (length > MAX_LENGTH)
+                throw new IllegalArgumentException("Offset index only supports " + type + " bodies up to " + MAX_LENGTH + " bits. Found " + length);
+            writer.putBitsAt(lengthPosition, length, LENGTH_BITS);
+        } else {
+            codec.encode(schema, writer);
+        }
+        if (lossless) {
+            LosslessCodec.encodeProps(schema, writer);
+        }
+    }
+
+    public Schema decode(BitReader reader) {
+        if (interner == null) {
+            return read(reader);
+        }
+        final int recursiveReferences = reader.recursiveReferenceCount();
+        final Schema schema = read(reader);
+        // A subtree that refers back to a record still being decoded can not be hashed yet
+        if (reader.recursiveReferenceCount() != recursiveReferences) {
+            return schema;
+        }
+        final Schema canonical = interner.intern(schema);
+        if (canonical != schema && TypeCodec.isNamed(schema.getType())) {
+            reader.replaceNamedType(schema, canonical);
+        }
+        return canonical;
+    }
+
+    private Schema read(BitReader reader) {
+        final byte id = TypeCodec.decodeId(reader);
+        if (TypeCodec.isLogical(id)) {
+            // Read without interning, adding the logical type changes the schema
+            final LogicalType logicalType = LogicalTypeCodec.decode(reader);
+            return logicalType.addToSchema(read(reader));
+        }
+        final Type type = TypeCodec.typeOf(id);
+        if (namedTypeReferences && TypeCodec.isNamed(type) && reader.getBits(REFERENCE_FLAG_BITS) == 1) {
+            final int index = reader.getBits(referenceBits(reader.namedTypeCount()));
+            if (reader.isOpenRecord(index)) {
+                reader.addRecursiveReference();
+            }
+            return reader.namedType(index);
+        }
+        if (isIndexed(type)) {
+            reader.skip(LENGTH_BITS);
+        }
+        final Schema schema;
+        if (interner != null && namedTypeReferences && type == Type.RECORD) {
+            // The record takes the next named type index
+            final int index = reader.namedTypeCount();
+            reader.openRecord(index);
+            schema = fieldCodecs.get(type).decode(reader);
+            reader.closeRecord(index);
+        } else {
+            schema = fieldCodecs.get(type).decode(reader);
+        }
+        if (lossless) {
+            LosslessCodec.decodeProps(schema, reader);
+        }
+        return schema;
+    }
+
+    public void skip(BitReader reader) {
+        checkReadableInParts();
+        final Type type = decodeSkippingLogicalType(reader);
+        if (isIndexed(type)) {
+            reader.skip(reader.getBits(LENGTH_BITS));
+        } else {
+            fieldCodecs.get(type).skip(reader);
+        }
+    }
+
+    /**
+     * Reads the logical type written before a type, if any, leaving the reader at the type for decodeType
+     *
+     * @return the logical type, or null if the type has none
+     */
+    public LogicalType decodeLogicalType(BitReader reader) {
+        checkReadableInParts();
+        if (!TypeCodec.isLogical(TypeCodec.peekId(reader))) {
+            return null;
+        }
+        TypeCodec.decodeId(reader);
+        return LogicalTypeCodec.decode(reader);
+    }
+
+    /**
+     * Reads a type and any logical type or length prefix around it, leaving the reader at the start of the type's body
+     */
+    public Type decodeType(BitReader reader) {
+        checkReadableInParts();
+        final Type type = decodeSkippingLogicalType(reader);
+        if (isIndexed(type)) {
+            reader.skip(LENGTH_BITS);
+        }
+        return type;
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final Type type = TypeCodec.decode(buffer);
-        return fieldCodecs.get(type).decode(buffer);
+    /**
+     * @return true if the whole schema must be written with LosslessCodec, which holds its text
+     */
+    public boolean isLossless() {
+        return lossless;
+    }
+
+    public RecordCodec recordCodec() {
+        return recordCodec;
+    }
+
+    public UnionCodec unionCodec() {
+        return unionCodec;
+    }
+
+    public EnumCodec enumCodec() {
+        return enumCodec;
+    }
+
+    public FixedCodec fixedCodec() {
+        return fixedCodec;
+    }
+
+    /**
+     * @return true if record and union bodies are prefixed with their length, so skip jumps over them
+     */
+    public boolean isOffsetIndexed() {
+        return offsetIndex;
+    }
+
+    /**
+     * @return true if parts of a schema can be skipped and read on their own, see SchemaView
+     */
+    public boolean isReadableInParts() {
+        return !namedTypeReferences && !lossless;
+    }
+
+    private void checkReadableInParts() {
+        // A back-reference depends on every named type before it, so parts can not be read alone
+        if (namedTypeReferences)
+            throw new UnsupportedOperationException("Schemas encoded with " + Feature.NAMED_TYPE_REFERENCES + " can not be read in parts");
+        // Text is read in the order it was written, so skipping a part would lose its place
+        if (lossless)
+            throw new UnsupportedOperationException("Schemas encoded with " + Feature.LOSSLESS + " can not be read in parts");
+    }
+
+    private static Type decodeSkippingLogicalType(final BitReader reader) {
+        byte id = TypeCodec.decodeId(reader);
+        if (TypeCodec.isLogical(id)) {
+            LogicalTypeCodec.skip(reader);
+            id = TypeCodec.decodeId(reader);
+        }
+        return TypeCodec.typeOf(id);
+    }
+
+    private boolean isIndexed(final Type type) {
+        return offsetIndex && (type == Type.RECORD || type == Type.UNION);
+    }
+
+    private static int referenceBits(final int namedTypeCount) {
+        return namedTypeCount <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(namedTypeCount - 1);
+    }
+
+    private BitCodec<Schema> codecFor(final Schema schema) {
+        final Type type = schema.getType();
+        TypeCodec.validate(type);
+        final BitCodec<Schema> codec = fieldCodecs.get(type);
+        if (codec == null)
+            throw new UnsupportedOperationException("Fields of type " + type + " are not supported");
+        return codec;
     }
 }
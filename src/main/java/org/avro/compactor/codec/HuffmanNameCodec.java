@@ -0,0 +1,107 @@
+package org.avro.compactor.codec;
+
+/**
+ * Encodes and decodes Avro schema names with a HuffmanTable
+ *    - The size is stored as in NameCodec
+ *    - Each character is stored as its Huffman code, common characters take 3 or 4 bits instead of 6
+ *    - Codes are packed into a 64 bit word before being written
+ *    - Codes are read from a 56 bit lookahead window, each with one table lookup
+ */
+public class HuffmanNameCodec extends NameCodec {
+
+    private static final int WINDOW_BITS = Long.SIZE - Byte.SIZE;
+
+    private final HuffmanTable table;
+
+    public HuffmanNameCodec(final HuffmanTable table) {
+        this(table, Profile.DEFAULT);
+    }
+
+    /**
+     * Only the profile's name length width is used, characters are always Huffman coded
+     */
+    public HuffmanNameCodec(final HuffmanTable table, final Profile profile) {
+        super(profile);
+        this.table = table;
+    }
+
+    public HuffmanTable table() {
+        return table;
+    }
+
+    @Override
+    protected void validateChars(final String name) {
+        for (int i = 0; i < name.length(); i++) {
+            symbolOf(name.charAt(i));
+        }
+    }
+
+    @Override
+    protected int sizeOfChars(final String name) {
+        int size = 0;
+        for (int i = 0; i < name.length(); i++) {
+            size += table.length(symbolOf(name.charAt(i)));
+        }
+        return size;
+    }
+
+    @Override
+    protected void encodeChars(final String name, BitWriter writer) {
+        long word = 0;
+        int wordBits = 0;
+        for (int i = 0; i < name.length(); i++) {
+            final int symbol = symbolOf(name.charAt(i));
+            final int length = table.length(symbol);
+            if (wordBits + length > Long.SIZE) {
+                writer.putBits(word, wordBits);
+                word = 0;
+                wordBits = 0;
+            }
+            word = (word << length) | table.code(symbol);
+            wordBits += length;
+        }
+        writer.putBits(word, wordBits);
+    }
+
+    @Override
+    protected String decodeChars(final int size, BitReader reader) {
+        final char[] chars = new char[size];
+        decode(size, reader, chars);
+        return new String(chars);
+    }
+
+    @Override
+    protected void skipChars(final int size, BitReader reader) {
+        decode(size, reader, null);
+    }
+
+    /**
+     * Decodes codes from a window until it holds less than one full lookahead, then refills it.
+     * Skipping what was consumed checks the name did not run past the end of the buffer.
+     */
+    private void decode(final int size, BitReader reader, final char[] chars) {
+        final int lookahead = table.maxLength();
+        final int mask = (1 << lookahead) - 1;
+        int i = 0;
+        while (i < size) {
+            final long window = reader.peekLong(WINDOW_BITS);
+            int available = WINDOW_BITS;
+            while (i < size && available >= lookahead) {
+                final int entry = table.decodeEntry((int) (window >>> (available - lookahead)) & mask);
+                if (chars != null) {
+                    chars[i] = (char) (entry >>> 4);
+                }
+                available -= entry & 15;
+                i++;
+            }
+            reader.skip(WINDOW_BITS - available);
+        }
+    }
+
+    private static int symbolOf(final char ch) {
+        final int symbol = HuffmanTable.symbolOf(ch);
+        if (symbol < 0)
+            throw new IllegalArgumentException("Name contains unsupported character. Found " + ch);
+        return symbol;
+    }
+}
@@ -0,0 +1,234 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.Schema;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+/**
+ * A canonical Huffman code for the 64 name characters
+ *    - Only the code length of each character is stored, the codes are assigned in order of length then character
+ *    - Codes are at most 12 bits, so a name character is decoded with one 12 bit lookahead and one table lookup
+ *    - DEFAULT was trained on common record, field and enum names, in snake_case and camelCase
+ *    - Custom tables are trained with train and serialized with toByteArray: a 4 bit version and a 4 bit length per character
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class HuffmanTable {
+
+    public static final int MAX_CODE_BITS = 12;
+
+    private static final int SYMBOLS = NameCodec.DEFAULT_ALPHABET.length();
+    private static final byte VERSION = 1;
+    private static final int LENGTH_BITS = 4;
+    private static final BitCodec<Byte> VERSION_CODEC = new VersionCodec();
+
+    // Code lengths in NameCodec.DEFAULT_ALPHABET order: digits, lowercase, uppercase, '_' and '.'
+    private static final String DEFAULT_CODE_LENGTHS = "baaaaaaaaa475537664b85544584445788688a7879a97ca88888a87789acaa4b";
+
+    public static final HuffmanTable DEFAULT = fromLengthString(DEFAULT_CODE_LENGTHS);
+
+    private final byte[] lengths;
+    private final int[] codes = new int[SYMBOLS];
+    private final int maxLength;
+    // Indexed by lookahead, each entry holds the character above the low 4 bits and the code length in them
+    private final short[] decodeEntries;
+
+    /**
+     * @param lengths the code length of each character in NameCodec.DEFAULT_ALPHABET order, they must form a complete code
+     */
+    public HuffmanTable(final byte[] lengths) {
+        if (lengths.length != SYMBOLS)
+            throw new IllegalArgumentException("Huffman table needs a code length for each of the " + SYMBOLS + " name characters. Found " + lengths.length);
+        this.lengths = lengths.clone();
+        int maxLength = 0;
+        for (final byte length : this.lengths) {
+            if (length < 1 || length > MAX_CODE_BITS)
+                throw new IllegalArgumentException("Huffman code lengths must be between 1 and " + MAX_CODE_BITS + ". Found " + length);
+            maxLength = Math.max(maxLength, length);
+        }
+        this.maxLength = maxLength;
+
+        // Canonical codes: shorter codes first, ties in alphabet order
+        long kraft = 0;
+        int code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                if (this.lengths[symbol] == length) {
+                    codes[symbol] = code++;
+                    kraft += 1L << (maxLength - length);
+                }
+            }
+            code <<= 1;
+        }
+        if (kraft != 1L << maxLength)
+            throw new IllegalArgumentException("Huffman code lengths must form a complete prefix code");
+
+        // Every lookahead value maps to the character whose code it starts with
+        this.decodeEntries = new short[1 << maxLength];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            final int shift = maxLength - this.lengths[symbol];
+            final int start = codes[symbol] << shift;
+            final short entry = (short) (NameCodec.DEFAULT_ALPHABET.charAt(symbol) << LENGTH_BITS | this.lengths[symbol]);
+            Arrays.fill(decodeEntries, start, start + (1 << shift), entry);
+        }
+    }
+
+    /**
+     * Builds a table from how often each name character is used in the schemas.
+     * Characters that are not used still get a code, so any valid name can be encoded.
+     */
+    public static HuffmanTable train(final Iterable<Schema> schemas) {
+        final long[] frequencies = new long[SYMBOLS];
+        for (final Schema schema : schemas) {
+            for (final String name : SchemaNames.of(schema)) {
+                for (int i = 0; i < name.length(); i++) {
+                    final int symbol = symbolOf(name.charAt(i));
+                    if (symbol >= 0) {
+                        frequencies[symbol]++;
+                    }
+                }
+            }
+        }
+        return fromFrequencies(frequencies);
+    }
+
+    /**
+     * @param frequencies how often each character in NameCodec.DEFAULT_ALPHABET order is used
+     */
+    public static HuffmanTable fromFrequencies(final long[] frequencies) {
+        if (frequencies.length != SYMBOLS)
+            throw new IllegalArgumentException("Huffman table needs a frequency for each of the " + SYMBOLS + " name characters. Found " + frequencies.length);
+        final long[] weights = new long[SYMBOLS];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            weights[symbol] = Math.max(1, frequencies[symbol]);
+        }
+        byte[] lengths = codeLengths(weights);
+        // Flatten the distribution until the longest code fits in MAX_CODE_BITS
+        while (max(lengths) > MAX_CODE_BITS) {
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                weights[symbol] = (weights[symbol] >>> 1) | 1;
+            }
+            lengths = codeLengths(weights);
+        }
+        return new HuffmanTable(lengths);
+    }
+
+    private static byte[] codeLengths(final long[] weights) {
+        final PriorityQueue<long[]> queue = new PriorityQueue<long[]>(SYMBOLS, new Comparator<long[]>() {
+            @Override
+            public int compare(final long[] a, final long[] b) {
+                // {weight, node id}, ties are broken by id so the result does not depend on the queue
+                final int byWeight = Long.compare(a[0], b[0]);
+                return byWeight != 0 ? byWeight : Long.compare(a[1], b[1]);
+            }
+        });
+        final int[] parents = new int[2 * SYMBOLS - 1];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            queue.add(new long[]{weights[symbol], symbol});
+        }
+        int next = SYMBOLS;
+        while (queue.size() > 1) {
+            final long[] a = queue.poll();
+            final long[] b = queue.poll();
+            parents[(int) a[1]] = next;
+            parents[(int) b[1]] = next;
+            queue.add(new long[]{a[0] + b[0], next});
+            next++;
+        }
+        final int root = next - 1;
+        final byte[] lengths = new byte[SYMBOLS];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            int length = 0;
+            for (int node = symbol; node != root; node = parents[node]) {
+                length++;
+            }
+            lengths[symbol] = (byte) Math.min(length, Byte.MAX_VALUE);
+        }
+        return lengths;
+    }
+
+    private static int max(final byte[] values) {
+        int max = 0;
+        for (final byte value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static HuffmanTable fromLengthString(final String lengths) {
+        final byte[] values = new byte[lengths.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (byte) Character.digit(lengths.charAt(i), 16);
+        }
+        return new HuffmanTable(values);
+    }
+
+    /**
+     * @return the character's position in NameCodec.DEFAULT_ALPHABET, or -1 if it is not a valid name character
+     */
+    static int symbolOf(final char ch) {
+        return NameCodec.defaultIdOf(ch);
+    }
+
+    int code(final int symbol) {
+        return codes[symbol];
+    }
+
+    int length(final int symbol) {
+        return lengths[symbol];
+    }
+
+    int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return the entry for a lookahead of maxLength bits: the character is entry >>> 4, the code length is entry & 15
+     */
+    int decodeEntry(final int lookahead) {
+        return decodeEntries[lookahead];
+    }
+
+    public byte[] toByteArray() {
+        final BitWriter writer = new BitWriter();
+        VERSION_CODEC.encode(VERSION, writer);
+        for (final byte length : lengths) {
+            writer.putBits(length, LENGTH_BITS);
+        }
+        return writer.toByteArray();
+    }
+
+    public static HuffmanTable fromByteArray(final byte[] bytes) {
+        final BitReader reader = new BitReader(bytes);
+        final byte version = VERSION_CODEC.decode(reader);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported Huffman table version " + version);
+        final byte[] lengths = new byte[SYMBOLS];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            lengths[symbol] = (byte) reader.getBits(LENGTH_BITS);
+        }
+        return new HuffmanTable(lengths);
+    }
+
+    /**
+     * @return a CRC32 of the serialized table, written in the header to reference a custom table
+     */
+    public int fingerprint() {
+        final CRC32 crc = new CRC32();
+        crc.update(toByteArray());
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof HuffmanTable && Arrays.equals(lengths, ((HuffmanTable) o).lengths));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(lengths);
+    }
+}
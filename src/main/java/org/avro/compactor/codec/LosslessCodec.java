@@ -0,0 +1,640 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.avro.compactor.codec.field.LogicalTypeCodec;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes and decodes the parts of a schema that are only needed at write time, for Feature.LOSSLESS
+ *    - The field tree is prefixed with its length in 32 bits and followed by the text block,
+ *      so the reader can load the text before it decodes the tree. The block starts on a byte boundary
+ *    - Namespaces, docs, aliases and properties are free text. The tree holds a presence bit or an alias count
+ *      and the text goes into the text block, deflated Avro strings in the order they were written
+ *    - Field order is stored in 2 bits
+ *    - Defaults are stored as Avro binary against the field type, prefixed with their size in bytes.
+ *      A default that would not read back as the same json, like 1 for a double, is kept as json text instead.
+ *      NaN and infinite doubles read back as themselves. In json text they are written as NaN and 1e999,
+ *      which the parser reads back as doubles
+ *    - Properties and defaults are read and set as the plain objects of getObjectProps and defaultVal,
+ *      and converted to json nodes here
+ */
+public class LosslessCodec {
+
+    private static final int TREE_LENGTH_BITS = 32;
+    private static final int PRESENT_BITS = 1;
+    private static final int ORDER_BITS = 2;
+    private static final int DEFAULT_KIND_BITS = 2;
+    private static final int NO_DEFAULT = 0;
+    private static final int BINARY_DEFAULT = 1;
+    private static final int JSON_DEFAULT = 2;
+    private static final int BLOCK_SLACK = 64;
+    private static final CountCodec TEXT_SIZE_CODEC = new CountCodec(16, true);
+    private static final CountCodec ALIAS_COUNT_CODEC = new CountCodec(2, true);
+    private static final CountCodec DEFAULT_SIZE_CODEC = new CountCodec(4, true);
+    private static final Field.Order[] ORDERS = Field.Order.values();
+    private static final Charset BYTES_CHARSET = Charset.forName("ISO-8859-1");
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS, true);
+    private static final Set<String> LOGICAL_TYPE_PROPS = new HashSet<String>(Arrays.asList("logicalType", "precision", "scale"));
+
+    // Deflaters hold native memory that is slow to set up, so each thread keeps and resets its own
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_COMPRESSION, true);
+        }
+    };
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    public static void encode(final Schema schema, final FieldCodec fieldCodec, final BitWriter writer) {
+        final int lengthPosition = writer.position();
+        writer.putBits(0, TREE_LENGTH_BITS);
+        fieldCodec.encode(schema, writer);
+        writer.putBitsAt(lengthPosition, writer.position() - lengthPosition - TREE_LENGTH_BITS, TREE_LENGTH_BITS);
+        encodeTexts(writer.texts(), writer);
+    }
+
+    public static Schema decode(final FieldCodec fieldCodec, final BitReader reader) {
+        final int treeLength = reader.getBits(TREE_LENGTH_BITS);
+        final int treePosition = reader.position();
+        reader.skip(treeLength);
+        decodeTexts(reader);
+        final int end = reader.position();
+        reader.position(treePosition);
+        final Schema schema = fieldCodec.decode(reader);
+        reader.position(end);
+        return schema;
+    }
+
+    /**
+     * Writes the texts as one deflated block, starting on a byte boundary
+     */
+    public static void encodeTexts(final List<String> texts, final BitWriter writer) {
+        final byte[] block = deflate(texts);
+        final BitCategory previous = writer.enter(BitCategory.METADATA);
+        TEXT_SIZE_CODEC.encode(block.length, writer);
+        writer.alignToByte();
+        writer.putBytes(block);
+        writer.exit(previous);
+    }
+
+    /**
+     * Reads a block written by encodeTexts, nextText then returns its texts in order
+     */
+    public static void decodeTexts(final BitReader reader) {
+        final int size = TEXT_SIZE_CODEC.decode(reader);
+        reader.alignToByte();
+        reader.texts(inflate(reader.getBytes(size)));
+    }
+
+    public static void encodeText(final String text, final BitWriter writer) {
+        final BitCategory previous = writer.enter(BitCategory.METADATA);
+        writer.putBits(text == null ? 0 : 1, PRESENT_BITS);
+        writer.exit(previous);
+        if (text != null) {
+            writer.addText(text);
+        }
+    }
+
+    public static String decodeText(final BitReader reader) {
+        return reader.getBits(PRESENT_BITS) == 1 ? reader.nextText() : null;
+    }
+
+    public static void encodeAliases(final Collection<String> aliases, final BitWriter writer) {
+        ALIAS_COUNT_CODEC.encode(aliases.size(), writer);
+        for (final String alias : aliases) {
+            writer.addText(alias);
+        }
+    }
+
+    public static List<String> decodeAliases(final BitReader reader) {
+        final int count = ALIAS_COUNT_CODEC.decode(reader);
+        final List<String> aliases = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            aliases.add(reader.nextText());
+        }
+        return aliases;
+    }
+
+    /**
+     * Properties are written as one json object, or just the presence bit when there are none.
+     * The properties of a logical type are added back by FieldCodec, so on their own they are not written.
+     * With other properties they are all written, so the order is kept.
+     */
+    public static void encodeProps(final Schema schema, final BitWriter writer) {
+        final Map<String, Object> props = schema.getObjectProps();
+        if (LogicalTypeCodec.nameOf(schema) != null && LOGICAL_TYPE_PROPS.containsAll(props.keySet())) {
+            encodeText(null, writer);
+            return;
+        }
+        encodeProps(props, writer);
+    }
+
+    public static void encodeProps(final Field field, final BitWriter writer) {
+        encodeProps(field.getObjectProps(), writer);
+    }
+
+    private static void encodeProps(final Map<String, Object> props, final BitWriter writer) {
+        encodeText(props.isEmpty() ? null : toJson(toNode(props)), writer);
+    }
+
+    public static void decodeProps(final JsonProperties properties, final BitReader reader) {
+        final String text = decodeText(reader);
+        if (text == null) {
+            return;
+        }
+        final Iterator<Map.Entry<String, JsonNode>> props = parse(text).getFields();
+        while (props.hasNext()) {
+            final Map.Entry<String, JsonNode> prop = props.next();
+            properties.addProp(prop.getKey(), toObject(prop.getValue()));
+        }
+    }
+
+    /**
+     * Writes everything about a field except its name and schema, which RecordCodec writes before it
+     */
+    public static void encodeField(final Field field, final BitWriter writer) {
+        final BitCategory previous = writer.enter(BitCategory.METADATA);
+        encodeText(field.doc(), writer);
+        encodeAliases(field.aliases(), writer);
+        writer.putBits(field.order().ordinal(), ORDER_BITS);
+        encodeDefault(field, writer);
+        encodeProps(field, writer);
+        writer.exit(previous);
+    }
+
+    public static Field decodeField(final String name, final Schema schema, final BitReader reader) {
+        final String doc = decodeText(reader);
+        final List<String> aliases = decodeAliases(reader);
+        final int order = reader.getBits(ORDER_BITS);
+        if (order >= ORDERS.length)
+            throw new IllegalArgumentException("Field order " + order + " is not supported");
+        final JsonNode defaultValue = decodeDefault(schema, reader);
+        final Field field = new Field(name, schema, doc, toObject(defaultValue), ORDERS[order]);
+        for (final String alias : aliases) {
+            field.addAlias(alias);
+        }
+        decodeProps(field, reader);
+        return field;
+    }
+
+    private static void encodeDefault(final Field field, final BitWriter writer) {
+        final JsonNode value = toNode(field.defaultVal());
+        if (value == null) {
+            writer.putBits(NO_DEFAULT, DEFAULT_KIND_BITS);
+            return;
+        }
+        final byte[] binary = toBinary(field.schema(), value);
+        if (binary != null && isSame(value, fromBinary(field.schema(), binary))) {
+            writer.putBits(BINARY_DEFAULT, DEFAULT_KIND_BITS);
+            DEFAULT_SIZE_CODEC.encode(binary.length, writer);
+            writer.putBytes(binary);
+        } else {
+            writer.putBits(JSON_DEFAULT, DEFAULT_KIND_BITS);
+            writer.addText(toJson(value));
+        }
+    }
+
+    private static JsonNode decodeDefault(final Schema schema, final BitReader reader) {
+        final int kind = reader.getBits(DEFAULT_KIND_BITS);
+        switch (kind) {
+            case NO_DEFAULT:
+                return null;
+            case BINARY_DEFAULT:
+                return fromBinary(schema, reader.getBytes(DEFAULT_SIZE_CODEC.decode(reader)));
+            case JSON_DEFAULT:
+                return parse(reader.nextText());
+            default:
+                throw new IllegalArgumentException("Default kind " + kind + " is not supported");
+        }
+    }
+
+    /**
+     * Like equals, but a NaN double is the same as itself
+     */
+    private static boolean isSame(final JsonNode value, final JsonNode readBack) {
+        if (value.isDouble() && readBack.isDouble()) {
+            return Double.compare(value.getDoubleValue(), readBack.getDoubleValue()) == 0;
+        }
+        return value.equals(readBack);
+    }
+
+    /**
+     * @return the default as Avro binary, or null if it does not match the schema
+     */
+    private static byte[] toBinary(final Schema schema, final JsonNode value) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            write(schema, value, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            return null;
+        } catch (AvroRuntimeException e) {
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a json default as Avro binary, the reverse of read. A union default is written as its first type.
+     *
+     * @throws AvroTypeException if the json does not match the schema
+     */
+    private static void write(final Schema schema, final JsonNode value, final Encoder encoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                check(value.isNull(), schema, value);
+                encoder.writeNull();
+                return;
+            case BOOLEAN:
+                check(value.isBoolean(), schema, value);
+                encoder.writeBoolean(value.getBooleanValue());
+                return;
+            case INT:
+                check(value.isInt(), schema, value);
+                encoder.writeInt(value.getIntValue());
+                return;
+            case LONG:
+                check(value.isInt() || value.isLong(), schema, value);
+                encoder.writeLong(value.getLongValue());
+                return;
+            case FLOAT:
+                check(value.isNumber(), schema, value);
+                encoder.writeFloat((float) value.getDoubleValue());
+                return;
+            case DOUBLE:
+                check(value.isNumber(), schema, value);
+                encoder.writeDouble(value.getDoubleValue());
+                return;
+            case STRING:
+                check(value.isTextual(), schema, value);
+                encoder.writeString(value.getTextValue());
+                return;
+            case BYTES:
+                check(value.isTextual(), schema, value);
+                encoder.writeBytes(value.getTextValue().getBytes(BYTES_CHARSET));
+                return;
+            case FIXED:
+                check(value.isTextual() && value.getTextValue().length() == schema.getFixedSize(), schema, value);
+                encoder.writeFixed(value.getTextValue().getBytes(BYTES_CHARSET));
+                return;
+            case ENUM:
+                check(value.isTextual() && schema.hasEnumSymbol(value.getTextValue()), schema, value);
+                encoder.writeEnum(schema.getEnumOrdinal(value.getTextValue()));
+                return;
+            case ARRAY:
+                check(value.isArray(), schema, value);
+                encoder.writeArrayStart();
+                encoder.setItemCount(value.size());
+                for (final JsonNode item : value) {
+                    encoder.startItem();
+                    write(schema.getElementType(), item, encoder);
+                }
+                encoder.writeArrayEnd();
+                return;
+            case MAP:
+                check(value.isObject(), schema, value);
+                encoder.writeMapStart();
+                encoder.setItemCount(value.size());
+                final Iterator<Map.Entry<String, JsonNode>> entries = value.getFields();
+                while (entries.hasNext()) {
+                    final Map.Entry<String, JsonNode> entry = entries.next();
+                    encoder.startItem();
+                    encoder.writeString(entry.getKey());
+                    write(schema.getValueType(), entry.getValue(), encoder);
+                }
+                encoder.writeMapEnd();
+                return;
+            case UNION:
+                encoder.writeIndex(0);
+                write(schema.getTypes().get(0), value, encoder);
+                return;
+            case RECORD:
+                check(value.isObject(), schema, value);
+                for (final Field field : schema.getFields()) {
+                    final JsonNode fieldValue = value.get(field.name());
+                    check(fieldValue != null, schema, value);
+                    write(field.schema(), fieldValue, encoder);
+                }
+                return;
+            default:
+                throw new AvroTypeException("Defaults of type " + schema.getType() + " are not supported");
+        }
+    }
+
+    private static void check(final boolean matches, final Schema schema, final JsonNode value) {
+        if (!matches)
+            throw new AvroTypeException("Default does not match " + schema.getType() + ". Found " + value);
+    }
+
+    private static JsonNode fromBinary(final Schema schema, final byte[] binary) {
+        try {
+            return read(schema, DecoderFactory.get().binaryDecoder(binary, null));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Default value of type " + schema.getType() + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Reads Avro binary back into the json Avro would have parsed the default from
+     */
+    private static JsonNode read(final Schema schema, final Decoder decoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                decoder.readNull();
+                return NODES.nullNode();
+            case BOOLEAN:
+                return NODES.booleanNode(decoder.readBoolean());
+            case INT:
+                return NODES.numberNode(decoder.readInt());
+            case LONG:
+                final long longValue = decoder.readLong();
+                return longValue == (int) longValue ? NODES.numberNode((int) longValue) : NODES.numberNode(longValue);
+            case FLOAT:
+                // Widen through the shortest decimal form, so 1.1f reads back as 1.1
+                return NODES.numberNode(Double.parseDouble(Float.toString(decoder.readFloat())));
+            case DOUBLE:
+                return NODES.numberNode(decoder.readDouble());
+            case STRING:
+                return NODES.textNode(decoder.readString());
+            case BYTES:
+                final ByteBuffer bytes = decoder.readBytes(null);
+                return NODES.textNode(new String(bytes.array(), bytes.position(), bytes.remaining(), BYTES_CHARSET));
+            case FIXED:
+                final byte[] fixed = new byte[schema.getFixedSize()];
+                decoder.readFixed(fixed);
+                return NODES.textNode(new String(fixed, BYTES_CHARSET));
+            case ENUM:
+                return NODES.textNode(schema.getEnumSymbols().get(decoder.readEnum()));
+            case ARRAY:
+                final ArrayNode array = NODES.arrayNode();
+                for (long count = decoder.readArrayStart(); count != 0; count = decoder.arrayNext()) {
+                    for (long i = 0; i < count; i++) {
+                        array.add(read(schema.getElementType(), decoder));
+                    }
+                }
+                return array;
+            case MAP:
+                final ObjectNode map = NODES.objectNode();
+                for (long count = decoder.readMapStart(); count != 0; count = decoder.mapNext()) {
+                    for (long i = 0; i < count; i++) {
+                        final String key = decoder.readString();
+                        map.put(key, read(schema.getValueType(), decoder));
+                    }
+                }
+                return map;
+            case UNION:
+                return read(schema.getTypes().get(decoder.readIndex()), decoder);
+            case RECORD:
+                final ObjectNode record = NODES.objectNode();
+                for (final Field field : schema.getFields()) {
+                    record.put(field.name(), read(field.schema(), decoder));
+                }
+                return record;
+            default:
+                throw new UnsupportedOperationException("Defaults of type " + schema.getType() + " are not supported");
+        }
+    }
+
+    /**
+     * Converts the plain objects of getObjectProps and defaultVal to json
+     */
+    static JsonNode toNode(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value == JsonProperties.NULL_VALUE) {
+            return NODES.nullNode();
+        }
+        if (value instanceof Boolean) {
+            return NODES.booleanNode((Boolean) value);
+        }
+        if (value instanceof Integer) {
+            return NODES.numberNode((Integer) value);
+        }
+        if (value instanceof Long) {
+            return NODES.numberNode((Long) value);
+        }
+        if (value instanceof Float) {
+            return NODES.numberNode((double) (Float) value);
+        }
+        if (value instanceof Double) {
+            return NODES.numberNode((Double) value);
+        }
+        if (value instanceof CharSequence) {
+            return NODES.textNode(value.toString());
+        }
+        if (value instanceof byte[]) {
+            return NODES.textNode(new String((byte[]) value, BYTES_CHARSET));
+        }
+        if (value instanceof Map) {
+            final ObjectNode object = NODES.objectNode();
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                object.put(entry.getKey().toString(), toNode(entry.getValue()));
+            }
+            return object;
+        }
+        if (value instanceof Collection) {
+            final ArrayNode array = NODES.arrayNode();
+            for (final Object item : (Collection<?>) value) {
+                array.add(toNode(item));
+            }
+            return array;
+        }
+        throw new IllegalArgumentException("Properties and defaults must be json values. Found " + value.getClass().getName());
+    }
+
+    /**
+     * Converts json to the plain objects that addProp and the Field constructor take
+     */
+    static Object toObject(final JsonNode node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.isNull()) {
+            return JsonProperties.NULL_VALUE;
+        }
+        if (node.isBoolean()) {
+            return node.getBooleanValue();
+        }
+        if (node.isInt()) {
+            return node.getIntValue();
+        }
+        if (node.isLong()) {
+            return node.getLongValue();
+        }
+        if (node.isNumber()) {
+            return node.getDoubleValue();
+        }
+        if (node.isTextual()) {
+            return node.getTextValue();
+        }
+        if (node.isArray()) {
+            final List<Object> list = new ArrayList<Object>(node.size());
+            for (final JsonNode item : node) {
+                list.add(toObject(item));
+            }
+            return list;
+        }
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            map.put(field.getKey(), toObject(field.getValue()));
+        }
+        return map;
+    }
+
+    /**
+     * Writes the json like toString, except NaN and infinite doubles. Jackson writes them quoted, or as an Infinity it can not
+     * read back
+     */
+    private static String toJson(final JsonNode node) {
+        final StringWriter out = new StringWriter();
+        try {
+            final JsonGenerator generator = MAPPER.getJsonFactory().createJsonGenerator(out);
+            writeJson(node, generator);
+            generator.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing json to a string failed", e);
+        }
+        return out.toString();
+    }
+
+    private static void writeJson(final JsonNode node, final JsonGenerator generator) throws IOException {
+        if (node.isDouble() && Double.isNaN(node.getDoubleValue())) {
+            generator.writeRawValue("NaN");
+        } else if (node.isDouble() && Double.isInfinite(node.getDoubleValue())) {
+            generator.writeRawValue(node.getDoubleValue() > 0 ? "1e999" : "-1e999");
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (final JsonNode item : node) {
+                writeJson(item, generator);
+            }
+            generator.writeEndArray();
+        } else if (node.isObject()) {
+            generator.writeStartObject();
+            final Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+            while (fields.hasNext()) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                writeJson(field.getValue(), generator);
+            }
+            generator.writeEndObject();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+
+    private static JsonNode parse(final String text) {
+        try {
+            return MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Compacted schema text is not valid json. Found " + text, e);
+        }
+    }
+
+    private static byte[] deflate(final List<String> texts) {
+        if (texts.isEmpty()) {
+            return new byte[0];
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        try {
+            encoder.writeInt(texts.size());
+            for (final String text : texts) {
+                encoder.writeString(text);
+            }
+            encoder.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        // Deflate the whole block at once, streams would call into the native deflater for every byte
+        final Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(out.toByteArray());
+        deflater.finish();
+        byte[] block = new byte[out.size() + BLOCK_SLACK];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == block.length) {
+                block = Arrays.copyOf(block, block.length * 2);
+            }
+            size += deflater.deflate(block, size, block.length - size);
+        }
+        return Arrays.copyOf(block, size);
+    }
+
+    private static List<String> inflate(final byte[] block) {
+        final List<String> texts = new ArrayList<String>();
+        if (block.length == 0) {
+            return texts;
+        }
+        final Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(block);
+        byte[] bytes = new byte[block.length * 4];
+        int size = 0;
+        try {
+            while (!inflater.finished()) {
+                if (size == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                final int inflated = inflater.inflate(bytes, size, bytes.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalArgumentException("Compacted schema text ends early");
+                size += inflated;
+            }
+            final BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, 0, size, null);
+            final int count = decoder.readInt();
+            for (int i = 0; i < count; i++) {
+                texts.add(decoder.readString());
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compacted schema text is corrupt", e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Compacted schema text is corrupt", e);
+        }
+        return texts;
+    }
+}
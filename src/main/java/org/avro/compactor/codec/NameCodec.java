@@ -1,92 +1,156 @@
 package org.avro.compactor.codec;
 
-import net.magik6k.bitbuffer.BitBuffer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
- * Encodes and decodes Avro schema names up to 64 characters long
- *    - The size is stored in 6 bits
+ * Encodes and decodes Avro schema names up to 63 characters long
+ *    - The size is stored in 6 bits, with a variable length Profile longer names are escaped, see CountCodec
  *    - The valid characters are [A-Za-z0-9_.]
  *    - Each character is encoded in 6 bits
+ *    - Characters are looked up in primitive tables and read/written up to 10 at a time in a single 60 bit word
+ *    - With a narrower Profile the size and characters use the profile's widths,
+ *      and characters are numbered from the profile alphabet so lowercase names need 5 bits
  *
  *    TODO: rule flags for more/less strict rules
- *      - 5 bit (lower case alpha + special only)
  *      - 2 digit numeric only (for positions)
  */
 public class NameCodec implements BitCodec<String> {
 
-    private static final int NAME_SIZE_BITS = 6;
-    private static final int NAME_MAX_LENGTH = (int) Math.pow(2, NAME_SIZE_BITS);
-    private static final int NAME_CHAR_BITS = 6;
+    static final String DEFAULT_ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_.";
+    private static final String PROFILE_ALPHABET = "abcdefghijklmnopqrstuvwxyz_.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
-    private static final Map<Byte, Character> idToChar = new HashMap<Byte, Character>();
-    private static final Map<Character, Byte> charToId = new HashMap<Character, Byte>();
+    private static final byte NO_ID = -1;
+    private static final byte[] DEFAULT_CHAR_TO_ID = invert(DEFAULT_ALPHABET);
+    private static final byte[] PROFILE_CHAR_TO_ID = invert(PROFILE_ALPHABET);
 
-    static {
-        byte id = 0;
-        // Numeric
-        for (char ch = '0'; ch <= '9'; ch++) {
-            idToChar.put(id, ch);
-            id++;
-        }
-        // Lowercase
-        for (char ch = 'a'; ch <= 'z'; ch++) {
-            idToChar.put(id, ch);
-            id++;
-        }
-        // Uppercase
-        for (char ch = 'A'; ch <= 'Z'; ch++) {
-            idToChar.put(id, ch);
-            id++;
-        }
-        // Special
-        idToChar.put(id, '_');
-        id++;
-        idToChar.put(id, '.');
-
-        // Invert
-        for(Map.Entry<Byte, Character> entry : idToChar.entrySet()) {
-            charToId.put(entry.getValue(), entry.getKey());
+    private final CountCodec nameSizeCodec;
+    private final int nameCharBits;
+    private final int charsPerWord;
+    private final int idMask;
+    private final char[] idToChar;
+    private final byte[] charToId;
+
+    public NameCodec() {
+        this(Profile.DEFAULT);
+    }
+
+    public NameCodec(final Profile profile) {
+        this.nameSizeCodec = profile.nameLengthCodec();
+        this.nameCharBits = profile.nameCharBits();
+        this.charsPerWord = Long.SIZE / nameCharBits;
+        this.idMask = (1 << nameCharBits) - 1;
+        this.idToChar = (profile.hasDefaultWidths() ? DEFAULT_ALPHABET : PROFILE_ALPHABET).toCharArray();
+        this.charToId = profile.hasDefaultWidths() ? DEFAULT_CHAR_TO_ID : PROFILE_CHAR_TO_ID;
+    }
+
+    private static byte[] invert(final String alphabet) {
+        final byte[] charToId = new byte[128];
+        Arrays.fill(charToId, NO_ID);
+        for (byte i = 0; i < alphabet.length(); i++) {
+            charToId[alphabet.charAt(i)] = i;
         }
+        return charToId;
     }
 
-    public NameCodec() {}
+    /**
+     * @return the character's id in the alphabet used by profiles, or -1 if it is not a valid name character
+     */
+    public static int profileIdOf(final char ch) {
+        return ch < PROFILE_CHAR_TO_ID.length ? PROFILE_CHAR_TO_ID[ch] : NO_ID;
+    }
+
+    /**
+     * @return the character's id in the default alphabet, or -1 if it is not a valid name character
+     */
+    static int defaultIdOf(final char ch) {
+        return ch < DEFAULT_CHAR_TO_ID.length ? DEFAULT_CHAR_TO_ID[ch] : NO_ID;
+    }
 
     public void validate(final String name) {
-        if(name.length() > NAME_MAX_LENGTH)
-            throw new IllegalArgumentException("Name has a maximum length of " + NAME_MAX_LENGTH + ". Found " + name.length());
-        for (final char ch : name.toCharArray()) {
-            if(!charToId.containsKey(ch)) {
-                throw new IllegalArgumentException("Name contains unsupported character. Found " + ch);
-            }
-        }
+        validateLength(name);
+        validateChars(name);
     }
 
     public int sizeOf(final String name) {
         validate(name);
         int size = 0;
-        size += NAME_SIZE_BITS;
-        size += name.length() * NAME_CHAR_BITS;
+        size += nameSizeCodec.sizeOf(name.length());
+        size += sizeOfChars(name);
         return size;
     }
 
-    public void encode(final String name, BitBuffer buffer) {
-        validate(name);
-        buffer.putByte((byte) name.length(), NAME_SIZE_BITS);
-        for (final char ch : name.toCharArray()) {
-            buffer.putByte(charToId.get(ch), NAME_CHAR_BITS);
+    public void encode(final String name, BitWriter writer) {
+        validateLength(name);
+        final BitCategory previous = writer.enter(BitCategory.NAMES);
+        nameSizeCodec.encode(name.length(), writer);
+        encodeChars(name, writer);
+        writer.exit(previous);
+    }
+
+    public String decode(BitReader reader) {
+        final int size = nameSizeCodec.decode(reader);
+        return decodeChars(size, reader);
+    }
+
+    public void skip(BitReader reader) {
+        final int size = nameSizeCodec.decode(reader);
+        skipChars(size, reader);
+    }
+
+    /**
+     * The characters are coded by the methods below, subclasses can replace them keeping the length prefix
+     */
+    protected void validateChars(final String name) {
+        for (int i = 0; i < name.length(); i++) {
+            idOf(name.charAt(i));
+        }
+    }
+
+    protected int sizeOfChars(final String name) {
+        return name.length() * nameCharBits;
+    }
+
+    protected void encodeChars(final String name, BitWriter writer) {
+        final int length = name.length();
+        int i = 0;
+        while (i < length) {
+            final int count = Math.min(charsPerWord, length - i);
+            long word = 0;
+            for (int end = i + count; i < end; i++) {
+                word = (word << nameCharBits) | idOf(name.charAt(i));
+            }
+            writer.putBits(word, count * nameCharBits);
         }
     }
 
-    public String decode(BitBuffer buffer) {
-        byte size = buffer.getByteUnsigned(NAME_SIZE_BITS);
-        final StringBuilder b = new StringBuilder();
-        for (int i = 0; i < size; i++) {
-            b.append(idToChar.get(buffer.getByteUnsigned(NAME_CHAR_BITS)));
+    protected String decodeChars(final int size, BitReader reader) {
+        final char[] chars = new char[size];
+        int i = 0;
+        while (i < size) {
+            final int count = Math.min(charsPerWord, size - i);
+            final long word = reader.getLong(count * nameCharBits);
+            for (int shift = (count - 1) * nameCharBits; shift >= 0; shift -= nameCharBits) {
+                chars[i++] = idToChar[(int) (word >>> shift) & idMask];
+            }
         }
-        return b.toString();
+        return new String(chars);
+    }
+
+    protected void skipChars(final int size, BitReader reader) {
+        reader.skip(size * nameCharBits);
+    }
+
+    private void validateLength(final String name) {
+        if(name.length() > nameSizeCodec.maxCount())
+            throw new IllegalArgumentException("Name has a maximum length of " + nameSizeCodec.maxCount() + ". Found " + name.length());
+    }
+
+    private int idOf(final char ch) {
+        final byte id = ch < charToId.length ? charToId[ch] : NO_ID;
+        if (id == NO_ID || id > idMask)
+            throw new IllegalArgumentException("Name contains unsupported character. Found " + ch);
+        return id;
     }
 
 }
@@ -0,0 +1,143 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.Schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An ordered list of names and symbols shared by many schemas
+ *    - Built from a collection of schemas, keeping the names used more than once, most frequent first
+ *    - Serialized with toByteArray so readers can load it once and decode every schema encoded against it
+ *    - The serialized form is a 4 bit version, the entry count in 17 bits, then each name encoded with NameCodec
+ *    - Schemas encoded against it carry its fingerprint, so decoding with another dictionary fails instead of
+ *      returning other names
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public class NameDictionary {
+
+    private static final byte VERSION = 1;
+    private static final int SIZE_BITS = 17;
+    private static final BitCodec<Byte> VERSION_CODEC = new VersionCodec();
+    private static final NameCodec NAME_CODEC = new NameCodec();
+
+    private final List<String> names;
+    private final Map<String, Integer> indexes;
+    private final int fingerprint;
+
+    public NameDictionary(final List<String> names) {
+        this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+        this.indexes = new HashMap<String, Integer>();
+        for (final String name : this.names) {
+            NAME_CODEC.validate(name);
+            if (indexes.put(name, indexes.size()) != null)
+                throw new IllegalArgumentException("Dictionary names must be unique. Found " + name + " twice");
+        }
+        // Written in the header of every schema, so computed once
+        final CRC32 crc = new CRC32();
+        crc.update(toByteArray());
+        this.fingerprint = (int) crc.getValue();
+    }
+
+    public static NameDictionary build(final Iterable<Schema> schemas) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (final Schema schema : schemas) {
+            for (final String name : SchemaNames.of(schema)) {
+                count(name, counts);
+            }
+        }
+        final List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+        for (final Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1 && isValid(entry.getKey())) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(final Map.Entry<String, Integer> a, final Map.Entry<String, Integer> b) {
+                final int byCount = b.getValue().compareTo(a.getValue());
+                return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+            }
+        });
+        final List<String> names = new ArrayList<String>();
+        for (final Map.Entry<String, Integer> entry : entries) {
+            if (names.size() == DictionaryNameCodec.MAX_DICTIONARY_SIZE) {
+                break;
+            }
+            names.add(entry.getKey());
+        }
+        return new NameDictionary(names);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String get(final int index) {
+        if (index >= names.size())
+            throw new IllegalArgumentException("Dictionary index " + index + " is out of range. Found " + names.size() + " names");
+        return names.get(index);
+    }
+
+    /**
+     * @return the index of the name, or -1 if it is not in the dictionary
+     */
+    public int indexOf(final String name) {
+        final Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * @return a CRC32 of the serialized dictionary, written in the header of the schemas encoded against it
+     */
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    public byte[] toByteArray() {
+        final BitWriter writer = new BitWriter();
+        VERSION_CODEC.encode(VERSION, writer);
+        writer.putBits(names.size(), SIZE_BITS);
+        for (final String name : names) {
+            NAME_CODEC.encode(name, writer);
+        }
+        return writer.toByteArray();
+    }
+
+    public static NameDictionary fromByteArray(final byte[] bytes) {
+        final BitReader reader = new BitReader(bytes);
+        final byte version = VERSION_CODEC.decode(reader);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported dictionary version " + version);
+        final int size = reader.getBits(SIZE_BITS);
+        final List<String> names = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(NAME_CODEC.decode(reader));
+        }
+        return new NameDictionary(names);
+    }
+
+    private static void count(final String name, final Map<String, Integer> counts) {
+        final Integer count = counts.get(name);
+        counts.put(name, count == null ? 1 : count + 1);
+    }
+
+    private static boolean isValid(final String name) {
+        try {
+            NAME_CODEC.validate(name);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.avro.compactor.codec;
+
+/**
+ * The bit widths used for names, counts and sizes
+ *    - DEFAULT holds the widths of the version 1 format
+ *    - A narrower profile is chosen per schema by SchemaAnalyzer and stored in the header by ProfileCodec
+ *    - Names in a profile use an alphabet that starts with [a-z_.], so lowercase names fit in 5 bits
+ *    - With variableLength, counts and lengths that do not fit their width are escaped, see CountCodec
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class Profile {
+
+    public static final int NAME_LENGTH_BITS = 6;
+    public static final int NAME_CHAR_BITS = 6;
+    public static final int FIELD_COUNT_BITS = 6;
+    public static final int SYMBOL_COUNT_BITS = 4;
+    public static final int TYPE_COUNT_BITS = 4;
+    public static final int FIXED_SIZE_BITS = 8;
+
+    public static final Profile DEFAULT = new Profile(NAME_LENGTH_BITS, NAME_CHAR_BITS, FIELD_COUNT_BITS,
+            SYMBOL_COUNT_BITS, TYPE_COUNT_BITS, FIXED_SIZE_BITS);
+
+    private final int nameLengthBits;
+    private final int nameCharBits;
+    private final int fieldCountBits;
+    private final int symbolCountBits;
+    private final int typeCountBits;
+    private final int fixedSizeBits;
+    private final boolean variableLength;
+
+    public Profile(final int nameLengthBits, final int nameCharBits, final int fieldCountBits,
+                   final int symbolCountBits, final int typeCountBits, final int fixedSizeBits) {
+        this(nameLengthBits, nameCharBits, fieldCountBits, symbolCountBits, typeCountBits, fixedSizeBits, false);
+    }
+
+    private Profile(final int nameLengthBits, final int nameCharBits, final int fieldCountBits,
+                    final int symbolCountBits, final int typeCountBits, final int fixedSizeBits,
+                    final boolean variableLength) {
+        this.nameLengthBits = checkBits("Name length", nameLengthBits, 0, NAME_LENGTH_BITS);
+        this.nameCharBits = checkBits("Name character", nameCharBits, 1, NAME_CHAR_BITS);
+        this.fieldCountBits = checkBits("Field count", fieldCountBits, 0, FIELD_COUNT_BITS);
+        this.symbolCountBits = checkBits("Symbol count", symbolCountBits, 0, SYMBOL_COUNT_BITS);
+        this.typeCountBits = checkBits("Type count", typeCountBits, 0, TYPE_COUNT_BITS);
+        this.fixedSizeBits = checkBits("Fixed size", fixedSizeBits, 0, FIXED_SIZE_BITS);
+        this.variableLength = variableLength;
+    }
+
+    public Profile withVariableLength(final boolean variableLength) {
+        if (variableLength == this.variableLength) {
+            return this;
+        }
+        return new Profile(nameLengthBits, nameCharBits, fieldCountBits, symbolCountBits, typeCountBits,
+                fixedSizeBits, variableLength);
+    }
+
+    public boolean isDefault() {
+        return equals(DEFAULT);
+    }
+
+    /**
+     * @return true if the widths are those of DEFAULT, which uses the original name alphabet
+     */
+    public boolean hasDefaultWidths() {
+        return withVariableLength(false).equals(DEFAULT);
+    }
+
+    public int nameLengthBits() {
+        return nameLengthBits;
+    }
+
+    public int nameCharBits() {
+        return nameCharBits;
+    }
+
+    public int fieldCountBits() {
+        return fieldCountBits;
+    }
+
+    public int symbolCountBits() {
+        return symbolCountBits;
+    }
+
+    public int typeCountBits() {
+        return typeCountBits;
+    }
+
+    public int fixedSizeBits() {
+        return fixedSizeBits;
+    }
+
+    public boolean variableLength() {
+        return variableLength;
+    }
+
+    public CountCodec nameLengthCodec() {
+        return new CountCodec(nameLengthBits, variableLength);
+    }
+
+    public CountCodec fieldCountCodec() {
+        return new CountCodec(fieldCountBits, variableLength);
+    }
+
+    public CountCodec symbolCountCodec() {
+        return new CountCodec(symbolCountBits, variableLength);
+    }
+
+    public CountCodec typeCountCodec() {
+        return new CountCodec(typeCountBits, variableLength);
+    }
+
+    public CountCodec fixedSizeCodec() {
+        return new CountCodec(fixedSizeBits, variableLength);
+    }
+
+    /**
+     * @return the number of bits needed to store values up to max
+     */
+    public static int bitsFor(final int max) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(max);
+    }
+
+    private static int checkBits(final String name, final int bits, final int min, final int max) {
+        if (bits < min || bits > max)
+            throw new IllegalArgumentException(name + " bits must be between " + min + " and " + max + ". Found " + bits);
+        return bits;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Profile)) {
+            return false;
+        }
+        final Profile other = (Profile) o;
+        return nameLengthBits == other.nameLengthBits
+                && nameCharBits == other.nameCharBits
+                && fieldCountBits == other.fieldCountBits
+                && symbolCountBits == other.symbolCountBits
+                && typeCountBits == other.typeCountBits
+                && fixedSizeBits == other.fixedSizeBits
+                && variableLength == other.variableLength;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = nameLengthBits;
+        result = 31 * result + nameCharBits;
+        result = 31 * result + fieldCountBits;
+        result = 31 * result + symbolCountBits;
+        result = 31 * result + typeCountBits;
+        result = 31 * result + fixedSizeBits;
+        result = 31 * result + (variableLength ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Profile{nameLengthBits=" + nameLengthBits + ", nameCharBits=" + nameCharBits
+                + ", fieldCountBits=" + fieldCountBits + ", symbolCountBits=" + symbolCountBits
+                + ", typeCountBits=" + typeCountBits + ", fixedSizeBits=" + fixedSizeBits
+                + ", variableLength=" + variableLength + "}";
+    }
+}
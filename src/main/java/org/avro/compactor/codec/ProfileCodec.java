@@ -0,0 +1,47 @@
+package org.avro.compactor.codec;
+
+/**
+ * Encodes and decodes a Profile
+ *    - The name length, name character, field count, symbol count and type count widths are stored in 3 bits each
+ *    - The fixed size width is stored in 4 bits
+ */
+public class ProfileCodec implements BitCodec<Profile> {
+
+    private static final int WIDTH_BITS = 3;
+    private static final int FIXED_WIDTH_BITS = 4;
+    private static final int PROFILE_BITS = 5 * WIDTH_BITS + FIXED_WIDTH_BITS;
+
+    public ProfileCodec() {}
+
+    public void validate(final Profile profile) {
+        // Profile checks its widths when it is created
+    }
+
+    public int sizeOf(final Profile profile) {
+        return PROFILE_BITS;
+    }
+
+    public void encode(final Profile profile, BitWriter writer) {
+        writer.putBits(profile.nameLengthBits(), WIDTH_BITS);
+        writer.putBits(profile.nameCharBits(), WIDTH_BITS);
+        writer.putBits(profile.fieldCountBits(), WIDTH_BITS);
+        writer.putBits(profile.symbolCountBits(), WIDTH_BITS);
+        writer.putBits(profile.typeCountBits(), WIDTH_BITS);
+        writer.putBits(profile.fixedSizeBits(), FIXED_WIDTH_BITS);
+    }
+
+    public Profile decode(BitReader reader) {
+        final int nameLengthBits = reader.getBits(WIDTH_BITS);
+        final int nameCharBits = reader.getBits(WIDTH_BITS);
+        final int fieldCountBits = reader.getBits(WIDTH_BITS);
+        final int symbolCountBits = reader.getBits(WIDTH_BITS);
+        final int typeCountBits = reader.getBits(WIDTH_BITS);
+        final int fixedSizeBits = reader.getBits(FIXED_WIDTH_BITS);
+        return new Profile(nameLengthBits, nameCharBits, fieldCountBits, symbolCountBits, typeCountBits, fixedSizeBits);
+    }
+
+    public void skip(BitReader reader) {
+        reader.skip(PROFILE_BITS);
+    }
+
+}
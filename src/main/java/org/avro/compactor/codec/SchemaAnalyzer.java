@@ -0,0 +1,138 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Walks a schema to find the narrowest Profile that fits it
+ *    - Each width is just wide enough for the largest name, count or size found, and never wider than the default
+ *    - Names found in the NameDictionary are skipped, they are written as an index
+ *    - savedBits estimates how much smaller the schema is with the profile than with Profile.DEFAULT.
+ *      Named types are counted once, as they are written with NAMED_TYPE_REFERENCES
+ *    - savedCharacterBits is the part of that saving from narrower characters, it does not apply to Huffman coded names
+ */
+public class SchemaAnalyzer {
+
+    private final NameDictionary dictionary;
+    private final Set<String> visited = new HashSet<String>();
+
+    private int nameCount;
+    private int charCount;
+    private int maxNameLength;
+    private int maxCharId;
+    private int recordCount;
+    private int maxFieldCount;
+    private int enumCount;
+    private int maxSymbolCount;
+    private int unionCount;
+    private int maxTypeCount;
+    private int fixedCount;
+    private int maxFixedSize;
+
+    private SchemaAnalyzer(final NameDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public static SchemaAnalyzer analyze(final Schema schema) {
+        return analyze(schema, null);
+    }
+
+    public static SchemaAnalyzer analyze(final Schema schema, final NameDictionary dictionary) {
+        final SchemaAnalyzer analyzer = new SchemaAnalyzer(dictionary);
+        analyzer.visit(schema);
+        return analyzer;
+    }
+
+    public Profile profile() {
+        return new Profile(
+                Math.min(Profile.NAME_LENGTH_BITS, Profile.bitsFor(maxNameLength)),
+                Math.min(Profile.NAME_CHAR_BITS, Math.max(1, Profile.bitsFor(maxCharId))),
+                Math.min(Profile.FIELD_COUNT_BITS, Profile.bitsFor(maxFieldCount)),
+                Math.min(Profile.SYMBOL_COUNT_BITS, Profile.bitsFor(maxSymbolCount)),
+                Math.min(Profile.TYPE_COUNT_BITS, Profile.bitsFor(maxTypeCount)),
+                Math.min(Profile.FIXED_SIZE_BITS, Profile.bitsFor(maxFixedSize)));
+    }
+
+    public int savedBits() {
+        final Profile profile = profile();
+        int saved = 0;
+        saved += nameCount * (Profile.NAME_LENGTH_BITS - profile.nameLengthBits());
+        saved += savedCharacterBits();
+        saved += recordCount * (Profile.FIELD_COUNT_BITS - profile.fieldCountBits());
+        saved += enumCount * (Profile.SYMBOL_COUNT_BITS - profile.symbolCountBits());
+        saved += unionCount * (Profile.TYPE_COUNT_BITS - profile.typeCountBits());
+        saved += fixedCount * (Profile.FIXED_SIZE_BITS - profile.fixedSizeBits());
+        return saved;
+    }
+
+    public int savedCharacterBits() {
+        return charCount * (Profile.NAME_CHAR_BITS - profile().nameCharBits());
+    }
+
+    private void visit(final Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+                if (!visited.add(schema.getFullName())) {
+                    return;
+                }
+                name(schema.getName());
+                recordCount++;
+                maxFieldCount = Math.max(maxFieldCount, schema.getFields().size());
+                for (final Field field : schema.getFields()) {
+                    name(field.name());
+                    visit(field.schema());
+                }
+                break;
+            case ENUM:
+                if (!visited.add(schema.getFullName())) {
+                    return;
+                }
+                name(schema.getName());
+                enumCount++;
+                maxSymbolCount = Math.max(maxSymbolCount, schema.getEnumSymbols().size());
+                for (final String symbol : schema.getEnumSymbols()) {
+                    name(symbol);
+                }
+                break;
+            case FIXED:
+                if (!visited.add(schema.getFullName())) {
+                    return;
+                }
+                name(schema.getName());
+                fixedCount++;
+                maxFixedSize = Math.max(maxFixedSize, schema.getFixedSize());
+                break;
+            case UNION:
+                unionCount++;
+                maxTypeCount = Math.max(maxTypeCount, schema.getTypes().size());
+                for (final Schema type : schema.getTypes()) {
+                    visit(type);
+                }
+                break;
+            case ARRAY:
+                visit(schema.getElementType());
+                break;
+            case MAP:
+                visit(schema.getValueType());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void name(final String name) {
+        if (dictionary != null && dictionary.indexOf(name) >= 0) {
+            return;
+        }
+        nameCount++;
+        charCount += name.length();
+        maxNameLength = Math.max(maxNameLength, name.length());
+        for (int i = 0; i < name.length(); i++) {
+            // Invalid characters are left for the codecs to report
+            maxCharId = Math.max(maxCharId, NameCodec.profileIdOf(name.charAt(i)));
+        }
+    }
+}
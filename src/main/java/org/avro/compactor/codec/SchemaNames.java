@@ -0,0 +1,64 @@
+package org.avro.compactor.codec;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the names and symbols a schema writes, in the order they are written
+ *    - Each named type is visited once
+ */
+final class SchemaNames {
+
+    private SchemaNames() {}
+
+    static List<String> of(final Schema schema) {
+        final List<String> names = new ArrayList<String>();
+        collect(schema, names, new HashSet<String>());
+        return names;
+    }
+
+    private static void collect(final Schema schema, final List<String> names, final Set<String> visited) {
+        switch (schema.getType()) {
+            case RECORD:
+                if (!visited.add(schema.getFullName())) {
+                    return;
+                }
+                names.add(schema.getName());
+                for (final Field field : schema.getFields()) {
+                    names.add(field.name());
+                    collect(field.schema(), names, visited);
+                }
+                break;
+            case ENUM:
+                if (!visited.add(schema.getFullName())) {
+                    return;
+                }
+                names.add(schema.getName());
+                names.addAll(schema.getEnumSymbols());
+                break;
+            case FIXED:
+                if (visited.add(schema.getFullName())) {
+                    names.add(schema.getName());
+                }
+                break;
+            case UNION:
+                for (final Schema type : schema.getTypes()) {
+                    collect(type, names, visited);
+                }
+                break;
+            case ARRAY:
+                collect(schema.getElementType(), names, visited);
+                break;
+            case MAP:
+                collect(schema.getValueType(), names, visited);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package org.avro.compactor.codec;
 
-import net.magik6k.bitbuffer.BitBuffer;
 
 /**
  * Encodes and decodes the compactor version
  *    - The version is stored in 4 bits
- *
- *    TODO: Add feature flags to enabled higher compaction
  */
 public class VersionCodec implements BitCodec<Byte> {
 
@@ -25,13 +22,17 @@ public class VersionCodec implements BitCodec<Byte> {
         return VERSION_BITS;
     }
 
-    public void encode(final Byte version, BitBuffer buffer) {
+    public void encode(final Byte version, BitWriter writer) {
         validate(version);
-        buffer.putByte(version, VERSION_BITS);
+        writer.putByte(version, VERSION_BITS);
     }
 
-    public Byte decode(BitBuffer buffer) {
-        return buffer.getByteUnsigned(VERSION_BITS);
+    public Byte decode(BitReader reader) {
+        return reader.getByteUnsigned(VERSION_BITS);
+    }
+
+    public void skip(BitReader reader) {
+        reader.skip(VERSION_BITS);
     }
 
 }
@@ -1,10 +1,11 @@
 package org.avro.compactor.codec.field;
 
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
 import org.avro.compactor.codec.FieldCodec;
 
 /**
@@ -19,25 +20,33 @@ public class ArrayCodec implements BitCodec<Schema> {
     }
 
     public void validate(Schema schema) {
-        if (schema.getType() != Type.ARRAY)
-            throw new IllegalArgumentException("Must be type " + Type.ARRAY);
+        validateArray(schema);
         fieldCodec.validate(schema.getElementType());
     }
 
     public int sizeOf(Schema schema) {
-        validate(schema);
+        validateArray(schema);
         return fieldCodec.sizeOf(schema.getElementType());
     }
 
-    public void encode(Schema schema, BitBuffer buffer) {
-        validate(schema);
-        fieldCodec.encode(schema.getElementType(), buffer);
+    public void encode(Schema schema, BitWriter writer) {
+        validateArray(schema);
+        fieldCodec.encode(schema.getElementType(), writer);
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final Schema elementSchema = fieldCodec.decode(buffer);
+    public Schema decode(BitReader reader) {
+        final Schema elementSchema = fieldCodec.decode(reader);
         return Schema.createArray(elementSchema);
     }
+
+    public void skip(BitReader reader) {
+        fieldCodec.skip(reader);
+    }
+
+    private void validateArray(Schema schema) {
+        if (schema.getType() != Type.ARRAY)
+            throw new IllegalArgumentException("Must be type " + Type.ARRAY);
+    }
 }
 
 
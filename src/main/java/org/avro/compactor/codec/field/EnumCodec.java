@@ -1,77 +1,130 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.CountCodec;
+import org.avro.compactor.codec.LosslessCodec;
 import org.avro.compactor.codec.NameCodec;
+import org.avro.compactor.codec.Profile;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Encodes and decodes an Avro enum schema with up to 16 symbols
- *    - The symbol count is stored in 4 bits
+ * Encodes and decodes an Avro enum schema with up to 15 symbols
+ *    - The symbol count is stored in 4 bits, or the Profile's symbol count width
+ *    - With a variable length Profile larger counts are escaped, see CountCodec
+ *    - Lossless enums keep their namespace, doc and aliases after the name, see LosslessCodec
  *
  *    TODO: rule flags for more/less strict rules
- *      - More symbols
  *      - only capital alpha symbols, etc
  */
 public class EnumCodec implements BitCodec<Schema> {
 
-    private static final int SYMBOLS_COUNT_BITS = 4;
-    private static final int SYMBOLS_MAX_COUNT = (int) Math.pow(2, SYMBOLS_COUNT_BITS);
-
+    private final CountCodec symbolsCountCodec;
     private final NameCodec nameCodec;
     private final NameCodec symbolCodec;
+    private final boolean lossless;
 
     public EnumCodec(final NameCodec nameCodec, final NameCodec symbolCodec) {
+        this(nameCodec, symbolCodec, Profile.DEFAULT);
+    }
+
+    public EnumCodec(final NameCodec nameCodec, final NameCodec symbolCodec, final Profile profile) {
+        this(nameCodec, symbolCodec, profile, false);
+    }
+
+    public EnumCodec(final NameCodec nameCodec, final NameCodec symbolCodec, final Profile profile, final boolean lossless) {
+        this.symbolsCountCodec = profile.symbolCountCodec();
         this.nameCodec = nameCodec;
         this.symbolCodec = symbolCodec;
+        this.lossless = lossless;
     }
 
     public void validate(final Schema schema) {
-        if (schema.getType() != Type.ENUM)
-            throw new IllegalArgumentException("Must be type " + Type.ENUM);
+        validateEnum(schema);
         nameCodec.validate(schema.getName());
-        if (schema.getEnumSymbols().size() > SYMBOLS_MAX_COUNT)
-            throw new IllegalArgumentException("Only supports up to " + SYMBOLS_MAX_COUNT + " symbols. Found " + schema.getEnumSymbols().size());
         for (final String symbol : schema.getEnumSymbols()) {
             symbolCodec.validate(symbol);
         }
     }
 
     public int sizeOf(final Schema schema) {
-        validate(schema);
+        validateEnum(schema);
         int size = 0;
         size += nameCodec.sizeOf(schema.getName());
-        size += SYMBOLS_COUNT_BITS;
+        size += symbolsCountCodec.sizeOf(schema.getEnumSymbols().size());
         for (final String symbol : schema.getEnumSymbols()) {
             size += symbolCodec.sizeOf(symbol);
         }
         return size;
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
-        validate(schema);
-        nameCodec.encode(schema.getName(), buffer);
-        buffer.putByte((byte) schema.getEnumSymbols().size(), SYMBOLS_COUNT_BITS);
+    public void encode(final Schema schema, BitWriter writer) {
+        validateEnum(schema);
+        writer.addNamedType(schema.getFullName());
+        nameCodec.encode(schema.getName(), writer);
+        if (lossless) {
+            LosslessCodec.encodeText(schema.getNamespace(), writer);
+            LosslessCodec.encodeText(schema.getDoc(), writer);
+            LosslessCodec.encodeAliases(schema.getAliases(), writer);
+        }
+        symbolsCountCodec.encode(schema.getEnumSymbols().size(), writer);
         for (final String symbol : schema.getEnumSymbols()) {
-            symbolCodec.encode(symbol, buffer);
+            symbolCodec.encode(symbol, writer);
+        }
+    }
+
+    public void skip(BitReader reader) {
+        nameCodec.skip(reader);
+        final int symbolCount = decodeSymbolCount(reader);
+        for(int i = 0; i < symbolCount; i++) {
+            symbolCodec.skip(reader);
         }
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final String name = nameCodec.decode(buffer);
-        final Byte symbolCount = buffer.getByteUnsigned(SYMBOLS_COUNT_BITS);
+    private void validateEnum(final Schema schema) {
+        if (schema.getType() != Type.ENUM)
+            throw new IllegalArgumentException("Must be type " + Type.ENUM);
+        if (schema.getEnumSymbols().size() > symbolsCountCodec.maxCount())
+            throw new IllegalArgumentException("Only supports up to " + symbolsCountCodec.maxCount() + " symbols. Found " + schema.getEnumSymbols().size());
+    }
+
+    public Schema decode(BitReader reader) {
+        final String name = nameCodec.decode(reader);
+        final String namespace = lossless ? LosslessCodec.decodeText(reader) : null;
+        final String doc = lossless ? LosslessCodec.decodeText(reader) : null;
+        final List<String> aliases = lossless ? LosslessCodec.decodeAliases(reader) : Collections.<String>emptyList();
+        final int symbolCount = symbolsCountCodec.decode(reader);
         final List<String> symbols = new ArrayList<String>();
         for(int i = 0; i < symbolCount; i++) {
-            final String symbol = symbolCodec.decode(buffer);
+            final String symbol = symbolCodec.decode(reader);
             symbols.add(symbol);
         }
-        return Schema.createEnum(name, null, null, symbols);
+        final Schema schema = Schema.createEnum(name, doc, namespace, symbols);
+        for (final String alias : aliases) {
+            schema.addAlias(alias);
+        }
+        reader.addNamedType(schema);
+        return schema;
     }
 
-}
+    /**
+     * The enum name, symbol count and symbols can be read on their own when the enum is not lossless
+     */
+    public String decodeName(BitReader reader) {
+        return nameCodec.decode(reader);
+    }
 
+    public int decodeSymbolCount(BitReader reader) {
+        return symbolsCountCodec.decode(reader);
+    }
 
+    public String decodeSymbol(BitReader reader) {
+        return symbolCodec.decode(reader);
+    }
+}
@@ -1,54 +1,105 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.CountCodec;
+import org.avro.compactor.codec.LosslessCodec;
 import org.avro.compactor.codec.NameCodec;
+import org.avro.compactor.codec.Profile;
+
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Encodes and decodes an Avro fixed schema with a fixed size up to 256
+ * Encodes and decodes an Avro fixed schema with a fixed size up to 255
+ *    - The size is stored in 8 bits, or the Profile's fixed size width
+ *    - With a variable length Profile larger sizes are escaped, see CountCodec
+ *    - Lossless fixed types keep their namespace, doc and aliases after the name, see LosslessCodec
  *
  * TODO: rule flags for more/less strict rules
  */
 public class FixedCodec implements BitCodec<Schema> {
 
-    private static final int FIXED_SIZE_BITS = 8;
-    private static final int MAX_FIXED_SIZE = (int) Math.pow(2, FIXED_SIZE_BITS);
-
+    private final CountCodec fixedSizeCodec;
     private final NameCodec nameCodec;
+    private final boolean lossless;
 
     public FixedCodec(final NameCodec nameCodec) {
+        this(nameCodec, Profile.DEFAULT);
+    }
+
+    public FixedCodec(final NameCodec nameCodec, final Profile profile) {
+        this(nameCodec, profile, false);
+    }
+
+    public FixedCodec(final NameCodec nameCodec, final Profile profile, final boolean lossless) {
+        this.fixedSizeCodec = profile.fixedSizeCodec();
         this.nameCodec = nameCodec;
+        this.lossless = lossless;
     }
 
     public void validate(Schema schema) {
-        if (schema.getType() != Type.FIXED)
-            throw new IllegalArgumentException("Must be type " + Type.FIXED);
+        validateFixed(schema);
         nameCodec.validate(schema.getName());
-        if(schema.getFixedSize() > MAX_FIXED_SIZE)
-            throw new IllegalArgumentException("Only supports a fixed size up to " + MAX_FIXED_SIZE + ". Found " + schema.getFixedSize());
     }
 
     public int sizeOf(Schema schema) {
-        validate(schema);
+        validateFixed(schema);
         int size = 0;
         size += nameCodec.sizeOf(schema.getName());
-        size += FIXED_SIZE_BITS;
+        size += fixedSizeCodec.sizeOf(schema.getFixedSize());
         return size;
     }
 
-    public void encode(Schema schema, BitBuffer buffer) {
-        validate(schema);
-        nameCodec.encode(schema.getName(), buffer);
-        buffer.putByte((byte) schema.getFixedSize(), FIXED_SIZE_BITS);
+    public void encode(Schema schema, BitWriter writer) {
+        validateFixed(schema);
+        writer.addNamedType(schema.getFullName());
+        nameCodec.encode(schema.getName(), writer);
+        if (lossless) {
+            LosslessCodec.encodeText(schema.getNamespace(), writer);
+            LosslessCodec.encodeText(schema.getDoc(), writer);
+            LosslessCodec.encodeAliases(schema.getAliases(), writer);
+        }
+        fixedSizeCodec.encode(schema.getFixedSize(), writer);
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final String name = nameCodec.decode(buffer);
-        final Byte size = buffer.getByteUnsigned(FIXED_SIZE_BITS);
-        return Schema.createFixed(name, null, null, size);
+    public void skip(BitReader reader) {
+        nameCodec.skip(reader);
+        fixedSizeCodec.skip(reader);
     }
-}
 
+    private void validateFixed(Schema schema) {
+        if (schema.getType() != Type.FIXED)
+            throw new IllegalArgumentException("Must be type " + Type.FIXED);
+        if(schema.getFixedSize() > fixedSizeCodec.maxCount())
+            throw new IllegalArgumentException("Only supports a fixed size up to " + fixedSizeCodec.maxCount() + ". Found " + schema.getFixedSize());
+    }
+
+    public Schema decode(BitReader reader) {
+        final String name = nameCodec.decode(reader);
+        final String namespace = lossless ? LosslessCodec.decodeText(reader) : null;
+        final String doc = lossless ? LosslessCodec.decodeText(reader) : null;
+        final List<String> aliases = lossless ? LosslessCodec.decodeAliases(reader) : Collections.<String>emptyList();
+        final int size = fixedSizeCodec.decode(reader);
+        final Schema schema = Schema.createFixed(name, doc, namespace, size);
+        for (final String alias : aliases) {
+            schema.addAlias(alias);
+        }
+        reader.addNamedType(schema);
+        return schema;
+    }
 
+    /**
+     * The fixed name and size can be read on their own when the fixed type is not lossless
+     */
+    public String decodeName(BitReader reader) {
+        return nameCodec.decode(reader);
+    }
+
+    public int decodeSize(BitReader reader) {
+        return fixedSizeCodec.decode(reader);
+    }
+}
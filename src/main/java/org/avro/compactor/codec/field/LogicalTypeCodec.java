@@ -0,0 +1,126 @@
+package org.avro.compactor.codec.field;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.CountCodec;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes and decodes the standard Avro logical types
+ *    - The logical type id is stored in 4 bits, from a fixed table of the standard logical type names
+ *    - Decimal precision and scale follow in 5 bits each, larger values are escaped like CountCodec
+ *    - Decoded logical types are rebuilt with LogicalTypes and added to the schema
+ *
+ * Logical types outside the table, and ones Avro rejects for their schema, are dropped like any other property.
+ */
+public class LogicalTypeCodec {
+
+    private static final String LOGICAL_TYPE_PROP = "logicalType";
+    private static final int ID_BITS = 4;
+    private static final CountCodec DECIMAL_CODEC = new CountCodec(5, true);
+
+    private static final String DECIMAL = "decimal";
+
+    // Append only, the index is the id
+    private static final List<String> logicalTypes = Arrays.asList(
+        DECIMAL,
+        "uuid",
+        "date",
+        "time-millis",
+        "time-micros",
+        "timestamp-millis",
+        "timestamp-micros",
+        "local-timestamp-millis",
+        "local-timestamp-micros",
+        "duration"
+    );
+
+    /**
+     * @return the name of the schema's logical type, or null if it has none the table can carry
+     */
+    public static String nameOf(final Schema schema) {
+        final LogicalType logicalType = schema.getLogicalType();
+        if (logicalType != null) {
+            return logicalTypes.contains(logicalType.getName()) ? logicalType.getName() : null;
+        }
+        // Avro only models some names, the rest are left as a plain property
+        final String name = schema.getProp(LOGICAL_TYPE_PROP);
+        return name != null && !isModelled(name) && logicalTypes.contains(name) ? name : null;
+    }
+
+    public static int sizeOf(final Schema schema) {
+        final String name = checkedNameOf(schema);
+        int size = ID_BITS;
+        if (DECIMAL.equals(name)) {
+            final LogicalTypes.Decimal decimal = (LogicalTypes.Decimal) schema.getLogicalType();
+            size += DECIMAL_CODEC.sizeOf(decimal.getPrecision());
+            size += DECIMAL_CODEC.sizeOf(decimal.getScale());
+        }
+        return size;
+    }
+
+    public static void encode(final Schema schema, final BitWriter writer) {
+        final String name = checkedNameOf(schema);
+        writer.putBits(logicalTypes.indexOf(name), ID_BITS);
+        if (DECIMAL.equals(name)) {
+            final LogicalTypes.Decimal decimal = (LogicalTypes.Decimal) schema.getLogicalType();
+            DECIMAL_CODEC.encode(decimal.getPrecision(), writer);
+            DECIMAL_CODEC.encode(decimal.getScale(), writer);
+        }
+    }
+
+    public static LogicalType decode(final BitReader reader) {
+        final String name = decodeName(reader);
+        switch (name) {
+            case DECIMAL:
+                final int precision = DECIMAL_CODEC.decode(reader);
+                final int scale = DECIMAL_CODEC.decode(reader);
+                return LogicalTypes.decimal(precision, scale);
+            case "uuid":
+                return LogicalTypes.uuid();
+            case "date":
+                return LogicalTypes.date();
+            case "time-millis":
+                return LogicalTypes.timeMillis();
+            case "time-micros":
+                return LogicalTypes.timeMicros();
+            case "timestamp-millis":
+                return LogicalTypes.timestampMillis();
+            case "timestamp-micros":
+                return LogicalTypes.timestampMicros();
+            default:
+                return new LogicalType(name);
+        }
+    }
+
+    public static void skip(final BitReader reader) {
+        if (DECIMAL.equals(decodeName(reader))) {
+            DECIMAL_CODEC.skip(reader);
+            DECIMAL_CODEC.skip(reader);
+        }
+    }
+
+    private static String decodeName(final BitReader reader) {
+        final int id = reader.getBits(ID_BITS);
+        if (id >= logicalTypes.size())
+            throw new IllegalArgumentException("Logical type id is not supported. Found " + id);
+        return logicalTypes.get(id);
+    }
+
+    private static String checkedNameOf(final Schema schema) {
+        final String name = nameOf(schema);
+        if (name == null)
+            throw new IllegalArgumentException("Schema has no supported logical type. Found " + schema.getProp(LOGICAL_TYPE_PROP));
+        return name;
+    }
+
+    private static boolean isModelled(final String name) {
+        // Names this version of Avro validates, a plain property with one of them was rejected by Avro
+        return !name.startsWith("local-timestamp-") && !name.equals("duration");
+    }
+}
@@ -1,9 +1,10 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
 import org.avro.compactor.codec.FieldCodec;
 
 /**
@@ -18,25 +19,33 @@ public class MapCodec implements BitCodec<Schema> {
     }
 
     public void validate(final Schema schema) {
-        if (schema.getType() != Type.MAP)
-            throw new IllegalArgumentException("Must be type " + Type.MAP);
+        validateMap(schema);
         fieldCodec.validate(schema.getValueType());
     }
 
     public int sizeOf(final Schema schema) {
-        validate(schema);
+        validateMap(schema);
         return fieldCodec.sizeOf(schema.getValueType());
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
-        validate(schema);
-        fieldCodec.encode(schema.getValueType(), buffer);
+    public void encode(final Schema schema, BitWriter writer) {
+        validateMap(schema);
+        fieldCodec.encode(schema.getValueType(), writer);
     }
 
-    public Schema decode(final BitBuffer buffer) {
-        final Schema valueSchema = fieldCodec.decode(buffer);
+    public Schema decode(final BitReader reader) {
+        final Schema valueSchema = fieldCodec.decode(reader);
         return Schema.createMap(valueSchema);
     }
+
+    public void skip(final BitReader reader) {
+        fieldCodec.skip(reader);
+    }
+
+    private void validateMap(final Schema schema) {
+        if (schema.getType() != Type.MAP)
+            throw new IllegalArgumentException("Must be type " + Type.MAP);
+    }
 }
 
 
@@ -1,9 +1,10 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
 
 public class PrimitiveCodec implements BitCodec<Schema> {
 
@@ -27,14 +28,18 @@ public class PrimitiveCodec implements BitCodec<Schema> {
         return FIELD_BITS;
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
+    public void encode(final Schema schema, BitWriter writer) {
         validate(schema);
         // Nothing needs to be serialized
     }
 
-    public Schema decode(BitBuffer buffer) {
+    public Schema decode(BitReader reader) {
         // Nothing needs to be deserialized
         return Schema.create(type);
 
     }
+
+    public void skip(BitReader reader) {
+        // Nothing was serialized
+    }
 }
@@ -1,81 +1,187 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.CountCodec;
+import org.avro.compactor.codec.Feature;
 import org.avro.compactor.codec.FieldCodec;
+import org.avro.compactor.codec.LosslessCodec;
 import org.avro.compactor.codec.NameCodec;
+import org.avro.compactor.codec.Profile;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Encodes and decodes an Avro record schema with up to 64 fields
- *    - The field count is stored in 6 bits
+ * Encodes and decodes an Avro record schema with up to 63 fields
+ *    - The field count is stored in 6 bits, or the Profile's field count width
+ *    - With a variable length Profile larger counts are escaped, see CountCodec
  *    - The field name is encoded/decoded with NameCodec
- *
- *    TODO: rule flags for more/less strict rules
- *      - More fields
+ *    - Lossless records keep their namespace, doc, error flag and aliases after the name,
+ *      and each field's write time parts after its type, see LosslessCodec
+ *    - A record inside itself is rejected, FieldCodec writes it as a reference with NAMED_TYPE_REFERENCES
  */
 public class RecordCodec implements BitCodec<Schema> {
 
-    private static final int FIELDS_COUNT_BITS = 6;
-    private static final int FIELDS_MAX_COUNT = (int) Math.pow(2, FIELDS_COUNT_BITS);
+    private static final int ERROR_BITS = 1;
+    // Records being validated or sized on this thread, those walks have no writer to track them
+    private static final ThreadLocal<Set<String>> OPEN_RECORDS = new ThreadLocal<Set<String>>() {
+        @Override
+        protected Set<String> initialValue() {
+            return new HashSet<String>();
+        }
+    };
 
+    private final CountCodec fieldsCountCodec;
     private final NameCodec nameCodec;
     private final FieldCodec fieldCodec;
+    private final boolean lossless;
 
     public RecordCodec(final NameCodec nameCodec, final FieldCodec fieldCodec) {
+        this(nameCodec, fieldCodec, Profile.DEFAULT);
+    }
+
+    public RecordCodec(final NameCodec nameCodec, final FieldCodec fieldCodec, final Profile profile) {
+        this(nameCodec, fieldCodec, profile, false);
+    }
+
+    public RecordCodec(final NameCodec nameCodec, final FieldCodec fieldCodec, final Profile profile, final boolean lossless) {
+        this.fieldsCountCodec = profile.fieldCountCodec();
         this.nameCodec = nameCodec;
         this.fieldCodec = fieldCodec;
+        this.lossless = lossless;
     }
 
     public void validate(final Schema schema) {
-        if (schema.getType() != Type.RECORD)
-            throw new IllegalArgumentException("Must be type " + Type.RECORD);
-        nameCodec.validate(schema.getName());
-        if (schema.getFields().size() > FIELDS_MAX_COUNT)
-            throw new IllegalArgumentException("Only supports up to " + FIELDS_MAX_COUNT + " fields. Found " + schema.getFields().size());
-        for (final Field field : schema.getFields()) {
-            nameCodec.validate(field.name());
-            fieldCodec.validate(field.schema());
+        validateRecord(schema);
+        final Set<String> openRecords = open(schema);
+        try {
+            nameCodec.validate(schema.getName());
+            for (final Field field : schema.getFields()) {
+                nameCodec.validate(field.name());
+                fieldCodec.validate(field.schema());
+            }
+        } finally {
+            openRecords.remove(schema.getFullName());
         }
     }
 
     public int sizeOf(final Schema schema) {
-        validate(schema);
-        int size = 0;
-        size += nameCodec.sizeOf(schema.getName());
-        size += FIELDS_COUNT_BITS;
-        for (final Field field : schema.getFields()) {
-            size += nameCodec.sizeOf(field.name());
-            size += fieldCodec.sizeOf(field.schema());
+        validateRecord(schema);
+        final Set<String> openRecords = open(schema);
+        try {
+            int size = 0;
+            size += nameCodec.sizeOf(schema.getName());
+            size += fieldsCountCodec.sizeOf(schema.getFields().size());
+            for (final Field field : schema.getFields()) {
+                size += nameCodec.sizeOf(field.name());
+                size += fieldCodec.sizeOf(field.schema());
+            }
+            return size;
+        } finally {
+            openRecords.remove(schema.getFullName());
         }
-        return size;
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
-        validate(schema);
-        nameCodec.encode(schema.getName(), buffer);
-        buffer.putByte((byte) schema.getFields().size(), FIELDS_COUNT_BITS);
+    private static Set<String> open(final Schema schema) {
+        final Set<String> openRecords = OPEN_RECORDS.get();
+        if (!openRecords.add(schema.getFullName()))
+            throw selfReference(schema);
+        return openRecords;
+    }
+
+    private static IllegalArgumentException selfReference(final Schema schema) {
+        return new IllegalArgumentException("Recursive schemas need " + Feature.NAMED_TYPE_REFERENCES + ". Found " + schema.getFullName() + " inside itself");
+    }
+
+    public void encode(final Schema schema, BitWriter writer) {
+        validateRecord(schema);
+        if (!writer.openRecord(schema.getFullName()))
+            throw selfReference(schema);
+        writer.addNamedType(schema.getFullName());
+        nameCodec.encode(schema.getName(), writer);
+        if (lossless) {
+            LosslessCodec.encodeText(schema.getNamespace(), writer);
+            LosslessCodec.encodeText(schema.getDoc(), writer);
+            writer.putBits(schema.isError() ? 1 : 0, ERROR_BITS);
+            LosslessCodec.encodeAliases(schema.getAliases(), writer);
+        }
+        fieldsCountCodec.encode(schema.getFields().size(), writer);
         for (final Field field : schema.getFields()) {
-            nameCodec.encode(field.name(), buffer);
-            fieldCodec.encode(field.schema(), buffer);
+            nameCodec.encode(field.name(), writer);
+            fieldCodec.encode(field.schema(), writer);
+            if (lossless) {
+                LosslessCodec.encodeField(field, writer);
+            }
         }
+        writer.closeRecord(schema.getFullName());
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final String name = nameCodec.decode(buffer);
-        final Byte fieldCount = buffer.getByteUnsigned(FIELDS_COUNT_BITS);
+    private void validateRecord(final Schema schema) {
+        if (schema.getType() != Type.RECORD)
+            throw new IllegalArgumentException("Must be type " + Type.RECORD);
+        if (schema.getFields().size() > fieldsCountCodec.maxCount())
+            throw new IllegalArgumentException("Only supports up to " + fieldsCountCodec.maxCount() + " fields. Found " + schema.getFields().size());
+    }
+
+    public Schema decode(BitReader reader) {
+        final String name = decodeName(reader);
+        final Schema record;
+        if (lossless) {
+            final String namespace = LosslessCodec.decodeText(reader);
+            final String doc = LosslessCodec.decodeText(reader);
+            record = Schema.createRecord(name, doc, namespace, reader.getBits(ERROR_BITS) == 1);
+            for (final String alias : LosslessCodec.decodeAliases(reader)) {
+                record.addAlias(alias);
+            }
+        } else {
+            record = Schema.createRecord(name, null, null, false);
+        }
+        // Register the record before its fields so they can refer back to it
+        reader.addNamedType(record);
+        final int fieldCount = decodeFieldCount(reader);
         final List<Field> fields = new ArrayList<Field>();
         for(int i = 0; i < fieldCount; i++) {
-            final String fieldName = nameCodec.decode(buffer);
-            final Schema fieldSchema = fieldCodec.decode(buffer);
-            fields.add(new Field(fieldName, fieldSchema, null, (Object) null));
+            final String fieldName = decodeFieldName(reader);
+            final Schema fieldSchema = fieldCodec.decode(reader);
+            if (lossless) {
+                fields.add(LosslessCodec.decodeField(fieldName, fieldSchema, reader));
+            } else {
+                fields.add(new Field(fieldName, fieldSchema, null, (Object) null));
+            }
+        }
+        record.setFields(fields);
+        return record;
+    }
+
+    public void skip(BitReader reader) {
+        nameCodec.skip(reader);
+        final int fieldCount = decodeFieldCount(reader);
+        for(int i = 0; i < fieldCount; i++) {
+            nameCodec.skip(reader);
+            fieldCodec.skip(reader);
         }
-        return Schema.createRecord(name, null, null, false, fields);
+    }
+
+    /**
+     * The record name, field count and field names can be read on their own, each field name is followed by its type
+     */
+    public String decodeName(BitReader reader) {
+        return nameCodec.decode(reader);
+    }
+
+    public int decodeFieldCount(BitReader reader) {
+        return fieldsCountCodec.decode(reader);
+    }
+
+    public String decodeFieldName(BitReader reader) {
+        return nameCodec.decode(reader);
     }
 
 }
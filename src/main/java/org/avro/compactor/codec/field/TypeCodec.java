@@ -1,7 +1,8 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -11,12 +12,12 @@ import java.util.Map;
 /**
  * Encodes and decodes Avro schema types
  *    - The type id is stored in 4 bits
- *
- *    TODO: Support LogicalType
+ *    - Avro types use ids 0 to 13, id 14 marks a logical type written before the type it applies to
  */
 public class TypeCodec {
 
     private static final int ID_BITS = 4;
+    private static final byte LOGICAL_ID = 14;
 
     private static final Map<Byte, Type> idToType = new HashMap<Byte, Type>();
     private static final Map<Type, Byte> typeToId = new HashMap<Type, Byte>();
@@ -68,6 +69,10 @@ public class TypeCodec {
         return complexTypes.contains(type);
     }
 
+    public static boolean isNamed(final Type type) {
+        return type == Type.RECORD || type == Type.ENUM || type == Type.FIXED;
+    }
+
     public static void validate(final Type type) {
         if(!typeToId.containsKey(type))
             throw new IllegalArgumentException("Type " + type + " is not supported");
@@ -78,13 +83,46 @@ public class TypeCodec {
         return ID_BITS;
     }
 
-    public static void encode(final Type type, BitBuffer buffer) {
+    public static void encode(final Type type, BitWriter writer) {
         validate(type);
-        buffer.putByte(typeToId.get(type), ID_BITS);
+        writer.putByte(typeToId.get(type), ID_BITS);
+    }
+
+    public static Type decode(BitReader reader) {
+        return typeOf(decodeId(reader));
+    }
+
+    public static int sizeOfLogical() {
+        return ID_BITS;
+    }
+
+    public static void encodeLogical(BitWriter writer) {
+        writer.putByte(LOGICAL_ID, ID_BITS);
+    }
+
+    /**
+     * @return the raw id, either a type id or the logical type marker
+     */
+    public static byte decodeId(BitReader reader) {
+        return reader.getByteUnsigned(ID_BITS);
+    }
+
+    /**
+     * @return the raw id without reading it
+     */
+    public static byte peekId(BitReader reader) {
+        return (byte) reader.peekLong(ID_BITS);
+    }
+
+    public static boolean isLogical(final byte id) {
+        return id == LOGICAL_ID;
     }
 
-    public static Type decode(BitBuffer buffer) {
-        return idToType.get(buffer.getByteUnsigned(ID_BITS));
+    public static Type typeOf(final byte id) {
+        final Type type = idToType.get(id);
+        if (type == null)
+            throw new IllegalArgumentException("Type id " + id + " is not supported");
+        return type;
     }
 
 }
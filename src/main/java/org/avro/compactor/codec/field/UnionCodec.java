@@ -1,69 +1,88 @@
 package org.avro.compactor.codec.field;
 
-import net.magik6k.bitbuffer.BitBuffer;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.avro.compactor.codec.BitCodec;
+import org.avro.compactor.codec.BitReader;
+import org.avro.compactor.codec.BitWriter;
+import org.avro.compactor.codec.CountCodec;
 import org.avro.compactor.codec.FieldCodec;
+import org.avro.compactor.codec.Profile;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Encodes and decodes an Avro union schema with up to 16 types
- *    - The type count is stored in 4 bits
- *
- *    TODO: rule flags for more/less strict rules
- *      - More types
+ * Encodes and decodes an Avro union schema with up to 15 types
+ *    - The type count is stored in 4 bits, or the Profile's type count width
+ *    - With a variable length Profile larger counts are escaped, see CountCodec
  */
 public class UnionCodec implements BitCodec<Schema> {
 
-    private static final int TYPES_COUNT_BITS = 4;
-    private static final int TYPES_MAX_COUNT = (int) Math.pow(2, TYPES_COUNT_BITS);
-
+    private final CountCodec typesCountCodec;
     private final FieldCodec fieldCodec;
 
     public UnionCodec(final FieldCodec fieldCodec) {
+        this(fieldCodec, Profile.DEFAULT);
+    }
+
+    public UnionCodec(final FieldCodec fieldCodec, final Profile profile) {
+        this.typesCountCodec = profile.typeCountCodec();
         this.fieldCodec = fieldCodec;
     }
 
     public void validate(final Schema schema) {
-        if (schema.getType() != Type.UNION)
-            throw new IllegalArgumentException("Must be type " + Type.UNION);
-        if (schema.getTypes().size() > TYPES_MAX_COUNT)
-            throw new IllegalArgumentException("Only supports up to " + TYPES_MAX_COUNT + " types. Found " + schema.getTypes().size());
+        validateUnion(schema);
         for (Schema typeSchema : schema.getTypes()) {
             fieldCodec.validate(typeSchema);
         }
     }
 
     public int sizeOf(final Schema schema) {
-        validate(schema);
+        validateUnion(schema);
         int size = 0;
-        size += TYPES_COUNT_BITS;
+        size += typesCountCodec.sizeOf(schema.getTypes().size());
         for (Schema typeSchema : schema.getTypes()) {
             size += fieldCodec.sizeOf(typeSchema);
         }
         return size;
     }
 
-    public void encode(final Schema schema, BitBuffer buffer) {
-        validate(schema);
-        buffer.putByte((byte) schema.getTypes().size(), TYPES_COUNT_BITS);
+    public void encode(final Schema schema, BitWriter writer) {
+        validateUnion(schema);
+        typesCountCodec.encode(schema.getTypes().size(), writer);
         for (Schema typeSchema : schema.getTypes()) {
-            fieldCodec.encode(typeSchema, buffer);
+            fieldCodec.encode(typeSchema, writer);
         }
     }
 
-    public Schema decode(BitBuffer buffer) {
-        final Byte typeCount = buffer.getByteUnsigned(TYPES_COUNT_BITS);
+    private void validateUnion(final Schema schema) {
+        if (schema.getType() != Type.UNION)
+            throw new IllegalArgumentException("Must be type " + Type.UNION);
+        if (schema.getTypes().size() > typesCountCodec.maxCount())
+            throw new IllegalArgumentException("Only supports up to " + typesCountCodec.maxCount() + " types. Found " + schema.getTypes().size());
+    }
+
+    public Schema decode(BitReader reader) {
+        final int typeCount = decodeTypeCount(reader);
         final List<Schema> types = new ArrayList<Schema>();
         for(int i = 0; i < typeCount; i++) {
-            final Schema typeSchema = fieldCodec.decode(buffer);
+            final Schema typeSchema = fieldCodec.decode(reader);
             types.add(typeSchema);
         }
         return Schema.createUnion(types);
     }
+
+    public void skip(BitReader reader) {
+        final int typeCount = decodeTypeCount(reader);
+        for(int i = 0; i < typeCount; i++) {
+            fieldCodec.skip(reader);
+        }
+    }
+
+    public int decodeTypeCount(BitReader reader) {
+        return typesCountCodec.decode(reader);
+    }
 }
 
 
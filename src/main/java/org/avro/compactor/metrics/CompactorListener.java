@@ -0,0 +1,35 @@
+package org.avro.compactor.metrics;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.BitBreakdown;
+
+/**
+ * Receives the time and bits of each encode and decode, and each failure, see Compactor.Builder.listener
+ *    - Called on the thread that made the call, so implementations must be thread-safe and quick
+ *    - The default is NONE, the Compactor then skips timing and tallying so it costs nothing
+ *    - Extend NoOpListener to handle only some of the events
+ *
+ * sizeOf is not reported, validate only reports failures.
+ */
+public interface CompactorListener {
+
+    CompactorListener NONE = new NoOpListener();
+
+    /**
+     * @param bits the bits written for the schema, by what they were spent on
+     */
+    void encoded(final Schema schema, final BitBreakdown bits, final long nanos);
+
+    /**
+     * @param bits the bits read, including the header
+     */
+    void decoded(final Schema schema, final int bits, final long nanos);
+
+    /**
+     * The error is rethrown to the caller after the listener returns
+     *
+     * @param schema the schema being encoded or validated, null when decoding
+     */
+    void failed(final Operation operation, final Schema schema, final RuntimeException error);
+
+}
@@ -0,0 +1,20 @@
+package org.avro.compactor.metrics;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.BitBreakdown;
+
+/**
+ * A CompactorListener that ignores every event
+ */
+public class NoOpListener implements CompactorListener {
+
+    @Override
+    public void encoded(final Schema schema, final BitBreakdown bits, final long nanos) {}
+
+    @Override
+    public void decoded(final Schema schema, final int bits, final long nanos) {}
+
+    @Override
+    public void failed(final Operation operation, final Schema schema, final RuntimeException error) {}
+
+}
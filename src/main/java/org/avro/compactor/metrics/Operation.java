@@ -0,0 +1,14 @@
+package org.avro.compactor.metrics;
+
+/**
+ * The Compactor calls reported to a CompactorListener
+ */
+public enum Operation {
+
+    ENCODE,
+
+    DECODE,
+
+    VALIDATE
+
+}
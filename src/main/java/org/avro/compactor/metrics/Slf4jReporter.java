@@ -0,0 +1,194 @@
+package org.avro.compactor.metrics;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.cache.SchemaCompactorCache;
+import org.avro.compactor.cache.SchemaInterner;
+import org.avro.compactor.codec.BitBreakdown;
+import org.avro.compactor.codec.BitCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A CompactorListener that collects metrics and logs them through SLF4J
+ *    - Encode and decode latencies go into a LatencyHistogram each
+ *    - Encoded bits are summed per BitCategory, to show where the bits go
+ *    - Failures are counted by reason, the message with its "Found ..." part and numbers taken out
+ *    - Encodes and decodes slower than the slow threshold are logged at debug with the schema name,
+ *      to find the expensive schemas
+ *    - report() logs everything at info, including the stats of watched caches and interners.
+ *      Call it on a schedule, counters are never reset
+ */
+public class Slf4jReporter implements CompactorListener {
+
+    public static final long DEFAULT_SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final BitCategory[] CATEGORIES = BitCategory.values();
+
+    private final Logger logger;
+    private final long slowNanos;
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final AtomicLongArray encodedBits = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLong decodedBits = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> failures = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, SchemaCompactorCache> caches = new ConcurrentHashMap<String, SchemaCompactorCache>();
+    private final ConcurrentMap<String, SchemaInterner> interners = new ConcurrentHashMap<String, SchemaInterner>();
+
+    public Slf4jReporter() {
+        this(LoggerFactory.getLogger(Slf4jReporter.class), DEFAULT_SLOW_NANOS);
+    }
+
+    public Slf4jReporter(final Logger logger, final long slowNanos) {
+        this.logger = logger;
+        this.slowNanos = slowNanos;
+    }
+
+    /**
+     * Includes the cache's encode and decode stats in each report
+     */
+    public Slf4jReporter watch(final String name, final SchemaCompactorCache cache) {
+        caches.put(name, cache);
+        return this;
+    }
+
+    /**
+     * Includes the interner's stats in each report
+     */
+    public Slf4jReporter watch(final String name, final SchemaInterner interner) {
+        interners.put(name, interner);
+        return this;
+    }
+
+    @Override
+    public void encoded(final Schema schema, final BitBreakdown bits, final long nanos) {
+        encodeLatency.record(nanos);
+        for (final BitCategory category : CATEGORIES) {
+            encodedBits.addAndGet(category.ordinal(), bits.bits(category));
+        }
+        if (nanos >= slowNanos && logger.isDebugEnabled()) {
+            logger.debug("Slow encode of {} took {}us, {}", nameOf(schema), TimeUnit.NANOSECONDS.toMicros(nanos), bits);
+        }
+    }
+
+    @Override
+    public void decoded(final Schema schema, final int bits, final long nanos) {
+        decodeLatency.record(nanos);
+        decodedBits.addAndGet(bits);
+        if (nanos >= slowNanos && logger.isDebugEnabled()) {
+            logger.debug("Slow decode of {} took {}us, {} bits", nameOf(schema), TimeUnit.NANOSECONDS.toMicros(nanos), bits);
+        }
+    }
+
+    @Override
+    public void failed(final Operation operation, final Schema schema, final RuntimeException error) {
+        final String reason = reasonOf(operation, error);
+        AtomicLong count = failures.get(reason);
+        if (count == null) {
+            final AtomicLong created = new AtomicLong();
+            count = failures.putIfAbsent(reason, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+        logger.debug("{} of {} failed: {}", operation, schema == null ? "compacted schema" : nameOf(schema), error.getMessage());
+    }
+
+    /**
+     * @return the failure counts by reason, sorted by reason
+     */
+    public Map<String, Long> failures() {
+        final Map<String, Long> counts = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> failure : failures.entrySet()) {
+            counts.put(failure.getKey(), failure.getValue().get());
+        }
+        return counts;
+    }
+
+    public LatencyHistogram encodeLatency() {
+        return encodeLatency;
+    }
+
+    public LatencyHistogram decodeLatency() {
+        return decodeLatency;
+    }
+
+    /**
+     * @return the bits written for the category over every encode
+     */
+    public long encodedBits(final BitCategory category) {
+        return encodedBits.get(category.ordinal());
+    }
+
+    public long decodedBits() {
+        return decodedBits.get();
+    }
+
+    public void report() {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        logger.info("Encode latency: {}", encodeLatency);
+        logger.info("Decode latency: {}, {} bits", decodeLatency, decodedBits());
+        logger.info("Encoded bits: {}", bitsReport());
+        if (!failures.isEmpty()) {
+            logger.info("Failures: {}", failures());
+        }
+        for (final Map.Entry<String, SchemaCompactorCache> cache : caches.entrySet()) {
+            logger.info("Cache {} encode: {}, decode: {}", cache.getKey(), cache.getValue().encodeStats(), cache.getValue().decodeStats());
+        }
+        for (final Map.Entry<String, SchemaInterner> interner : interners.entrySet()) {
+            logger.info("Interner {}: {}", interner.getKey(), interner.getValue().stats());
+        }
+    }
+
+    private String bitsReport() {
+        long total = 0;
+        for (final BitCategory category : CATEGORIES) {
+            total += encodedBits(category);
+        }
+        final StringBuilder builder = new StringBuilder().append(total).append(" total");
+        for (final BitCategory category : CATEGORIES) {
+            final long bits = encodedBits(category);
+            builder.append(", ").append(category.name().toLowerCase(Locale.ROOT)).append('=').append(bits)
+                .append(String.format(Locale.ROOT, " (%.1f%%)", total == 0 ? 0.0 : 100.0 * bits / total));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Errors follow the "What went wrong. Found value" convention, keeping the part before the value
+     * and replacing numbers gives a reason shared by every failure of the same kind
+     */
+    static String reasonOf(final Operation operation, final RuntimeException error) {
+        String message = error.getMessage();
+        if (message == null) {
+            return operation + ": " + error.getClass().getSimpleName();
+        }
+        final int found = message.indexOf(". Found");
+        if (found >= 0) {
+            message = message.substring(0, found);
+        }
+        return operation + ": " + message.replaceAll("[0-9]+", "#");
+    }
+
+    private static String nameOf(final Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+            case ENUM:
+            case FIXED:
+                return schema.getFullName();
+            default:
+                return schema.getType().getName();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.Feature;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the time and allocation of sizeOf, encode, decode, equal and canRead, so a recursive codec or a comparison
+ * that turns quadratic fails the build
+ *    - Each random schema must stay within a budget linear in its json length
+ *    - Wide and deep schemas 16 times larger must cost less than 64 times as much time and 32 times as much allocation,
+ *      a quadratic codec costs about 256 times as much
+ *    - equal and canRead compare against the schema written with other features, so they walk both schemas
+ *      instead of comparing bytes. Without OFFSET_INDEX they find each part by reading the ones before it
+ *    - Times are the fastest of several runs after a warm-up, so a busy build machine does not fail them
+ *    - Allocation is counted with com.sun.management.ThreadMXBean, and only checked where the JVM counts it
+ */
+public class CodecBudgetTest {
+
+    // Generous, about ten times what the codecs need
+    private static final long FIXED_NANOS = 1000000;
+    private static final long NANOS_PER_CHAR = 10000;
+    private static final long FIXED_BYTES = 64 * 1024;
+    private static final long BYTES_PER_CHAR = 1024;
+
+    private static final int GROWTH = 16;
+    private static final int MAX_TIME_GROWTH = GROWTH * 4;
+    private static final int MAX_ALLOCATION_GROWTH = GROWTH * 2;
+    private static final int WIDE_FIELDS = 125;
+    private static final int DEEP_LEVELS = 20;
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int SCALING_WARMUP_RUNS = 10;
+    private static final int RUNS = 5;
+    // A slow run on a busy machine is measured again, a regression is slow every time
+    private static final int ATTEMPTS = 3;
+
+    private static final List<Compactor> COMPACTORS = Arrays.asList(
+        Compactor.DEFAULT,
+        Compactor.builder().variableLength(true).build(),
+        Compactor.builder().profile(true).variableLength(true).namedTypeReferences(true).offsetIndex(true).huffmanNames(true).build(),
+        Compactor.builder().lossless(true).variableLength(true).namedTypeReferences(true).offsetIndex(true).build()
+    );
+
+    // Reads bytes of any size, with a header unlike any of the Compactors checked
+    private static final Compactor OTHER = Compactor.builder().variableLength(true).huffmanNames(true).build();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_COUNTED = isAllocationCounted();
+
+    @Test
+    public void randomSchemasStayWithinBudget() {
+        for (final Compactor compactor : COMPACTORS) {
+            final boolean liftLimits = compactor.features().contains(Feature.VARIABLE_LENGTH);
+            for (final long seed : RandomSchemas.seeds()) {
+                final Schema schema = RandomSchemas.generate(seed, liftLimits);
+                final int length = schema.toString().length();
+                final long nanos = FIXED_NANOS + NANOS_PER_CHAR * length;
+                final long bytes = FIXED_BYTES + BYTES_PER_CHAR * length;
+                Cost cost = Cost.of(compactor, schema, WARMUP_RUNS);
+                for (int attempt = 1; attempt < ATTEMPTS && !cost.isWithin(nanos, bytes); attempt++) {
+                    cost = cost.min(Cost.of(compactor, schema, WARMUP_RUNS));
+                }
+                assertTrue(compactor.features() + " " + cost + " for " + length + " json chars, " + RandomSchemas.describe(seed, schema),
+                    cost.isWithin(nanos, bytes));
+            }
+        }
+    }
+
+    @Test
+    public void wideRecordsScaleLinearly() {
+        for (final Compactor compactor : COMPACTORS) {
+            // The default format holds up to 63 fields
+            if (compactor.features().contains(Feature.VARIABLE_LENGTH)) {
+                assertLinear(compactor, wide(WIDE_FIELDS), wide(WIDE_FIELDS * GROWTH));
+            }
+        }
+    }
+
+    @Test
+    public void deepSchemasScaleLinearly() {
+        for (final Compactor compactor : COMPACTORS) {
+            assertLinear(compactor, deep(DEEP_LEVELS), deep(DEEP_LEVELS * GROWTH));
+        }
+    }
+
+    private static boolean isAllocationCounted() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (final LinkageError e) {
+            // Not a JVM with the com.sun.management extensions
+            return false;
+        }
+    }
+
+    private static void assertLinear(final Compactor compactor, final Schema small, final Schema large) {
+        Cost smallCost = Cost.of(compactor, small, SCALING_WARMUP_RUNS);
+        Cost largeCost = Cost.of(compactor, large, SCALING_WARMUP_RUNS);
+        for (int attempt = 1; attempt < ATTEMPTS && !largeCost.isWithin(smallCost.nanos * MAX_TIME_GROWTH, smallCost.bytes * MAX_ALLOCATION_GROWTH); attempt++) {
+            smallCost = smallCost.min(Cost.of(compactor, small, SCALING_WARMUP_RUNS));
+            largeCost = largeCost.min(Cost.of(compactor, large, SCALING_WARMUP_RUNS));
+        }
+        assertTrue(compactor.features() + " " + smallCost + " grew to " + largeCost + " for " + GROWTH + " times the size",
+            largeCost.isWithin(smallCost.nanos * MAX_TIME_GROWTH, smallCost.bytes * MAX_ALLOCATION_GROWTH));
+    }
+
+    /**
+     * @return a record with the fields cycling through a primitive, an enum, a union with a fixed and an array of records
+     */
+    private static Schema wide(final int fieldCount) {
+        final List<Field> fields = new ArrayList<Field>();
+        for (int i = 0; i < fieldCount; i++) {
+            final Schema schema;
+            switch (i % 4) {
+                case 0:
+                    schema = Schema.create(Type.LONG);
+                    break;
+                case 1:
+                    schema = Schema.createEnum("Enum" + i, null, null, Arrays.asList("ALPHA", "BETA"));
+                    break;
+                case 2:
+                    schema = Schema.createUnion(Arrays.asList(Schema.create(Type.NULL), Schema.createFixed("Fixed" + i, null, null, 16)));
+                    break;
+                default:
+                    schema = Schema.createArray(Schema.createRecord("Record" + i, null, null, false,
+                        Arrays.asList(field("value", Schema.create(Type.STRING)))));
+            }
+            fields.add(field("field" + i, schema));
+        }
+        return Schema.createRecord("Wide", null, null, false, fields);
+    }
+
+    /**
+     * @return records nested through a union, an array and a map at each level
+     */
+    private static Schema deep(final int depth) {
+        Schema schema = Schema.create(Type.STRING);
+        for (int i = 0; i < depth; i++) {
+            final Schema child = Schema.createUnion(Arrays.asList(Schema.create(Type.NULL), Schema.createArray(Schema.createMap(schema))));
+            schema = Schema.createRecord("Level" + i, null, null, false,
+                Arrays.asList(field("id", Schema.create(Type.LONG)), field("child", child)));
+        }
+        return schema;
+    }
+
+    private static Field field(final String name, final Schema schema) {
+        return new Field(name, schema, null, (Object) null);
+    }
+
+    /**
+     * The least time and allocation of one sizeOf, encode, decode, equal and canRead of a schema
+     */
+    private static final class Cost {
+
+        private final long nanos;
+        private final long bytes;
+
+        private Cost(final long nanos, final long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        static Cost of(final Compactor compactor, final Schema schema, final int warmupRuns) {
+            final byte[] encoded = compactor.encode(schema);
+            final byte[] other = OTHER.encode(schema);
+            for (int i = 0; i < warmupRuns; i++) {
+                run(compactor, schema, encoded, other);
+            }
+            long nanos = Long.MAX_VALUE;
+            long bytes = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                final long startBytes = allocatedBytes();
+                final long start = System.nanoTime();
+                run(compactor, schema, encoded, other);
+                nanos = Math.min(nanos, System.nanoTime() - start);
+                bytes = Math.min(bytes, allocatedBytes() - startBytes);
+            }
+            return new Cost(nanos, bytes);
+        }
+
+        boolean isWithin(final long maxNanos, final long maxBytes) {
+            return nanos <= maxNanos && (!ALLOCATION_COUNTED || bytes <= maxBytes);
+        }
+
+        Cost min(final Cost other) {
+            return new Cost(Math.min(nanos, other.nanos), Math.min(bytes, other.bytes));
+        }
+
+        private static void run(final Compactor compactor, final Schema schema, final byte[] encoded, final byte[] other) {
+            compactor.sizeOf(schema);
+            compactor.encode(schema);
+            compactor.decode(encoded);
+            // The answers are checked by RoundTripPropertyTest and SchemaComparatorTest, a LOSSLESS schema keeps more than the other
+            compactor.equal(encoded, other);
+            compactor.canRead(encoded, other);
+        }
+
+        private static long allocatedBytes() {
+            return ALLOCATION_COUNTED ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return nanos / 1000 + " us" + (ALLOCATION_COUNTED ? " and " + bytes / 1024 + " KB" : "");
+        }
+    }
+}
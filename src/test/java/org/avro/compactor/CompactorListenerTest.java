@@ -0,0 +1,56 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.BitBreakdown;
+import org.avro.compactor.metrics.NoOpListener;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A listener that encodes on the calling thread leaves the caller's bytes alone
+ */
+public class CompactorListenerTest {
+
+    private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"items\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}");
+    private static final Schema OTHER = new Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"OPEN\",\"CLOSED\"]}");
+    private static final int BUFFER_OFFSET = 2;
+
+    private final Compactor compactor = Compactor.builder().namedTypeReferences(true).listener(new NoOpListener() {
+        @Override
+        public void encoded(final Schema schema, final BitBreakdown bits, final long nanos) {
+            // Encodes again on the same thread, before the caller's bytes are copied out
+            Compactor.DEFAULT.encode(OTHER);
+            Compactor.DEFAULT.validate(OTHER);
+        }
+    }).build();
+    private final byte[] expected = Compactor.builder().namedTypeReferences(true).build().encode(SCHEMA);
+
+    @Test
+    public void encodesToArray() {
+        assertArrayEquals(expected, compactor.encode(SCHEMA));
+        assertArrayEquals(expected, compactor.compact(SCHEMA).toByteArray());
+    }
+
+    @Test
+    public void encodesToBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_OFFSET + expected.length);
+        buffer.position(BUFFER_OFFSET);
+        assertEquals(expected.length, compactor.encode(SCHEMA, buffer));
+        assertArrayEquals(expected, Arrays.copyOfRange(buffer.array(), BUFFER_OFFSET, buffer.capacity()));
+    }
+
+    @Test
+    public void encodesToStream() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.length, compactor.encode(SCHEMA, out));
+        assertArrayEquals(expected, out.toByteArray());
+    }
+}
@@ -0,0 +1,121 @@
+package org.avro.compactor;
+
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A delta decodes to the schema it was encoded from, against a registered base
+ */
+public class DeltaCompactorTest {
+
+    private static final String FIELDS = "{\"name\":\"id\",\"type\":\"long\",\"doc\":\"Order id\"},"
+        + "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"OPEN\",\"CLOSED\"]}},"
+        + "{\"name\":\"lines\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Line\",\"fields\":["
+        + "{\"name\":\"sku\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\",\"default\":1}]}}}";
+    private static final Schema BASE = order(FIELDS);
+
+    @Test
+    public void keepsDefaultOfAddedField() {
+        final Schema schema = order(FIELDS + ",{\"name\":\"note\",\"type\":[\"null\",\"string\"],\"default\":null}");
+        final Schema decoded = assertRoundTrips(schema);
+        assertEquals(JsonProperties.NULL_VALUE, decoded.getField("note").defaultVal());
+    }
+
+    @Test
+    public void keepsChangedDefaultOrderAndProperties() {
+        assertRoundTrips(order(FIELDS.replace("\"default\":1", "\"default\":2")));
+        assertRoundTrips(order(FIELDS.replace("\"doc\":\"Order id\"", "\"doc\":\"Order number\",\"order\":\"descending\",\"unit\":\"none\"")));
+        assertRoundTrips(order(FIELDS.replace("\"name\":\"sku\",\"type\":\"string\"",
+            "\"name\":\"sku\",\"type\":\"string\",\"aliases\":[\"code\"],\"default\":\"\"")));
+    }
+
+    @Test
+    public void keepsDocAndAliasOnlyChanges() {
+        assertRoundTrips(order(FIELDS.replace("\"doc\":\"Order id\"", "\"doc\":\"Order number\"")));
+        assertRoundTrips(order(FIELDS.replace("\"name\":\"sku\",", "\"name\":\"sku\",\"aliases\":[\"code\"],")));
+        assertRoundTrips(order(FIELDS.replace("\"name\":\"Line\",", "\"name\":\"Line\",\"doc\":\"One product\",\"aliases\":[\"Item\"],")));
+        assertRoundTrips(order(FIELDS.replace("\"name\":\"Status\",", "\"name\":\"Status\",\"doc\":\"Where it is\",")));
+        assertRoundTrips(order(FIELDS.replace("\"type\":\"array\",", "\"type\":\"array\",\"unit\":\"lines\",")));
+    }
+
+    @Test
+    public void keepsWriteTimePartsOfInsertedTypes() {
+        assertRoundTrips(order(FIELDS + ",{\"name\":\"customer\",\"type\":{\"type\":\"record\",\"name\":\"Customer\","
+            + "\"namespace\":\"shop\",\"doc\":\"Who ordered\",\"fields\":[{\"name\":\"email\",\"type\":\"string\",\"doc\":\"Contact\"}]}}"));
+    }
+
+    @Test
+    public void keepsBasesThatOnlyDifferInDefaults() {
+        final Schema first = order(FIELDS);
+        final Schema second = order(FIELDS.replace("\"default\":1", "\"default\":5"));
+        final Schema third = order(FIELDS.replace("\"default\":1", "\"default\":5") + ",{\"name\":\"note\",\"type\":\"string\"}");
+        final DeltaCompactor compactor = new DeltaCompactor();
+        compactor.register(first);
+        compactor.register(second);
+        final Schema decoded = compactor.decode(compactor.encode(second, third));
+        assertEquals(third.toString(), decoded.toString());
+        assertEquals(5, ((Number) decoded.getField("lines").schema().getElementType().getField("quantity").defaultVal()).intValue());
+    }
+
+    @Test
+    public void editsFieldsSymbolsAndTypes() {
+        // Removes a field, inserts a symbol and widens a nested field to a union
+        assertRoundTrips(order("{\"name\":\"id\",\"type\":\"long\",\"doc\":\"Order id\"},"
+            + "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"OPEN\",\"PAID\",\"CLOSED\"]}},"
+            + "{\"name\":\"lines\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Line\",\"fields\":["
+            + "{\"name\":\"quantity\",\"type\":[\"int\",\"null\"],\"default\":1}]}}}"));
+    }
+
+    @Test
+    public void sharesUnchangedBase() {
+        final DeltaCompactor compactor = new DeltaCompactor();
+        final byte[] delta = compactor.encode(BASE, BASE);
+        assertSame(BASE, compactor.decode(delta));
+        assertTrue(delta.length < Compactor.DEFAULT.encode(BASE).length);
+    }
+
+    @Test
+    public void cachesDecodedDeltas() {
+        final DeltaCompactor compactor = new DeltaCompactor();
+        final byte[] delta = compactor.encode(BASE, order(FIELDS.replace("\"default\":1", "\"default\":2")));
+        assertSame(compactor.decode(delta), compactor.decode(delta.clone()));
+        assertEquals(1, compactor.decodeStats().hitCount());
+    }
+
+    @Test
+    public void rejectsUnknownBase() {
+        final byte[] delta = new DeltaCompactor().encode(BASE, order(FIELDS.replace("\"default\":1", "\"default\":2")));
+        try {
+            fail("Decoded " + new DeltaCompactor().decode(delta));
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Long.toHexString(DeltaCompactor.baseFingerprint(delta))));
+        }
+        try {
+            fail("Decoded " + Compactor.DEFAULT.decode(delta));
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("DeltaCompactor"));
+        }
+    }
+
+    private static Schema assertRoundTrips(final Schema schema) {
+        final DeltaCompactor writer = new DeltaCompactor();
+        final byte[] delta = writer.encode(BASE, schema);
+        final DeltaCompactor reader = new DeltaCompactor();
+        reader.register(BASE);
+        final Schema decoded = reader.decode(delta);
+        assertEquals(schema, decoded);
+        // Schema equality skips docs and aliases, the json has them
+        assertEquals(schema.toString(), decoded.toString());
+        return decoded;
+    }
+
+    private static Schema order(final String fields) {
+        return new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" + fields + "]}");
+    }
+}
@@ -0,0 +1,48 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * encodeAll and decodeAll keep the input order, whatever kind of list the input is
+ */
+public class EncodeAllTest {
+
+    private static final int SCHEMAS = BulkTask.THRESHOLD * 8;
+
+    @Test
+    public void keepsInputOrder() {
+        final List<Schema> schemas = new LinkedList<Schema>();
+        for (int i = 0; i < SCHEMAS; i++) {
+            schemas.add(Schema.createFixed("Fixed" + i, null, null, i % 256));
+        }
+        final List<byte[]> encoded = Compactor.DEFAULT.encodeAll(schemas);
+        assertEquals(SCHEMAS, encoded.size());
+        for (int i = 0; i < SCHEMAS; i++) {
+            assertArrayEquals(Compactor.DEFAULT.encode(schemas.get(i)), encoded.get(i));
+        }
+        assertEquals(schemas, Compactor.DEFAULT.decodeAll(new LinkedList<byte[]>(encoded)));
+    }
+
+    @Test
+    public void namesTheFailedItem() {
+        final List<byte[]> encoded = new LinkedList<byte[]>();
+        for (int i = 0; i < SCHEMAS; i++) {
+            encoded.add(Compactor.DEFAULT.encode(Schema.create(Schema.Type.LONG)));
+        }
+        encoded.set(SCHEMAS - 1, new byte[] {(byte) 0xF0});
+        try {
+            fail("Decoded " + Compactor.DEFAULT.decodeAll(encoded));
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Item " + (SCHEMAS - 1) + ": "));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * LOSSLESS keeps defaults and properties that are not plain json, like NaN and Infinity
+ */
+public class LosslessDefaultsTest {
+
+    private static final Compactor LOSSLESS = Compactor.builder().lossless(true).build();
+
+    @Test
+    public void keepsNonFiniteDefaults() {
+        final Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Reading\",\"fields\":["
+            + "{\"name\":\"value\",\"type\":\"double\",\"default\":\"NaN\"},"
+            + "{\"name\":\"max\",\"type\":\"double\",\"default\":\"Infinity\"},"
+            + "{\"name\":\"min\",\"type\":\"float\",\"default\":\"-Infinity\"},"
+            + "{\"name\":\"count\",\"type\":\"double\",\"default\":0}]}");
+        assertRoundTrips(schema);
+    }
+
+    @Test
+    public void keepsNonFiniteValuesInJson() {
+        // A NaN inside an array does not compare equal to itself, so it is kept as json text
+        final Field values = new Field("values", Schema.createArray(Schema.create(Type.DOUBLE)), null,
+            (Object) Arrays.asList(1.5, Double.NaN, Double.NEGATIVE_INFINITY));
+        values.addProp("range", (Object) Arrays.asList(Double.NaN, Double.POSITIVE_INFINITY));
+        assertRoundTrips(Schema.createRecord("Series", null, null, false, Arrays.asList(values)));
+    }
+
+    private static void assertRoundTrips(final Schema schema) {
+        final Schema decoded = LOSSLESS.decode(LOSSLESS.encode(schema));
+        assertEquals(schema.toString(), decoded.toString());
+        // Json text quotes NaN and Infinity, so also check they are still numbers
+        for (final Field field : schema.getFields()) {
+            assertEquals(field.defaultVal(), decoded.getField(field.name()).defaultVal());
+            assertEquals(field.getObjectProps(), decoded.getField(field.name()).getObjectProps());
+        }
+        assertEquals(LOSSLESS.encode(schema).length, LOSSLESS.sizeOf(schema));
+    }
+}
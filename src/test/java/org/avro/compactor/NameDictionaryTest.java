@@ -0,0 +1,77 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.NameDictionary;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Schemas decode only with the NameDictionary they were encoded against
+ */
+public class NameDictionaryTest {
+
+    private static final Schema ORDER = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"total\",\"type\":\"double\"}]}");
+    private static final NameDictionary ORDERS = new NameDictionary(Arrays.asList("Order", "id", "total"));
+    // Same size and same indexes, other names
+    private static final NameDictionary PAYMENTS = new NameDictionary(Arrays.asList("Payment", "amount", "currency"));
+
+    @Test
+    public void decodesWithTheSameDictionary() {
+        final byte[] bytes = Compactor.builder().dictionary(ORDERS).build().encode(ORDER);
+        final NameDictionary loaded = NameDictionary.fromByteArray(ORDERS.toByteArray());
+        assertEquals(ORDERS.fingerprint(), loaded.fingerprint());
+        assertEquals(ORDER, Compactor.builder().dictionary(loaded).build().decode(bytes));
+    }
+
+    @Test
+    public void rejectsAnotherDictionary() {
+        assertNotEquals(ORDERS.fingerprint(), PAYMENTS.fingerprint());
+        final byte[] bytes = Compactor.builder().dictionary(ORDERS).build().encode(ORDER);
+        assertRejected(Compactor.builder().dictionary(PAYMENTS).build(), bytes);
+        assertRejected(Compactor.DEFAULT, bytes);
+    }
+
+    @Test
+    public void batchRejectsAnotherDictionary() {
+        final SchemaBatch batch = SchemaBatch.encode(Arrays.asList(ORDER, ORDER));
+        assertEquals(Arrays.asList(ORDER, ORDER), batch.decode());
+        try {
+            final List<Schema> decoded = SchemaBatch.decode(PAYMENTS, batch.schemas());
+            fail("Decoded " + decoded + " with another dictionary");
+        } catch (final IllegalArgumentException expected) {
+            // The dictionary fingerprint does not match
+        }
+    }
+
+    @Test
+    public void batchReadsTheSchemasOnce() {
+        final Iterable<Schema> once = new Iterable<Schema>() {
+            private boolean read;
+
+            @Override
+            public Iterator<Schema> iterator() {
+                if (read)
+                    throw new IllegalStateException("Schemas read twice");
+                read = true;
+                return Arrays.asList(ORDER, ORDER).iterator();
+            }
+        };
+        assertEquals(Arrays.asList(ORDER, ORDER), SchemaBatch.encode(once).decode());
+    }
+
+    private static void assertRejected(final Compactor compactor, final byte[] bytes) {
+        try {
+            fail("Decoded " + compactor.decode(bytes) + " with another dictionary");
+        } catch (final IllegalArgumentException expected) {
+            // The dictionary fingerprint does not match
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package org.avro.compactor;
+
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.avro.compactor.codec.Profile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates random valid Avro schemas for the property tests, each from its own seed so a failure can be replayed
+ *    - Counts, sizes and name lengths stay within the default Profile: the limits of RecordCodec, EnumCodec,
+ *      UnionCodec, FixedCodec and NameCodec. About one in eight is exactly at the limit
+ *    - With lifted limits they go past them, for Compactors with variable length counts
+ *    - Names use the NameCodec alphabet and named types get unique names, the compacted format drops namespaces
+ *    - Named types are reused, so references are written. Records refer back to themselves only when recursive schemas
+ *      are asked for, only NAMED_TYPE_REFERENCES can write them
+ *    - Namespaces, docs, aliases, defaults, sort orders and properties are added at random, stripped removes them.
+ *      Float and double defaults are NaN or infinite one time in four
+ *
+ * Run with -Dcompactor.seed=<seed> to replay a failure, and -Dcompactor.iterations=<count> for more or fewer schemas.
+ */
+final class RandomSchemas {
+
+    static final int MAX_FIELDS = Profile.DEFAULT.fieldCountCodec().maxCount();
+    static final int MAX_SYMBOLS = Profile.DEFAULT.symbolCountCodec().maxCount();
+    static final int MAX_TYPES = Profile.DEFAULT.typeCountCodec().maxCount();
+    static final int MAX_FIXED_SIZE = Profile.DEFAULT.fixedSizeCodec().maxCount();
+    static final int MAX_NAME_LENGTH = Profile.DEFAULT.nameLengthCodec().maxCount();
+
+    private static final long DEFAULT_SEED = 0x5EED;
+    private static final int DEFAULT_ITERATIONS = 100;
+    // Past the limits, but small enough to keep a run short
+    private static final int LIFTED_FACTOR = 3;
+
+    private static final String LOGICAL_TYPE_PROP = "logicalType";
+    // Logical types Avro leaves as a plain property, the compacted format keeps them
+    private static final List<String> UNMODELLED_LOGICAL_TYPES = Arrays.asList("local-timestamp-millis", "local-timestamp-micros", "duration");
+    private static final String FIRST_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_";
+    private static final String CHARS = FIRST_CHARS + "0123456789";
+    private static final List<Type> PRIMITIVES = Arrays.asList(
+        Type.NULL, Type.BOOLEAN, Type.INT, Type.LONG, Type.FLOAT, Type.DOUBLE, Type.BYTES, Type.STRING);
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_NODES = 150;
+    private static final double[] NON_FINITE = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private final Random random;
+    private final int maxFields;
+    private final int maxSymbols;
+    private final int maxTypes;
+    private final int maxFixedSize;
+    private final int maxNameLength;
+    private final boolean recursive;
+    private final List<Schema> namedTypes = new ArrayList<Schema>();
+    private int nodes;
+    private int typeNames;
+
+    RandomSchemas(final long seed, final boolean liftLimits, final boolean recursive) {
+        final int factor = liftLimits ? LIFTED_FACTOR : 1;
+        this.random = new Random(seed);
+        this.maxFields = MAX_FIELDS * factor;
+        this.maxSymbols = MAX_SYMBOLS * factor;
+        this.maxTypes = MAX_TYPES * factor;
+        this.maxFixedSize = MAX_FIXED_SIZE * factor;
+        this.maxNameLength = MAX_NAME_LENGTH * factor;
+        this.recursive = recursive;
+    }
+
+    /**
+     * @return the seeds of the schemas to check, one per iteration
+     */
+    static long[] seeds() {
+        final long seed = Long.getLong("compactor.seed", DEFAULT_SEED);
+        final long[] seeds = new long[Integer.getInteger("compactor.iterations", DEFAULT_ITERATIONS)];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = seed + i;
+        }
+        return seeds;
+    }
+
+    /**
+     * @return the schema generated from the seed, a record four times in five
+     */
+    static Schema generate(final long seed, final boolean liftLimits) {
+        return generate(seed, liftLimits, false);
+    }
+
+    /**
+     * @param recursive whether records may refer to themselves or to the records they are nested in
+     */
+    static Schema generate(final long seed, final boolean liftLimits, final boolean recursive) {
+        final RandomSchemas schemas = new RandomSchemas(seed, liftLimits, recursive);
+        return schemas.random.nextInt(5) == 0 ? schemas.schema(0) : schemas.record(0);
+    }
+
+    static String describe(final long seed, final Schema schema) {
+        return "-Dcompactor.seed=" + seed + " " + schema;
+    }
+
+    /**
+     * @return the schema as decoding gives it back without LOSSLESS: names, types, symbols, sizes and logical types
+     */
+    static Schema stripped(final Schema schema) {
+        return stripped(schema, new IdentityHashMap<Schema, Schema>());
+    }
+
+    private static Schema stripped(final Schema schema, final Map<Schema, Schema> seen) {
+        final Schema known = seen.get(schema);
+        if (known != null) {
+            return known;
+        }
+        final Schema copy;
+        switch (schema.getType()) {
+            case RECORD:
+                copy = Schema.createRecord(schema.getName(), null, null, false);
+                seen.put(schema, copy);
+                final List<Field> fields = new ArrayList<Field>();
+                for (final Field field : schema.getFields()) {
+                    fields.add(new Field(field.name(), stripped(field.schema(), seen), null, (Object) null));
+                }
+                copy.setFields(fields);
+                return copy;
+            case ENUM:
+                copy = Schema.createEnum(schema.getName(), null, null, schema.getEnumSymbols());
+                break;
+            case FIXED:
+                copy = Schema.createFixed(schema.getName(), null, null, schema.getFixedSize());
+                break;
+            case ARRAY:
+                copy = Schema.createArray(stripped(schema.getElementType(), seen));
+                break;
+            case MAP:
+                copy = Schema.createMap(stripped(schema.getValueType(), seen));
+                break;
+            case UNION:
+                final List<Schema> types = new ArrayList<Schema>();
+                for (final Schema type : schema.getTypes()) {
+                    types.add(stripped(type, seen));
+                }
+                copy = Schema.createUnion(types);
+                break;
+            default:
+                copy = Schema.create(schema.getType());
+        }
+        final String logicalType = schema.getProp(LOGICAL_TYPE_PROP);
+        if (schema.getLogicalType() != null) {
+            schema.getLogicalType().addToSchema(copy);
+        } else if (UNMODELLED_LOGICAL_TYPES.contains(logicalType)) {
+            new LogicalType(logicalType).addToSchema(copy);
+        }
+        seen.put(schema, copy);
+        return copy;
+    }
+
+    private Schema schema(final int depth) {
+        nodes++;
+        final boolean leaf = depth >= MAX_DEPTH || nodes >= MAX_NODES;
+        switch (random.nextInt(leaf ? 5 : 10)) {
+            case 0:
+            case 1:
+                return primitive();
+            case 2:
+                return logical();
+            case 3:
+                return named(depth);
+            case 4:
+                return random.nextBoolean() ? enumeration() : fixed();
+            case 5:
+                return record(depth + 1);
+            case 6:
+                return withProps(Schema.createArray(schema(depth + 1)));
+            case 7:
+                return withProps(Schema.createMap(schema(depth + 1)));
+            default:
+                return union(depth + 1);
+        }
+    }
+
+    private Schema record(final int depth) {
+        final Schema record = Schema.createRecord(typeName(), doc(), namespace(), random.nextInt(20) == 0);
+        addAliases(record);
+        if (recursive) {
+            // Known before its fields, so they can refer back to it
+            namedTypes.add(withProps(record));
+        }
+        final int fieldCount = count(maxFields, 0);
+        final Set<String> names = new HashSet<String>();
+        final List<Field> fields = new ArrayList<Field>();
+        while (fields.size() < fieldCount) {
+            final String name = name(maxNameLength);
+            if (names.add(name)) {
+                fields.add(field(name, schema(depth)));
+            }
+        }
+        record.setFields(fields);
+        if (!recursive) {
+            namedTypes.add(withProps(record));
+        }
+        return record;
+    }
+
+    private Field field(final String name, final Schema schema) {
+        final Field.Order order = random.nextInt(8) == 0 ? Field.Order.values()[random.nextInt(Field.Order.values().length)] : Field.Order.ASCENDING;
+        final Field field = new Field(name, schema, doc(), random.nextInt(3) == 0 ? defaultValue(schema) : null, order);
+        if (random.nextInt(8) == 0) {
+            field.addAlias(name(maxNameLength));
+        }
+        if (random.nextInt(8) == 0) {
+            field.addProp("owner", name(MAX_NAME_LENGTH));
+        }
+        return field;
+    }
+
+    private Object defaultValue(final Schema schema) {
+        switch (schema.getType()) {
+            case NULL:
+                return JsonProperties.NULL_VALUE;
+            case BOOLEAN:
+                return random.nextBoolean();
+            case INT:
+                return random.nextInt();
+            case LONG:
+                return random.nextLong();
+            case FLOAT:
+            case DOUBLE:
+                // Exact as a float too
+                return random.nextInt(4) == 0 ? NON_FINITE[random.nextInt(NON_FINITE.length)] : random.nextInt(1000) / 8.0;
+            case STRING:
+                return name(MAX_NAME_LENGTH);
+            case ENUM:
+                return schema.getEnumSymbols().get(random.nextInt(schema.getEnumSymbols().size()));
+            case UNION:
+                // A union default is a value of the first type
+                return defaultValue(schema.getTypes().get(0));
+            default:
+                return null;
+        }
+    }
+
+    private Schema primitive() {
+        return withProps(Schema.create(PRIMITIVES.get(random.nextInt(PRIMITIVES.size()))));
+    }
+
+    private Schema logical() {
+        switch (random.nextInt(12)) {
+            case 0:
+                final int precision = 1 + random.nextInt(40);
+                return LogicalTypes.decimal(precision, random.nextInt(precision + 1)).addToSchema(Schema.create(Type.BYTES));
+            case 1:
+                final int size = 1 + random.nextInt(Math.min(32, maxFixedSize));
+                // The most digits a signed number of size bytes can hold
+                final int maxPrecision = (int) Math.floor(Math.log10(2) * (8 * size - 1));
+                final int fixedPrecision = 1 + random.nextInt(maxPrecision);
+                return LogicalTypes.decimal(fixedPrecision, random.nextInt(fixedPrecision + 1))
+                    .addToSchema(Schema.createFixed(typeName(), doc(), namespace(), size));
+            case 2:
+                return LogicalTypes.uuid().addToSchema(Schema.create(Type.STRING));
+            case 3:
+                return LogicalTypes.date().addToSchema(Schema.create(Type.INT));
+            case 4:
+                return LogicalTypes.timeMillis().addToSchema(Schema.create(Type.INT));
+            case 5:
+                return LogicalTypes.timeMicros().addToSchema(Schema.create(Type.LONG));
+            case 6:
+                return LogicalTypes.timestampMillis().addToSchema(Schema.create(Type.LONG));
+            case 7:
+                return LogicalTypes.timestampMicros().addToSchema(Schema.create(Type.LONG));
+            case 8:
+                return withLogicalTypeProp(Schema.create(Type.LONG), UNMODELLED_LOGICAL_TYPES.get(random.nextInt(2)));
+            case 9:
+                return withLogicalTypeProp(Schema.createFixed(typeName(), doc(), namespace(), 12), "duration");
+            case 10:
+                // Not a standard logical type, dropped like any other property
+                return withLogicalTypeProp(Schema.create(Type.STRING), "custom");
+            default:
+                // Not valid for its type, Avro ignores it
+                return withLogicalTypeProp(Schema.create(Type.STRING), "date");
+        }
+    }
+
+    private static Schema withLogicalTypeProp(final Schema schema, final String logicalType) {
+        schema.addProp(LOGICAL_TYPE_PROP, logicalType);
+        return schema;
+    }
+
+    private Schema named(final int depth) {
+        if (namedTypes.isEmpty()) {
+            return depth < MAX_DEPTH ? record(depth + 1) : enumeration();
+        }
+        return namedTypes.get(random.nextInt(namedTypes.size()));
+    }
+
+    private Schema enumeration() {
+        final int symbolCount = count(maxSymbols, 1);
+        final Set<String> symbols = new HashSet<String>();
+        final List<String> ordered = new ArrayList<String>();
+        while (ordered.size() < symbolCount) {
+            final String symbol = name(maxNameLength);
+            if (symbols.add(symbol)) {
+                ordered.add(symbol);
+            }
+        }
+        final Schema schema = Schema.createEnum(typeName(), doc(), namespace(), ordered);
+        addAliases(schema);
+        namedTypes.add(withProps(schema));
+        return schema;
+    }
+
+    private Schema fixed() {
+        final Schema schema = Schema.createFixed(typeName(), doc(), namespace(), count(maxFixedSize, 0));
+        addAliases(schema);
+        namedTypes.add(withProps(schema));
+        return schema;
+    }
+
+    private Schema union(final int depth) {
+        final int typeCount = count(maxTypes, 1);
+        final Set<String> seen = new HashSet<String>();
+        final List<Schema> types = new ArrayList<Schema>();
+        // Avro allows one branch per type, or per name for named types, and no nested unions
+        while (types.size() < typeCount) {
+            Schema type = schema(depth);
+            if (type.getType() == Type.UNION || !seen.add(type.getFullName())) {
+                // A fresh named type always fits
+                type = random.nextBoolean() ? enumeration() : fixed();
+                seen.add(type.getFullName());
+            }
+            types.add(type);
+        }
+        return Schema.createUnion(types);
+    }
+
+    private Schema withProps(final Schema schema) {
+        if (random.nextInt(10) == 0) {
+            schema.addProp("source", name(MAX_NAME_LENGTH));
+        }
+        return schema;
+    }
+
+    private void addAliases(final Schema schema) {
+        if (random.nextInt(6) == 0) {
+            schema.addAlias(typeName());
+        }
+    }
+
+    private String doc() {
+        return random.nextInt(4) == 0 ? "Generated " + name(MAX_NAME_LENGTH) + " \u00e9\n" : null;
+    }
+
+    private String namespace() {
+        return random.nextInt(3) == 0 ? "gen." + name(MAX_NAME_LENGTH / 2) : null;
+    }
+
+    /**
+     * @return a name unique to this generator, named types share one namespace once it is dropped
+     */
+    private String typeName() {
+        final String suffix = "_" + typeNames++;
+        return name(maxNameLength - suffix.length()) + suffix;
+    }
+
+    /**
+     * @return a valid Avro name of 1 to maxLength characters
+     */
+    private String name(final int maxLength) {
+        final int length = count(maxLength, 1);
+        final char[] chars = new char[length];
+        chars[0] = FIRST_CHARS.charAt(random.nextInt(FIRST_CHARS.length()));
+        for (int i = 1; i < length; i++) {
+            chars[i] = CHARS.charAt(random.nextInt(CHARS.length()));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return the limit one time in eight, otherwise a small count, so limits are hit without every schema being huge
+     */
+    private int count(final int max, final int min) {
+        if (random.nextInt(8) == 0) {
+            return max;
+        }
+        return min + random.nextInt(Math.max(1, Math.min(max, 8) - min + 1));
+    }
+}
@@ -0,0 +1,77 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.codec.Feature;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Recursive schemas round trip with NAMED_TYPE_REFERENCES, and fail with an IllegalArgumentException without it
+ */
+public class RecursiveSchemaTest {
+
+    private static final Schema NODE = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"int\"},{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+    private static final Schema FLAT_NODE = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"int\"}]}");
+    private static final Schema TREE = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Tree\",\"fields\":["
+        + "{\"name\":\"children\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Branch\",\"fields\":["
+        + "{\"name\":\"tree\",\"type\":\"Tree\"},{\"name\":\"weights\",\"type\":{\"type\":\"map\",\"values\":\"Branch\"}}]}}}]}");
+
+    @Test
+    public void roundTripsWithReferences() {
+        final Compactor[] compactors = {
+            Compactor.builder().namedTypeReferences(true).build(),
+            Compactor.builder().namedTypeReferences(true).offsetIndex(true).profile(true).build(),
+            Compactor.builder().namedTypeReferences(true).lossless(true).build()
+        };
+        for (final Compactor compactor : compactors) {
+            for (final Schema schema : new Schema[] {NODE, TREE}) {
+                final byte[] bytes = compactor.encode(schema);
+                assertEquals(compactor.features().toString(), schema, compactor.decode(bytes));
+                assertEquals(compactor.features().toString(), bytes.length, compactor.sizeOf(schema));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsRecursionWithoutReferences() {
+        final Compactor[] compactors = {
+            Compactor.DEFAULT,
+            Compactor.builder().profile(true).build(),
+            Compactor.builder().offsetIndex(true).variableLength(true).build(),
+            Compactor.builder().lossless(true).build()
+        };
+        for (final Compactor compactor : compactors) {
+            for (final Schema schema : new Schema[] {NODE, TREE}) {
+                assertRejected(compactor, schema, 0);
+                assertRejected(compactor, schema, 1);
+                assertRejected(compactor, schema, 2);
+            }
+            // The failed calls leave no open records behind on the thread
+            compactor.validate(FLAT_NODE);
+            assertEquals(compactor.encode(FLAT_NODE).length, compactor.sizeOf(FLAT_NODE));
+        }
+    }
+
+    private static void assertRejected(final Compactor compactor, final Schema schema, final int operation) {
+        try {
+            switch (operation) {
+                case 0:
+                    compactor.encode(schema);
+                    break;
+                case 1:
+                    compactor.sizeOf(schema);
+                    break;
+                default:
+                    compactor.validate(schema);
+            }
+            fail(compactor.features() + " accepted " + schema.getName() + " in operation " + operation);
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Feature.NAMED_TYPE_REFERENCES.toString()));
+        }
+    }
+}
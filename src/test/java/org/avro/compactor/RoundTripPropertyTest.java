@@ -0,0 +1,148 @@
+package org.avro.compactor;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.cache.SchemaInterner;
+import org.avro.compactor.codec.Feature;
+import org.avro.compactor.codec.HuffmanTable;
+import org.avro.compactor.codec.NameDictionary;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks each Compactor configuration against random schemas, see RandomSchemas
+ *    - Decoding gives back the schema with the lossy attributes stripped, or the same schema with LOSSLESS
+ *    - sizeOf is the encoded length, and the buffer and compiled paths write the same bytes as encode
+ *    - Canonical Compactors write the same bytes with or without the lossy attributes, and compare the bytes as equal
+ *    - With VARIABLE_LENGTH the schemas go past the default limits, with NAMED_TYPE_REFERENCES they may be recursive
+ */
+@RunWith(Parameterized.class)
+public class RoundTripPropertyTest {
+
+    private static final int BUFFER_OFFSET = 3;
+    private static final int TRAINING_SCHEMAS = 50;
+    // Reads bytes of any features, and writes schemas of any size
+    private static final Compactor REFERENCE = Compactor.builder().variableLength(true).build();
+    private static final Compactor RECURSIVE_REFERENCE = Compactor.builder().variableLength(true).namedTypeReferences(true).build();
+
+    private final Compactor compactor;
+    private final boolean liftLimits;
+    private final boolean recursive;
+
+    public RoundTripPropertyTest(final String name, final Compactor compactor) {
+        this.compactor = compactor;
+        this.liftLimits = compactor.features().contains(Feature.VARIABLE_LENGTH);
+        this.recursive = compactor.features().contains(Feature.NAMED_TYPE_REFERENCES);
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> compactors() {
+        final List<Schema> training = new ArrayList<Schema>();
+        for (int i = 0; i < TRAINING_SCHEMAS; i++) {
+            training.add(RandomSchemas.generate(-i, false));
+        }
+        final NameDictionary dictionary = NameDictionary.build(training);
+        return Arrays.asList(
+            compactor("default", Compactor.DEFAULT),
+            compactor("profile", Compactor.builder().profile(true).build()),
+            compactor("variable length", REFERENCE),
+            compactor("named type references", Compactor.builder().namedTypeReferences(true).build()),
+            compactor("offset index", Compactor.builder().offsetIndex(true).build()),
+            compactor("huffman names", Compactor.builder().huffmanNames(true).build()),
+            compactor("trained huffman table", Compactor.builder().huffmanTable(HuffmanTable.train(training)).build()),
+            compactor("dictionary", Compactor.builder().dictionary(dictionary).build()),
+            compactor("interner", Compactor.builder().interner(new SchemaInterner()).build()),
+            compactor("all features", Compactor.builder().profile(true).variableLength(true).namedTypeReferences(true)
+                .offsetIndex(true).huffmanNames(true).dictionary(dictionary).build()),
+            compactor("lossless", Compactor.builder().lossless(true).build()),
+            compactor("lossless with all features", Compactor.builder().lossless(true).profile(true).variableLength(true)
+                .namedTypeReferences(true).offsetIndex(true).huffmanNames(true).dictionary(dictionary).build())
+        );
+    }
+
+    private static Object[] compactor(final String name, final Compactor compactor) {
+        return new Object[] {name, compactor};
+    }
+
+    @Test
+    public void decodesSchemaWithLossyAttributesStripped() {
+        for (final long seed : RandomSchemas.seeds()) {
+            final Schema schema = RandomSchemas.generate(seed, liftLimits, recursive);
+            final Schema expected = compactor.isCanonical() ? RandomSchemas.stripped(schema) : schema;
+            final Schema decoded = compactor.decode(compactor.encode(schema));
+            final String description = RandomSchemas.describe(seed, schema);
+            assertEquals(description, expected, decoded);
+            // Schema equality skips some attributes, the json has them all
+            assertEquals(description, expected.toString(), decoded.toString());
+        }
+    }
+
+    @Test
+    public void sizeOfIsEncodedLength() {
+        for (final long seed : RandomSchemas.seeds()) {
+            final Schema schema = RandomSchemas.generate(seed, liftLimits, recursive);
+            assertEquals(RandomSchemas.describe(seed, schema), compactor.encode(schema).length, compactor.sizeOf(schema));
+        }
+    }
+
+    @Test
+    public void bufferAndCompiledPathsWriteEncodedBytes() {
+        for (final long seed : RandomSchemas.seeds()) {
+            final Schema schema = RandomSchemas.generate(seed, liftLimits, recursive);
+            final String description = RandomSchemas.describe(seed, schema);
+            final byte[] bytes = compactor.encode(schema);
+
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_OFFSET + bytes.length);
+            buffer.position(BUFFER_OFFSET);
+            assertEquals(description, bytes.length, compactor.encode(schema, buffer));
+            assertArrayEquals(description, bytes, Arrays.copyOfRange(buffer.array(), BUFFER_OFFSET, buffer.capacity()));
+            assertEquals(description, compactor.decode(bytes), compactor.decode(buffer, BUFFER_OFFSET));
+
+            final CompiledSchema compiled = compactor.compile(schema);
+            assertArrayEquals(description, bytes, compiled.toByteArray());
+            assertEquals(description, compactor.decode(bytes), compiled.decode(bytes));
+        }
+    }
+
+    @Test
+    public void canonicalBytesIgnoreLossyAttributes() {
+        assumeTrue(compactor.isCanonical());
+        for (final long seed : RandomSchemas.seeds()) {
+            final Schema schema = RandomSchemas.generate(seed, liftLimits, recursive);
+            final String description = RandomSchemas.describe(seed, schema);
+            final byte[] bytes = compactor.encode(schema);
+            assertArrayEquals(description, bytes, compactor.encode(RandomSchemas.stripped(schema)));
+            assertEquals(description, compactor.compact(schema), CompactedSchema.of(bytes));
+        }
+    }
+
+    @Test
+    public void comparesEncodedBytes() {
+        for (final long seed : RandomSchemas.seeds()) {
+            final Schema schema = RandomSchemas.generate(seed, liftLimits, recursive);
+            final String description = RandomSchemas.describe(seed, schema);
+            final byte[] bytes = compactor.encode(schema);
+            assertTrue(description, compactor.equal(bytes, compactor.encode(schema)));
+            assertTrue(description, compactor.canRead(bytes, bytes));
+            if (compactor.isCanonical()) {
+                // Written with other features, compared part by part
+                final byte[] reference = (recursive ? RECURSIVE_REFERENCE : REFERENCE).encode(schema);
+                assertTrue(description, compactor.equal(bytes, reference));
+                assertTrue(description, compactor.canRead(bytes, reference));
+                assertTrue(description, compactor.canRead(reference, bytes));
+            }
+        }
+    }
+}
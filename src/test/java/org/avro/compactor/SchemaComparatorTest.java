@@ -0,0 +1,218 @@
+package org.avro.compactor;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks equal, canRead and appendsFields on compacted bytes against the decoded Schemas
+ *    - Pairs are a random record and a small change of it: a promoted or swapped type, other enum symbols,
+ *      or a field added or dropped at the end
+ *    - Each side is written by a Compactor with different features
+ *    - canRead must agree with Avro's SchemaCompatibility, equal with Schema.equals
+ */
+public class SchemaComparatorTest {
+
+    private static final int PAIRS = 2000;
+    private static final int MAX_DEPTH = 4;
+    private static final List<String> SYMBOLS = Arrays.asList("ALPHA", "BETA", "GAMMA");
+
+    private static final Compactor[] COMPACTORS = {
+        Compactor.DEFAULT,
+        Compactor.builder().profile(true).build(),
+        Compactor.builder().variableLength(true).build(),
+        Compactor.builder().offsetIndex(true).variableLength(true).build(),
+        Compactor.builder().huffmanNames(true).build(),
+        Compactor.builder().namedTypeReferences(true).build(),
+        Compactor.builder().lossless(true).build()
+    };
+
+    @Test
+    public void agreesWithDecodedSchemas() {
+        final Random random = new Random(7);
+        int equalPairs = 0;
+        int readablePairs = 0;
+        int appendedPairs = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            final Schema schema = new Generator(random).record(0);
+            final Schema other = random.nextInt(5) == 0 ? schema : mutate(random, schema);
+            final Compactor compactor = COMPACTORS[random.nextInt(COMPACTORS.length)];
+            final byte[] bytes = compactor.encode(schema);
+            final byte[] otherBytes = COMPACTORS[random.nextInt(COMPACTORS.length)].encode(other);
+            // The compacted format drops namespaces and other attributes, compare what it keeps
+            final Schema decoded = compactor.decode(bytes);
+            final Schema otherDecoded = compactor.decode(otherBytes);
+            final String description = "pair " + i + ": " + decoded + " and " + otherDecoded;
+
+            final boolean equal = decoded.equals(otherDecoded);
+            final boolean readable = SchemaCompatibility.checkReaderWriterCompatibility(decoded, otherDecoded).getType()
+                    == SchemaCompatibilityType.COMPATIBLE;
+            final boolean appended = appendsFields(decoded, otherDecoded);
+            assertEquals(description, equal, compactor.equal(bytes, otherBytes));
+            assertEquals(description, readable, compactor.canRead(bytes, otherBytes));
+            assertEquals(description, appended, compactor.appendsFields(bytes, otherBytes));
+            equalPairs += equal ? 1 : 0;
+            readablePairs += readable ? 1 : 0;
+            appendedPairs += appended ? 1 : 0;
+        }
+        // Both answers are common, so a comparator stuck on one would fail
+        assertTrue(equalPairs + " equal pairs", equalPairs > PAIRS / 10 && equalPairs < PAIRS * 9 / 10);
+        assertTrue(readablePairs + " readable pairs", readablePairs > PAIRS / 10 && readablePairs < PAIRS * 9 / 10);
+        assertTrue(appendedPairs + " appended pairs", appendedPairs > PAIRS / 10 && appendedPairs < PAIRS * 9 / 10);
+    }
+
+    @Test
+    public void readsPromotedNumbersAndUnionBranches() {
+        final Schema writer = record("Event", field("id", Schema.create(Type.INT)),
+            field("value", Schema.createUnion(Arrays.asList(Schema.create(Type.NULL), Schema.create(Type.FLOAT)))));
+        final Schema reader = record("Event", field("id", Schema.create(Type.LONG)),
+            field("value", Schema.createUnion(Arrays.asList(Schema.create(Type.NULL), Schema.create(Type.STRING), Schema.create(Type.DOUBLE)))));
+        for (final Compactor compactor : COMPACTORS) {
+            final byte[] readerBytes = compactor.encode(reader);
+            final byte[] writerBytes = compactor.encode(writer);
+            assertTrue(compactor.features().toString(), compactor.canRead(readerBytes, writerBytes));
+            assertFalse(compactor.features().toString(), compactor.canRead(writerBytes, readerBytes));
+            assertFalse(compactor.features().toString(), compactor.equal(readerBytes, writerBytes));
+        }
+    }
+
+    @Test
+    public void appendsFieldsOnlyAtTheEnd() {
+        final Field id = field("id", Schema.create(Type.LONG));
+        final Field name = field("name", Schema.create(Type.STRING));
+        final Schema base = record("User", id);
+        for (final Compactor compactor : COMPACTORS) {
+            final byte[] baseBytes = compactor.encode(base);
+            final String features = compactor.features().toString();
+            assertTrue(features, compactor.appendsFields(baseBytes, baseBytes));
+            assertTrue(features, compactor.appendsFields(baseBytes, compactor.encode(record("User", id, name))));
+            assertFalse(features, compactor.appendsFields(baseBytes, compactor.encode(record("User", name, id))));
+            assertFalse(features, compactor.appendsFields(baseBytes, compactor.encode(record("Account", id, name))));
+            assertFalse(features, compactor.appendsFields(compactor.encode(record("User", id, name)), baseBytes));
+        }
+    }
+
+    private static boolean appendsFields(final Schema base, final Schema extended) {
+        if (!base.getName().equals(extended.getName()) || base.getFields().size() > extended.getFields().size()) {
+            return false;
+        }
+        for (int i = 0; i < base.getFields().size(); i++) {
+            final Field field = base.getFields().get(i);
+            final Field other = extended.getFields().get(i);
+            if (!field.name().equals(other.name()) || !field.schema().equals(other.schema())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the schema with one type changed, or with a field added or dropped at the end of the top record
+     */
+    private static Schema mutate(final Random random, final Schema schema) {
+        final String json = schema.toString();
+        final List<Field> fields = new ArrayList<Field>(schema.getFields());
+        switch (random.nextInt(6)) {
+            case 0:
+                return new Schema.Parser().parse(json.replaceFirst("\"int\"", "\"long\""));
+            case 1:
+                return new Schema.Parser().parse(json.replaceFirst("\"long\"", "\"int\""));
+            case 2:
+                return new Schema.Parser().parse(json.replaceFirst("\"string\"", "\"bytes\""));
+            case 3:
+                return new Schema.Parser().parse(json.replaceFirst("\\[\"ALPHA\"\\]", "[\"ALPHA\",\"BETA\"]")
+                    .replaceFirst("\\[\"ALPHA\",\"BETA\",\"GAMMA\"\\]", "[\"ALPHA\",\"BETA\"]"));
+            case 4:
+                fields.add(field("extra", Schema.create(Type.INT)));
+                return record(schema.getName(), fields.toArray(new Field[fields.size()]));
+            default:
+                final List<Field> kept = fields.subList(0, Math.max(1, fields.size() - 1));
+                return record(schema.getName(), kept.toArray(new Field[kept.size()]));
+        }
+    }
+
+    private static List<Field> copy(final List<Field> fields) {
+        final List<Field> copies = new ArrayList<Field>();
+        for (final Field field : fields) {
+            copies.add(field(field.name(), field.schema()));
+        }
+        return copies;
+    }
+
+    /**
+     * @return a record of copies of the fields, a Field belongs to one record
+     */
+    private static Schema record(final String name, final Field... fields) {
+        return Schema.createRecord(name, null, null, false, copy(Arrays.asList(fields)));
+    }
+
+    private static Field field(final String name, final Schema schema) {
+        return new Field(name, schema, null, (Object) null);
+    }
+
+    /**
+     * Random records of numbers, strings, logical types, enums and nested records, arrays, maps and unions
+     */
+    private static final class Generator {
+
+        private final Random random;
+        private int names;
+
+        Generator(final Random random) {
+            this.random = random;
+        }
+
+        Schema record(final int depth) {
+            final Field[] fields = new Field[1 + random.nextInt(5)];
+            final String name = "Record" + names++;
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = field("field" + i, schema(depth + 1));
+            }
+            return SchemaComparatorTest.record(name, fields);
+        }
+
+        private Schema schema(final int depth) {
+            switch (random.nextInt(depth < MAX_DEPTH ? 13 : 9)) {
+                case 0:
+                    return Schema.create(Type.INT);
+                case 1:
+                    return Schema.create(Type.LONG);
+                case 2:
+                    return Schema.create(Type.STRING);
+                case 3:
+                    return Schema.create(Type.BYTES);
+                case 4:
+                    return Schema.create(Type.FLOAT);
+                case 5:
+                    return Schema.create(Type.DOUBLE);
+                case 6:
+                    return LogicalTypes.timestampMillis().addToSchema(Schema.create(Type.LONG));
+                case 7:
+                    return LogicalTypes.decimal(10 + random.nextInt(3), 2).addToSchema(Schema.create(Type.BYTES));
+                case 8:
+                    return Schema.createEnum("Enum" + names++, null, null, SYMBOLS.subList(0, 1 + random.nextInt(SYMBOLS.size())));
+                case 9:
+                    return Schema.createArray(schema(depth + 1));
+                case 10:
+                    return Schema.createMap(schema(depth + 1));
+                case 11:
+                    return Schema.createUnion(Arrays.asList(Schema.create(Type.NULL), schema(MAX_DEPTH)));
+                default:
+                    return record(depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.avro.compactor;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Walks SchemaViews of compacted schemas and checks each part against the Schema it was written from
+ *    - Fields are looked up by name and position, in order and backwards, since views without OFFSET_INDEX
+ *      find a part by reading the ones before it
+ *    - Every part a view can build with toSchema equals the same part of the decoded schema
+ */
+public class SchemaViewTest {
+
+    private static final List<Compactor> COMPACTORS = Arrays.asList(
+        Compactor.DEFAULT,
+        Compactor.builder().profile(true).build(),
+        Compactor.builder().variableLength(true).build(),
+        Compactor.builder().offsetIndex(true).build(),
+        Compactor.builder().huffmanNames(true).offsetIndex(true).variableLength(true).build()
+    );
+
+    private static final Schema ORDER = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":{\"type\":\"string\",\"logicalType\":\"uuid\"}},"
+        + "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"OPEN\",\"PAID\",\"SHIPPED\"]}},"
+        + "{\"name\":\"lines\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\",\"name\":\"Line\",\"fields\":["
+        + "{\"name\":\"sku\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\"}]}}},"
+        + "{\"name\":\"attributes\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"string\",\"long\"]}},"
+        + "{\"name\":\"checksum\",\"type\":[\"null\",{\"type\":\"fixed\",\"name\":\"Md5\",\"size\":16}]},"
+        + "{\"name\":\"placed\",\"type\":{\"type\":\"long\",\"logicalType\":\"timestamp-millis\"}}]}");
+
+    @Test
+    public void viewsMatchTheSchema() {
+        for (final Compactor compactor : COMPACTORS) {
+            final SchemaView view = compactor.view(compactor.encode(ORDER));
+            final String features = compactor.features().toString();
+            assertEquals(features, Type.RECORD, view.getType());
+            assertEquals(features, "Order", view.getName());
+            assertEquals(features, 6, view.getFieldCount());
+            assertEquals(features, Arrays.asList("id", "status", "lines", "attributes", "checksum", "placed"), view.getFieldNames());
+            assertEquals(features, 4, view.getFieldIndex("checksum"));
+            assertEquals(features, -1, view.getFieldIndex("missing"));
+            assertNull(features, view.getField("missing"));
+
+            assertEquals(features, LogicalTypes.uuid(), view.getField("id").getLogicalType());
+            assertEquals(features, Arrays.asList("OPEN", "PAID", "SHIPPED"), view.getField("status").getEnumSymbols());
+            final SchemaView line = view.getField("lines").getElementType();
+            assertEquals(features, "Line", line.getName());
+            assertEquals(features, Type.INT, line.getField("quantity").getType());
+            final List<SchemaView> values = view.getField("attributes").getValueType().getTypes();
+            assertEquals(features, 3, values.size());
+            assertEquals(features, Type.LONG, values.get(2).getType());
+            final SchemaView checksum = view.getField("checksum").getTypes().get(1);
+            assertEquals(features, "Md5", checksum.getName());
+            assertEquals(features, 16, checksum.getFixedSize());
+            assertEquals(features, LogicalTypes.timestampMillis(), view.getField(5).getLogicalType());
+        }
+    }
+
+    @Test
+    public void partsBuildTheirSchemasInAnyOrder() {
+        for (final Compactor compactor : COMPACTORS) {
+            final byte[] bytes = compactor.encode(ORDER);
+            final Schema decoded = compactor.decode(bytes);
+            final String features = compactor.features().toString();
+
+            final SchemaView backwards = compactor.view(bytes);
+            for (int i = backwards.getFieldCount() - 1; i >= 0; i--) {
+                assertEquals(features, decoded.getFields().get(i).schema(), backwards.getField(i).toSchema());
+            }
+            final SchemaView forwards = compactor.view(bytes);
+            for (final Field field : decoded.getFields()) {
+                assertEquals(features, field.schema(), forwards.getField(field.name()).toSchema());
+            }
+            assertEquals(features, decoded, forwards.toSchema());
+        }
+    }
+
+    @Test
+    public void viewsReadAtAnOffset() {
+        final Compactor compactor = Compactor.builder().variableLength(true).build();
+        final byte[] bytes = compactor.encode(ORDER);
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 5);
+        buffer.position(5);
+        buffer.put(bytes);
+        buffer.position(1);
+        final SchemaView view = compactor.view(buffer, 5);
+        assertEquals(ORDER, view.toSchema());
+        assertEquals(Type.RECORD, view.getField("lines").getElementType().getType());
+        assertEquals(1, buffer.position());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rejectsAccessorsOfOtherTypes() {
+        Compactor.DEFAULT.view(Compactor.DEFAULT.encode(ORDER)).getEnumSymbols();
+    }
+}
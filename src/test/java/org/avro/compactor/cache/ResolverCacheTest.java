@@ -0,0 +1,127 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.avro.compactor.Compactor;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Resolves data written with compacted writer schemas, and checks what is cached and how buffers are left
+ */
+public class ResolverCacheTest {
+
+    private static final Schema WRITER = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"source\",\"type\":\"string\"}]}");
+    // Reads the id as a long and skips the source
+    private static final Schema READER = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"long\"}]}");
+
+    @Test
+    public void cachesReadersByBytesAndReaderInstance() {
+        final ResolverCache<GenericRecord> cache = new ResolverCache<GenericRecord>();
+        final byte[] writer = Compactor.DEFAULT.encode(WRITER);
+        final DatumReader<GenericRecord> reader = cache.reader(writer, READER);
+        assertSame(reader, cache.reader(Arrays.copyOf(writer, writer.length), READER));
+        // Equal reader schemas are cached apart
+        assertNotSame(reader, cache.reader(writer, new Schema.Parser().parse(READER.toString())));
+        final CacheStats stats = cache.stats();
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+    }
+
+    @Test
+    public void readsTheSchemaInFrontOfTheData() throws IOException {
+        final ResolverCache<GenericRecord> cache = new ResolverCache<GenericRecord>();
+        final byte[] message = message(Compactor.DEFAULT.encode(WRITER), event(42, "sensor"));
+        for (int i = 0; i < 3; i++) {
+            // A miss the first time, then found by the indexed length without decoding
+            final ByteBuffer buffer = ByteBuffer.wrap(message);
+            final GenericRecord record = cache.reader(buffer, READER).read(null,
+                DecoderFactory.get().binaryDecoder(message, buffer.position(), buffer.remaining(), null));
+            assertEquals(42L, record.get("id"));
+        }
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    public void findsSchemasShorterThanThePrefix() {
+        final ResolverCache<Object> cache = new ResolverCache<Object>();
+        final Schema primitive = Schema.create(Schema.Type.INT);
+        final byte[] writer = Compactor.DEFAULT.encode(primitive);
+        final byte[] message = Arrays.copyOf(writer, writer.length + 1);
+        final DatumReader<Object> reader = cache.reader(ByteBuffer.wrap(message), primitive);
+        final ByteBuffer buffer = ByteBuffer.wrap(message);
+        assertSame(reader, cache.reader(buffer, primitive));
+        assertEquals(writer.length, buffer.position());
+    }
+
+    @Test
+    public void countsOneHitOrMissPerLookup() {
+        final ResolverCache<Object> cache = new ResolverCache<Object>();
+        final Schema extended = new Schema.Parser().parse(WRITER.toString().replace("]}", ",{\"name\":\"seen\",\"type\":\"long\"}]}"));
+        final byte[] writer = Compactor.DEFAULT.encode(WRITER);
+        final byte[] longer = Compactor.DEFAULT.encode(extended);
+        // Both lengths are probed for either schema, and the short one for every schema
+        assertEquals(ByteBuffer.wrap(writer, 0, 4), ByteBuffer.wrap(longer, 0, 4));
+        final Schema primitive = Schema.create(Schema.Type.INT);
+        cache.reader(ByteBuffer.wrap(Compactor.DEFAULT.encode(primitive)), primitive);
+        cache.reader(ByteBuffer.wrap(longer), READER);
+        cache.reader(ByteBuffer.wrap(writer), READER);
+        assertEquals(3, cache.stats().missCount());
+        assertEquals(0, cache.stats().hitCount());
+        for (int i = 0; i < 2; i++) {
+            cache.reader(ByteBuffer.wrap(longer), READER);
+            cache.reader(ByteBuffer.wrap(writer), READER);
+        }
+        assertEquals(3, cache.stats().missCount());
+        assertEquals(4, cache.stats().hitCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        final ResolverCache<GenericRecord> cache = new ResolverCache<GenericRecord>(Compactor.DEFAULT, 2);
+        final byte[] first = Compactor.DEFAULT.encode(WRITER);
+        final byte[] second = Compactor.builder().variableLength(true).build().encode(WRITER);
+        final byte[] third = Compactor.builder().huffmanNames(true).build().encode(WRITER);
+        final DatumReader<GenericRecord> firstReader = cache.reader(first, READER);
+        cache.reader(second, READER);
+        assertSame(firstReader, cache.reader(first, READER));
+        cache.reader(third, READER);
+        assertEquals(1, cache.stats().evictionCount());
+        assertSame(firstReader, cache.reader(first, READER));
+        assertEquals(2, cache.stats().size());
+    }
+
+    private static GenericRecord event(final int id, final String source) {
+        final GenericRecord record = new GenericData.Record(WRITER);
+        record.put("id", id);
+        record.put("source", source);
+        return record;
+    }
+
+    private static byte[] message(final byte[] writerSchema, final GenericRecord record) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(writerSchema);
+        final BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(WRITER).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
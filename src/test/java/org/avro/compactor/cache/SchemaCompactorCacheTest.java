@@ -0,0 +1,93 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Encodes and decodes through the cache, and checks what each lookup is keyed by and counted as
+ */
+public class SchemaCompactorCacheTest {
+
+    private static final String USER = "{\"type\":\"record\",\"name\":\"User\",\"fields\":[{\"name\":\"id\",\"type\":\"long\",\"doc\":\"%s\"}]}";
+
+    @Test
+    public void cachesBothDirections() {
+        final SchemaCompactorCache cache = new SchemaCompactorCache();
+        final Schema schema = user("Id");
+        final byte[] bytes = cache.encode(schema);
+        final byte[] again = cache.encode(new Schema.Parser().parse(schema.toString()));
+        assertArrayEquals(bytes, again);
+        // Callers get their own copy of the cached bytes
+        assertNotSame(bytes, again);
+        assertEquals(1, cache.encodeStats().hitCount());
+        assertEquals(1, cache.encodeStats().missCount());
+
+        final Schema decoded = cache.decode(bytes);
+        assertEquals(Compactor.DEFAULT.decode(bytes), decoded);
+        assertSame(decoded, cache.decode(again));
+        assertEquals(1, cache.decodeStats().hitCount());
+        assertEquals(1, cache.decodeStats().size());
+
+        cache.clear();
+        assertEquals(0, cache.encodeStats().size());
+        assertEquals(0, cache.decodeStats().size());
+    }
+
+    @Test
+    public void evictsAtMaxSize() {
+        final SchemaCompactorCache cache = new SchemaCompactorCache(2);
+        final Schema first = Schema.create(Schema.Type.INT);
+        cache.encode(first);
+        cache.encode(Schema.create(Schema.Type.LONG));
+        cache.encode(first);
+        cache.encode(Schema.create(Schema.Type.STRING));
+        final CacheStats stats = cache.encodeStats();
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.evictionCount());
+        assertEquals(1, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        // The long was evicted, the recently used int was kept
+        cache.encode(first);
+        assertEquals(2, cache.encodeStats().hitCount());
+    }
+
+    @Test
+    public void keysByLogicalTypes() {
+        final SchemaCompactorCache cache = new SchemaCompactorCache();
+        final byte[] plain = cache.encode(Schema.create(Schema.Type.LONG));
+        final byte[] timestamp = cache.encode(LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG)));
+        assertFalse(Arrays.equals(plain, timestamp));
+        assertEquals(2, cache.encodeStats().missCount());
+        assertEquals(LogicalTypes.timestampMillis(), cache.decode(timestamp).getLogicalType());
+    }
+
+    @Test
+    public void keysLosslessSchemasByFullJson() {
+        // The compact format drops docs, so a doc only change is the same entry
+        final SchemaCompactorCache compact = new SchemaCompactorCache();
+        compact.encode(user("Id"));
+        compact.encode(user("Key"));
+        assertEquals(1, compact.encodeStats().hitCount());
+
+        final SchemaCompactorCache lossless = new SchemaCompactorCache(Compactor.builder().lossless(true).build(), 16);
+        final byte[] id = lossless.encode(user("Id"));
+        final byte[] key = lossless.encode(user("Key"));
+        assertEquals(0, lossless.encodeStats().hitCount());
+        assertEquals("Id", lossless.decode(id).getField("id").doc());
+        assertEquals("Key", lossless.decode(key).getField("id").doc());
+    }
+
+    private static Schema user(final String doc) {
+        return new Schema.Parser().parse(String.format(USER, doc));
+    }
+}
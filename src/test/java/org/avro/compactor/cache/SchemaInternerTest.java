@@ -0,0 +1,87 @@
+package org.avro.compactor.cache;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Interns equal schemas to one instance, and checks the counters and that unused instances are collected
+ */
+public class SchemaInternerTest {
+
+    private static final String ADDRESS = "{\"type\":\"record\",\"name\":\"Address\",\"fields\":[{\"name\":\"street\",\"type\":\"string\"}]}";
+    private static final String PERSON = "{\"type\":\"record\",\"name\":\"Person\",\"fields\":["
+        + "{\"name\":\"home\",\"type\":" + ADDRESS + "},{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}";
+    private static final int GC_ATTEMPTS = 50;
+
+    @Test
+    public void returnsTheFirstEqualInstance() {
+        final SchemaInterner interner = new SchemaInterner();
+        final Schema first = parse(ADDRESS);
+        final Schema second = parse(ADDRESS);
+        assertNotSame(first, second);
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        // Other names are other schemas
+        final Schema other = parse(ADDRESS.replace("Address", "Location"));
+        assertSame(other, interner.intern(other));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void decodedSchemasShareTheirParts() {
+        final SchemaInterner interner = new SchemaInterner();
+        final Compactor compactor = Compactor.builder().interner(interner).build();
+        final Schema person = compactor.decode(compactor.encode(parse(PERSON)));
+        final Schema address = compactor.decode(compactor.encode(parse(ADDRESS)));
+        assertSame(person.getField("home").schema(), address);
+        assertSame(person, compactor.decode(compactor.encode(parse(PERSON))));
+    }
+
+    @Test
+    public void countsHitsMissesAndSavedBytes() {
+        final SchemaInterner interner = new SchemaInterner();
+        final Schema first = parse(ADDRESS);
+        interner.intern(first);
+        final InternStats before = interner.stats();
+        interner.intern(parse(ADDRESS));
+        interner.intern(parse(ADDRESS));
+        final InternStats stats = interner.stats();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(2 * SchemaInterner.shallowSize(first), stats.bytesSaved());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+
+        final InternStats since = stats.since(before);
+        assertEquals(2, since.hitCount());
+        assertEquals(0, since.missCount());
+        assertEquals(1, since.size());
+    }
+
+    @Test
+    public void collectsUnusedInstances() throws InterruptedException {
+        final SchemaInterner interner = new SchemaInterner();
+        interner.intern(parse(ADDRESS));
+        final Schema kept = parse(PERSON);
+        interner.intern(kept);
+        for (int i = 0; i < GC_ATTEMPTS && interner.stats().collectedCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        final InternStats stats = interner.stats();
+        assertEquals(1, stats.collectedCount());
+        assertEquals(1, stats.size());
+        assertSame(kept, interner.intern(parse(PERSON)));
+        assertTrue(stats.toString(), stats.toString().contains("collected=1"));
+    }
+
+    private static Schema parse(final String json) {
+        return new Schema.Parser().parse(json);
+    }
+}
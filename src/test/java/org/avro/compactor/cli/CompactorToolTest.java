@@ -0,0 +1,108 @@
+package org.avro.compactor.cli;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the tool on streams and directories, and checks the outputs, the reported failures and the exit code
+ */
+public class CompactorToolTest {
+
+    private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"User\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}";
+    // Deeper than any thread stack can parse
+    private static final int DEEP_LEVELS = 100000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    public void streamKeepsLinesAndCountsFailures() throws Exception {
+        final String input = SCHEMA + "\nnot a schema\n\n" + deep() + "\n" + SCHEMA + "\n";
+        assertEquals(1, run(input, "compact", "-t", "2", "-"));
+
+        final String[] lines = out.toString("UTF-8").split("\n", -1);
+        assertEquals(out.toString("UTF-8"), 6, lines.length);
+        final Schema schema = new Schema.Parser().parse(SCHEMA);
+        assertEquals(schema, Compactor.DEFAULT.decode(Base64.decode(lines[0])));
+        assertEquals("", lines[1]);
+        assertEquals("", lines[2]);
+        assertEquals("", lines[3]);
+        assertEquals(schema, Compactor.DEFAULT.decode(Base64.decode(lines[4])));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").contains("stdin: 4 schemas"));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").contains("2 failed"));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").contains("stdin:4: Nested too deeply"));
+    }
+
+    @Test
+    public void compactsAndExpandsDirectories() throws Exception {
+        final File schemas = folder.newFolder("schemas");
+        Files.write(new File(schemas, "user.avsc").toPath(), SCHEMA.getBytes(Direction.UTF_8));
+        final File nested = new File(schemas, "nested");
+        assertTrue(nested.mkdir());
+        Files.write(new File(nested, "deep.avsc").toPath(), deep().getBytes(Direction.UTF_8));
+        final File compacted = new File(folder.getRoot(), "compacted");
+        final File expanded = new File(folder.getRoot(), "expanded");
+
+        assertEquals(1, run("", "compact", "-o", compacted.getPath(), schemas.getPath()));
+        assertTrue(err.toString("UTF-8"), err.toString("UTF-8").contains("files: 2 schemas"));
+        assertTrue(new File(compacted, "user.cavsc").isFile());
+        assertFalse(new File(compacted, "nested/deep.cavsc").exists());
+
+        assertEquals(0, run("", "expand", "-o", expanded.getPath(), compacted.getPath()));
+        final String json = new String(Files.readAllBytes(new File(expanded, "user.avsc").toPath()), Direction.UTF_8);
+        assertEquals(new Schema.Parser().parse(SCHEMA), new Schema.Parser().parse(json));
+    }
+
+    @Test
+    public void rejectsBadArguments() throws Exception {
+        assertEquals(2, run("", "shrink", "-"));
+        assertEquals(2, run("", "compact", "-t", "0", "-"));
+        assertEquals(2, run("", "compact", "-f", "dictionary", "-"));
+        assertEquals(2, run("", "compact"));
+    }
+
+    @Test
+    public void countsJsonInUtf8Bytes() {
+        for (final String string : new String[] {"", "plain", "caf\u00e9", "\u20ac10", "\ud83d\ude00 emoji", "lone \ud83d surrogate"}) {
+            assertEquals(string, string.getBytes(Direction.UTF_8).length, Direction.utf8Length(string));
+        }
+    }
+
+    private int run(final String input, final String... args) throws Exception {
+        out.reset();
+        err.reset();
+        return CompactorTool.run(args, new ByteArrayInputStream(input.getBytes(Direction.UTF_8)),
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+    }
+
+    /**
+     * @return records nested in records, each level in the json one call deeper for the parser
+     */
+    private static String deep() {
+        final StringBuilder json = new StringBuilder();
+        for (int i = 0; i < DEEP_LEVELS; i++) {
+            json.append("{\"type\":\"record\",\"name\":\"Level").append(i).append("\",\"fields\":[{\"name\":\"child\",\"type\":");
+        }
+        json.append("\"string\"");
+        for (int i = 0; i < DEEP_LEVELS; i++) {
+            json.append("}]}");
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package org.avro.compactor.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks percentiles against the exact ones, they are the upper bound of their power of two bucket
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void reportsZeroWhenEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileNanos(50));
+        assertEquals(0, histogram.count());
+        assertEquals(0.0, histogram.meanNanos(), 0.0);
+    }
+
+    @Test
+    public void givesTheUpperBoundOfTheBucket() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos);
+        }
+        // The 500th duration is in the bucket from 256 to 511
+        assertEquals(511, histogram.percentileNanos(50));
+        // Capped at the max rather than the bucket's 1023
+        assertEquals(1000, histogram.percentileNanos(100));
+        assertEquals(1, histogram.percentileNanos(0));
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.maxNanos());
+        assertEquals(500.5, histogram.meanNanos(), 1e-9);
+    }
+
+    @Test
+    public void recordsNegativeDurationsAsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.percentileNanos(99));
+        assertEquals(0, histogram.maxNanos());
+    }
+
+    @Test
+    public void staysWithinTwiceTheExactPercentile() {
+        final Random random = new Random(3);
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final long[] durations = new long[10000];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = 1 + (long) Math.exp(random.nextDouble() * 20);
+            histogram.record(durations[i]);
+        }
+        Arrays.sort(durations);
+        for (final double percentile : new double[] {1, 25, 50, 90, 99, 99.9}) {
+            final long exact = durations[(int) Math.ceil(durations.length * percentile / 100) - 1];
+            final long estimate = histogram.percentileNanos(percentile);
+            assertTrue(percentile + ": " + estimate + " for " + exact, estimate >= exact && estimate < 2 * exact);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.avro.compactor.metrics;
+
+import org.apache.avro.Schema;
+import org.avro.compactor.Compactor;
+import org.avro.compactor.codec.BitCategory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Feeds a reporter encodes, decodes and failures, and checks what it counts
+ */
+public class Slf4jReporterTest {
+
+    private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"User\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}");
+
+    @Test
+    public void bucketsFailuresByReason() {
+        final Slf4jReporter reporter = new Slf4jReporter();
+        reporter.failed(Operation.ENCODE, SCHEMA, new IllegalArgumentException("Only supports up to 63 fields. Found 70"));
+        reporter.failed(Operation.ENCODE, SCHEMA, new IllegalArgumentException("Only supports up to 63 fields. Found 64"));
+        reporter.failed(Operation.DECODE, null, new IllegalArgumentException("Delta edit 3 is not supported"));
+        reporter.failed(Operation.VALIDATE, SCHEMA, new IllegalStateException());
+
+        final Map<String, Long> failures = reporter.failures();
+        assertEquals(Arrays.asList("DECODE: Delta edit # is not supported", "ENCODE: Only supports up to # fields",
+            "VALIDATE: IllegalStateException"), Arrays.asList(failures.keySet().toArray()));
+        assertEquals(Long.valueOf(2), failures.get("ENCODE: Only supports up to # fields"));
+        assertEquals(Long.valueOf(1), failures.get("DECODE: Delta edit # is not supported"));
+    }
+
+    @Test
+    public void countsCompactorCalls() {
+        final Slf4jReporter reporter = new Slf4jReporter();
+        final Compactor compactor = Compactor.builder().listener(reporter).build();
+        final byte[] bytes = compactor.encode(SCHEMA);
+        compactor.decode(bytes);
+        try {
+            fail("Decoded " + compactor.decode(new byte[] {(byte) 0xFF}));
+        } catch (final RuntimeException e) {
+            assertEquals(1, reporter.failures().size());
+            assertTrue(reporter.failures().toString(), reporter.failures().keySet().iterator().next().startsWith("DECODE: "));
+        }
+        assertEquals(1, reporter.encodeLatency().count());
+        assertEquals(1, reporter.decodeLatency().count());
+        long encoded = 0;
+        for (final BitCategory category : BitCategory.values()) {
+            encoded += reporter.encodedBits(category);
+        }
+        assertTrue(encoded > 0 && encoded <= bytes.length * 8);
+        assertTrue(reporter.decodedBits() > 0);
+    }
+}